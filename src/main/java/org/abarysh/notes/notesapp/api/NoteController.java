@@ -3,17 +3,32 @@ package org.abarysh.notes.notesapp.api;
 import io.swagger.v3.oas.annotations.Operation;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.abarysh.notes.notesapp.domain.dto.NoteBatchRequest;
+import org.abarysh.notes.notesapp.domain.dto.NoteBatchResponse;
 import org.abarysh.notes.notesapp.domain.dto.NoteDetailsResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteDuplicateResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteFilter;
+import org.abarysh.notes.notesapp.domain.dto.NoteHistogramResponse;
 import org.abarysh.notes.notesapp.domain.dto.NoteRequest;
+import org.abarysh.notes.notesapp.domain.dto.NoteRevisionResponse;
 import org.abarysh.notes.notesapp.domain.dto.NoteSummaryResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteWordStatsRequest;
 import org.abarysh.notes.notesapp.domain.dto.NoteWordStatsResponse;
+import org.abarysh.notes.notesapp.domain.dto.PageResponse;
+import org.abarysh.notes.notesapp.domain.enums.HistogramInterval;
+import org.abarysh.notes.notesapp.domain.enums.NoteField;
 import org.abarysh.notes.notesapp.domain.enums.NoteTag;
+import org.abarysh.notes.notesapp.domain.enums.WordAnalyzerType;
+import org.abarysh.notes.notesapp.exсeptions.BadRequestException;
 import org.abarysh.notes.notesapp.service.NoteService;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 @RestController
@@ -25,28 +40,78 @@ public class NoteController {
 
     @PostMapping
     @Operation(summary = "Create or update note",
-            description = "If id is null, creates a new note, otherwise updates the existing one."
+            description = "If id is null, creates a new note, otherwise updates the existing one. "
+                    + "An update racing with another update of the same note is rejected with 409. "
+                    + "With rejectDuplicates=true a near-duplicate of an existing note is rejected with 409. "
+                    + "With async=true a new note is queued and 202 is returned with its id before it is written, "
+                    + "if write-behind is disabled or its buffer is full the note is written right away and 200 is returned."
     )
-    public ResponseEntity<NoteDetailsResponse> saveNote(@Valid @RequestBody NoteRequest request) {
-        return ResponseEntity.ok(noteService.createOrUpdate(request));
+    public ResponseEntity<NoteDetailsResponse> saveNote(@Valid @RequestBody NoteRequest request,
+                                                        @RequestParam(defaultValue = "false") boolean rejectDuplicates,
+                                                        @RequestParam(defaultValue = "false") boolean async) {
+        if (async) {
+            Optional<NoteDetailsResponse> queued = noteService.createAsync(request, rejectDuplicates);
+            if (queued.isPresent()) {
+                return ResponseEntity.accepted().body(queued.get());
+            }
+        }
+        return ResponseEntity.ok(noteService.createOrUpdate(request, rejectDuplicates));
     }
 
     @GetMapping
     @Operation(summary = "List notes",
-            description = "Returns paginated list of notes with optional filtering by tags."
+            description = "Returns paginated list of notes with optional filtering by tags and createdDate range [from, to). "
+                    + "fields selects any of id, title, createdDate, tags and preview, by default id, title, createdDate and preview. "
+                    + "size is at most " + PageResponse.MAX_SIZE + "."
     )
-    public ResponseEntity<Page<NoteSummaryResponse>> list(@RequestParam(defaultValue = "0") int page,
-                                          @RequestParam(defaultValue = "20") int size,
-                                          @RequestParam(required = false) Set<NoteTag> tags) {
-        return ResponseEntity.ok(noteService.list(tags, PageRequest.of(page, size)));
+    public ResponseEntity<PageResponse<NoteSummaryResponse>> list(@RequestParam(defaultValue = "0") int page,
+                                                                  @RequestParam(defaultValue = "20") int size,
+                                                                  @RequestParam(required = false) Set<NoteTag> tags,
+                                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                                                  @RequestParam(required = false) Set<NoteField> fields) {
+        NoteFilter filter = NoteFilter.builder()
+                .tags(tags)
+                .from(from)
+                .to(to)
+                .build();
+        return ResponseEntity.ok(PageResponse.from(noteService.list(filter, fields, pageRequest(page, size))));
+    }
+
+    @GetMapping("/histogram")
+    @Operation(summary = "Count notes over time",
+            description = "Returns the number of notes per day, week or month of createdDate (UTC), "
+                    + "with optional filtering by tags and createdDate range [from, to)."
+    )
+    public ResponseEntity<NoteHistogramResponse> histogram(@RequestParam(defaultValue = "DAY") HistogramInterval interval,
+                                                           @RequestParam(required = false) Set<NoteTag> tags,
+                                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        NoteFilter filter = NoteFilter.builder()
+                .tags(tags)
+                .from(from)
+                .to(to)
+                .build();
+        return ResponseEntity.ok(noteService.histogram(filter, interval));
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get note details",
-            description = "Returns full details of a single note by id."
+            description = "Returns details of a single note by id, fields selects a subset of id, title, createdDate, text, tags and preview, "
+                    + "by default all but preview."
     )
-    public ResponseEntity<NoteDetailsResponse> getById(@PathVariable String id) {
-        return ResponseEntity.ok(noteService.getById(id));
+    public ResponseEntity<NoteDetailsResponse> getById(@PathVariable String id,
+                                                       @RequestParam(required = false) Set<NoteField> fields) {
+        return ResponseEntity.ok(noteService.getById(id, fields));
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Get notes by ids",
+            description = "Returns the notes for up to 500 ids in request order with a single query and lists the ids that were not found."
+    )
+    public ResponseEntity<NoteBatchResponse> getByIds(@Valid @RequestBody NoteBatchRequest request,
+                                                      @RequestParam(required = false) Set<NoteField> fields) {
+        return ResponseEntity.ok(noteService.getByIds(request.getIds(), fields));
     }
 
     @DeleteMapping("/{id}")
@@ -58,12 +123,62 @@ public class NoteController {
         return ResponseEntity.ok().build();
     }
 
+    @GetMapping("/{id}/duplicates")
+    @Operation(summary = "Find near-duplicate notes",
+            description = "Returns notes whose estimated text similarity to this note is at least the threshold."
+    )
+    public ResponseEntity<List<NoteDuplicateResponse>> findDuplicates(@PathVariable String id,
+                                                                      @RequestParam(defaultValue = "0.8") double threshold) {
+        return ResponseEntity.ok(noteService.findDuplicates(id, threshold));
+    }
+
     @GetMapping("/{id}/stats")
     @Operation(summary = "Get note text statistics",
-            description = "Returns unique word counts for the note text."
+            description = "Returns unique word counts for the note text, optionally limited to the top N words. "
+                    + "The analyzer selects tokenization, stopword removal and stemming."
     )
-    public ResponseEntity<NoteWordStatsResponse> getStats(@PathVariable String id) {
-        return ResponseEntity.ok(noteService.getStats(id));
+    public ResponseEntity<NoteWordStatsResponse> getStats(@PathVariable String id,
+                                                          @RequestParam(required = false) Integer limit,
+                                                          @RequestParam(defaultValue = "1") long minCount,
+                                                          @RequestParam(defaultValue = "1") int minLength,
+                                                          @RequestParam(defaultValue = "STANDARD") WordAnalyzerType analyzer) {
+        NoteWordStatsRequest request = NoteWordStatsRequest.builder()
+                .analyzer(analyzer)
+                .limit(limit)
+                .minCount(minCount)
+                .minLength(minLength)
+                .build();
+        return ResponseEntity.ok(noteService.getStats(id, request));
+    }
+
+    @GetMapping("/{id}/revisions")
+    @Operation(summary = "List note revisions",
+            description = "Returns the recorded revisions of the note, newest first. A note that was never updated has none. "
+                    + "size is at most " + PageResponse.MAX_SIZE + "."
+    )
+    public ResponseEntity<PageResponse<NoteRevisionResponse>> listRevisions(@PathVariable String id,
+                                                                            @RequestParam(defaultValue = "0") int page,
+                                                                            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(PageResponse.from(noteService.listRevisions(id, pageRequest(page, size))));
+    }
+
+    @GetMapping("/{id}/revisions/{revision}")
+    @Operation(summary = "Get note revision",
+            description = "Returns title, text and tags of the note as they were at the given revision, starting at 1."
+    )
+    public ResponseEntity<NoteDetailsResponse> getRevision(@PathVariable String id,
+                                                           @PathVariable int revision) {
+        return ResponseEntity.ok(noteService.getRevision(id, revision));
+    }
+
+    private static PageRequest pageRequest(int page, int size) {
+        if (page < 0) {
+            throw new BadRequestException("page must not be negative");
+        }
+        if (size < 1 || size > PageResponse.MAX_SIZE) {
+            throw new BadRequestException("size must be between 1 and " + PageResponse.MAX_SIZE);
+        }
+        return PageRequest.of(page, size);
     }
 
 }
@@ -0,0 +1,17 @@
+package org.abarysh.notes.notesapp.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} for the whole application. The archive run and the id filter scan can take hours,
+ * {@code spring.task.scheduling.pool.size} gives the scheduler a thread per job so that the minute-by-minute
+ * eviction of rate limit buckets and the pool monitor never wait behind them.
+ */
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(ArchiveProperties.class)
+public class ArchiveConfig {
+
+}
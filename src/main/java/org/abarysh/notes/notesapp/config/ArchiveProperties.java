@@ -0,0 +1,42 @@
+package org.abarysh.notes.notesapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the job moving old notes from {@code notes} to {@code notes_archive}.
+ */
+@Data
+@ConfigurationProperties(prefix = "notes.archive")
+public class ArchiveProperties {
+
+    /**
+     * Runs the job on this instance, to be set on one instance only as runs on several would drop each other's copies.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Notes created longer ago than this are archived.
+     */
+    private Duration olderThan = Duration.ofDays(365);
+
+    /**
+     * Delay between the end of one run and the start of the next, in ISO-8601 form as it also drives {@code @Scheduled}.
+     */
+    private Duration interval = Duration.ofHours(1);
+
+    private int batchSize = 500;
+
+    /**
+     * Pause between two batches, keeps the job from competing with requests for the primary.
+     */
+    private Duration batchPause = Duration.ofMillis(200);
+
+    /**
+     * Archived notes are purged once their createdDate is older than this, {@code null} keeps them forever.
+     */
+    private Duration ttl;
+
+}
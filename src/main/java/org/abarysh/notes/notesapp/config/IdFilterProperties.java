@@ -0,0 +1,34 @@
+package org.abarysh.notes.notesapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "notes.id-filter")
+public class IdFilterProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Share of unknown ids that still go to MongoDB.
+     */
+    private double falsePositiveRate = 0.01;
+
+    /**
+     * The filter is sized for this many ids, or twice the current number of notes if that is more.
+     */
+    private long expectedIds = 1_000_000;
+
+    /**
+     * Delay between two rebuilds, in ISO-8601 form as it also drives {@code @Scheduled}.
+     */
+    private Duration rebuildInterval = Duration.ofHours(6);
+
+    /**
+     * Ids generated less than this before a scan started are always looked up, covers clock differences between instances.
+     */
+    private Duration clockSkew = Duration.ofMinutes(1);
+
+}
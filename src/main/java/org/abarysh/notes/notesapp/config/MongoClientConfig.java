@@ -0,0 +1,83 @@
+package org.abarysh.notes.notesapp.config;
+
+import com.mongodb.MongoCompressor;
+import org.abarysh.notes.notesapp.profiling.ConnectionPoolMonitor;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Applies {@code notes.mongo.*} to the client Spring Boot builds from {@code spring.data.mongodb.*}
+ * and registers the {@link ConnectionPoolMonitor}.
+ */
+@Configuration
+@EnableConfigurationProperties(MongoClientProperties.class)
+public class MongoClientConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoClientPropertiesCustomizer(MongoClientProperties properties,
+                                                                                ConnectionPoolMonitor poolMonitor) {
+        MongoClientProperties.Pool pool = properties.getPool();
+        List<MongoCompressor> compressors = compressors(properties.getCompressors());
+        return settings -> {
+            settings.applyToConnectionPoolSettings(builder -> {
+                ifSet(pool.getMaxSize(), builder::maxSize);
+                ifSet(pool.getMinSize(), builder::minSize);
+                ifSet(pool.getMaxConnecting(), builder::maxConnecting);
+                ifSet(pool.getMaxWaitTime(), wait -> builder.maxWaitTime(wait.toMillis(), TimeUnit.MILLISECONDS));
+                ifSet(pool.getMaxConnectionIdleTime(), idle -> builder.maxConnectionIdleTime(idle.toMillis(), TimeUnit.MILLISECONDS));
+                ifSet(pool.getMaxConnectionLifeTime(), life -> builder.maxConnectionLifeTime(life.toMillis(), TimeUnit.MILLISECONDS));
+                builder.addConnectionPoolListener(poolMonitor);
+            });
+            settings.applyToSocketSettings(builder -> {
+                ifSet(properties.getConnectTimeout(), timeout -> builder.connectTimeout(Math.toIntExact(timeout.toMillis()), TimeUnit.MILLISECONDS));
+                ifSet(properties.getReadTimeout(), timeout -> builder.readTimeout(Math.toIntExact(timeout.toMillis()), TimeUnit.MILLISECONDS));
+            });
+            if (!compressors.isEmpty()) {
+                settings.compressorList(compressors);
+            }
+        };
+    }
+
+    /**
+     * Fails at startup rather than on the first query when a compressor is unknown or its library is missing.
+     */
+    public static List<MongoCompressor> compressors(List<String> names) {
+        return names.stream()
+                .map(name -> switch (name.trim().toLowerCase(Locale.ROOT)) {
+                    case "zstd" -> {
+                        requireClass("com.github.luben.zstd.Zstd", "zstd", "com.github.luben:zstd-jni");
+                        yield MongoCompressor.createZstdCompressor();
+                    }
+                    case "snappy" -> {
+                        requireClass("org.xerial.snappy.Snappy", "snappy", "org.xerial.snappy:snappy-java");
+                        yield MongoCompressor.createSnappyCompressor();
+                    }
+                    case "zlib" -> MongoCompressor.createZlibCompressor();
+                    default -> throw new IllegalArgumentException("Unknown notes.mongo.compressors entry " + name
+                            + ", expected zstd, snappy or zlib");
+                })
+                .toList();
+    }
+
+    private static void requireClass(String className, String compressor, String dependency) {
+        if (!ClassUtils.isPresent(className, MongoClientConfig.class.getClassLoader())) {
+            throw new IllegalArgumentException("notes.mongo.compressors contains " + compressor + " but " + dependency
+                    + " is not on the classpath");
+        }
+    }
+
+    private static <T> void ifSet(T value, Consumer<T> setter) {
+        if (value != null) {
+            setter.accept(value);
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package org.abarysh.notes.notesapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MongoDB driver settings. Settings left unset keep the value of {@code spring.data.mongodb.uri} or the driver default,
+ * set ones override the URI.
+ */
+@Data
+@ConfigurationProperties(prefix = "notes.mongo")
+public class MongoClientProperties {
+
+    private Pool pool = new Pool();
+
+    /**
+     * Time to open a connection, driver default 10s.
+     */
+    private Duration connectTimeout;
+
+    /**
+     * Time to wait for a reply, driver default no limit.
+     */
+    private Duration readTimeout;
+
+    /**
+     * Wire compressors in order of preference: {@code zstd}, {@code snappy} or {@code zlib}, the server picks the first
+     * it supports. zstd and snappy need {@code com.github.luben:zstd-jni} and {@code org.xerial.snappy:snappy-java}.
+     */
+    private List<String> compressors = new ArrayList<>();
+
+    private Adaptive adaptive = new Adaptive();
+
+    @Data
+    public static class Pool {
+
+        /**
+         * Connections per server, driver default 100.
+         */
+        private Integer maxSize;
+
+        /**
+         * Connections kept open per server even when idle, driver default 0.
+         */
+        private Integer minSize;
+
+        /**
+         * Time a query waits for a free connection before it fails, driver default 2m.
+         */
+        private Duration maxWaitTime;
+
+        /**
+         * Connections opened at the same time per server, driver default 2.
+         */
+        private Integer maxConnecting;
+
+        private Duration maxConnectionIdleTime;
+
+        private Duration maxConnectionLifeTime;
+
+    }
+
+    @Data
+    public static class Adaptive {
+
+        /**
+         * Whether a pool size is recommended from observed load, it is logged and published but not applied,
+         * the driver cannot resize a pool that is open.
+         */
+        private boolean enabled = true;
+
+        private Duration interval = Duration.ofMinutes(1);
+
+        /**
+         * Checkouts waiting longer than this on average mean the pool is too small.
+         */
+        private Duration targetWait = Duration.ofMillis(20);
+
+        /**
+         * Connections recommended on top of the ones the observed load keeps busy.
+         */
+        private double headroom = 1.25;
+
+        /**
+         * The recommendation never goes above this.
+         */
+        private int maxRecommendedSize = 500;
+
+    }
+
+}
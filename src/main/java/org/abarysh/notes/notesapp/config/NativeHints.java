@@ -0,0 +1,58 @@
+package org.abarysh.notes.notesapp.config;
+
+import org.abarysh.notes.notesapp.domain.dto.*;
+import org.abarysh.notes.notesapp.domain.entity.Note;
+import org.abarysh.notes.notesapp.domain.entity.NoteRevision;
+import org.abarysh.notes.notesapp.domain.enums.HistogramInterval;
+import org.abarysh.notes.notesapp.domain.enums.NoteField;
+import org.abarysh.notes.notesapp.domain.enums.NoteTag;
+import org.abarysh.notes.notesapp.domain.enums.WordAnalyzerType;
+import org.abarysh.notes.notesapp.exсeptions.ApiError;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Reachability metadata for the native image ({@code mvn -Pnative package}).
+ * <p>
+ * Spring AOT covers beans, controller signatures and the repository, this adds what is only reached by reflection:
+ * the Mongo mapping of {@link Note} and {@link NoteRevision} through {@code MongoTemplate}, Jackson binding of the Lombok-generated DTOs
+ * also outside controller signatures (the rate limiter writes {@link ApiError} itself, {@code PageResponse} is generic),
+ * and the Swagger UI webjar that springdoc serves and reads its version from.
+ */
+@Configuration
+@ImportRuntimeHints(NativeHints.Registrar.class)
+public class NativeHints {
+
+    public static class Registrar implements RuntimeHintsRegistrar {
+
+        private static final Class<?>[] BOUND_TYPES = {
+                NoteRequest.class, NoteBatchRequest.class, NoteWordStatsRequest.class, NoteFilter.class,
+                NoteDetailsResponse.class, NoteSummaryResponse.class, NoteBatchResponse.class, NoteDuplicateResponse.class,
+                NoteHistogramResponse.class, NoteHistogramResponse.Bucket.class, NoteWordStatsResponse.class, NoteRevisionResponse.class,
+                PageResponse.class,
+                ApiError.class,
+                NoteTag.class, NoteField.class, HistogramInterval.class, WordAnalyzerType.class
+        };
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (Class<?> entity : new Class<?>[]{Note.class, NoteRevision.class, NoteRevision.Edit.class}) {
+                hints.reflection().registerType(entity,
+                        MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                        MemberCategory.INVOKE_DECLARED_METHODS,
+                        MemberCategory.DECLARED_FIELDS);
+            }
+            new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), BOUND_TYPES);
+
+            hints.resources()
+                    .registerPattern("META-INF/resources/webjars/swagger-ui/**")
+                    .registerPattern("META-INF/maven/org.webjars/swagger-ui/pom.properties");
+        }
+
+    }
+
+}
@@ -0,0 +1,10 @@
+package org.abarysh.notes.notesapp.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(PreviewProperties.class)
+public class PreviewConfig {
+
+}
@@ -0,0 +1,21 @@
+package org.abarysh.notes.notesapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "notes.preview")
+public class PreviewProperties {
+
+    /**
+     * Whether notes saved before previews existed get one after startup.
+     */
+    private boolean backfill = true;
+
+    private int batchSize = 500;
+
+    private Duration batchPause = Duration.ofMillis(100);
+
+}
@@ -0,0 +1,18 @@
+package org.abarysh.notes.notesapp.config;
+
+import org.abarysh.notes.notesapp.profiling.QueryShapeListener;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(QueryProfilerProperties.class)
+public class QueryProfilerConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer queryShapeListenerCustomizer(QueryShapeListener listener) {
+        return settings -> settings.addCommandListener(listener);
+    }
+
+}
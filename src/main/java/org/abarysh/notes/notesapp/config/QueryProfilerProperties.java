@@ -0,0 +1,39 @@
+package org.abarysh.notes.notesapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "notes.query-profiler")
+public class QueryProfilerProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Reads that take longer are logged and counted as slow.
+     */
+    private Duration slowThreshold = Duration.ofMillis(100);
+
+    /**
+     * At most this many slow reads are logged per second, the rest are only counted.
+     */
+    private int slowLogsPerSecond = 10;
+
+    /**
+     * Distinct query shapes that are tracked, later shapes are added up under one entry.
+     */
+    private int maxShapes = 500;
+
+    /**
+     * Whether a shape that ran slow is explained to find its plan and the documents it examined.
+     */
+    private boolean explain = true;
+
+    /**
+     * A shape is explained again at most this often.
+     */
+    private Duration explainInterval = Duration.ofMinutes(5);
+
+}
@@ -0,0 +1,98 @@
+package org.abarysh.notes.notesapp.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "notes.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * What a client is, the buckets of one client are shared by all its requests.
+     */
+    private ClientKey clientKey = ClientKey.ADDRESS;
+
+    /**
+     * Header holding the client address as appended by a trusted proxy in front of the application, for example
+     * {@code X-Forwarded-For}. Its last entry is used, entries before it come from the client and are not trusted.
+     * Not set, the address of the connection is used.
+     */
+    private String clientAddressHeader;
+
+    /**
+     * Most client buckets kept, clients beyond it share one bucket per endpoint class until idle buckets are dropped.
+     */
+    private int maxBuckets = 100_000;
+
+    /**
+     * Budget of a client for {@code GET /api/notes/{id}/stats}.
+     */
+    private Budget stats = new Budget(5, 10);
+
+    /**
+     * Budget of a client for {@code GET /api/notes}.
+     */
+    private Budget list = new Budget(20, 40);
+
+    /**
+     * Budget of a client for every other endpoint.
+     */
+    private Budget other = new Budget(50, 100);
+
+    /**
+     * A list request costs one more token per this many notes skipped to reach the requested page.
+     */
+    private int deepPageSkip = 1000;
+
+    /**
+     * Requests in flight never go above this limit, it is also the starting limit.
+     */
+    private int maxConcurrent = 200;
+
+    /**
+     * The adaptive limit never goes below this.
+     */
+    private int minConcurrent = 8;
+
+    /**
+     * Requests slower than this shrink the concurrency limit.
+     */
+    private Duration targetLatency = Duration.ofMillis(250);
+
+    /**
+     * Slow requests shrink the concurrency limit at most once per this interval.
+     */
+    private Duration decreaseInterval = Duration.ofSeconds(1);
+
+    public enum ClientKey {
+
+        /**
+         * The client address, whatever tenant it sends.
+         */
+        ADDRESS,
+
+        /**
+         * The client address and its {@code X-Tenant-Id}, for clients that serve several tenants from one address.
+         * A client can then get another budget by sending another tenant.
+         */
+        ADDRESS_AND_TENANT
+
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Budget {
+
+        private double permitsPerSecond;
+        private long burst;
+
+    }
+
+}
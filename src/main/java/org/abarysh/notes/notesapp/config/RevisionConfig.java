@@ -0,0 +1,10 @@
+package org.abarysh.notes.notesapp.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(RevisionProperties.class)
+public class RevisionConfig {
+
+}
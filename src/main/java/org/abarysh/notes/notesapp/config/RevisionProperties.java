@@ -0,0 +1,20 @@
+package org.abarysh.notes.notesapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "notes.revisions")
+public class RevisionProperties {
+
+    /**
+     * Whether updates of a note are recorded in {@code note_revisions}.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Every this many revisions the full note is stored, a revision is rebuilt from at most this many documents.
+     */
+    private int snapshotEvery = 20;
+
+}
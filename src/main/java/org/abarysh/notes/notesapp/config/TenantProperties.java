@@ -0,0 +1,32 @@
+package org.abarysh.notes.notesapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "notes.tenant")
+public class TenantProperties {
+
+    /**
+     * Reject requests without the tenant header instead of serving the default tenant.
+     */
+    private boolean required = false;
+
+    /**
+     * Maximum number of notes of a tenant, archived ones included, 0 for no limit.
+     */
+    private long maxNotes = 0;
+
+    /**
+     * How long the cached note count of a tenant is trusted before the tenant's notes are counted again.
+     */
+    private Duration countCacheTtl = Duration.ofMinutes(5);
+
+    /**
+     * Most tenants whose note count is cached, the counts of further tenants are not cached until older ones expire.
+     */
+    private int maxCachedCounts = 10_000;
+
+}
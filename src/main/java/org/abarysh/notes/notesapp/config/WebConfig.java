@@ -0,0 +1,62 @@
+package org.abarysh.notes.notesapp.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.RequiredArgsConstructor;
+import org.abarysh.notes.notesapp.domain.enums.NoteField;
+import org.abarysh.notes.notesapp.tenant.TenantInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.format.FormatterRegistry;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Note fields are bound by their property names ({@code fields=id,createdDate}).
+ * <p>
+ * Binary Smile ({@code application/x-jackson-smile}) and CBOR ({@code application/cbor}) responses
+ * chosen through the {@code Accept} header.
+ * <p>
+ * Both use the application's Jackson settings, so they carry the same fields as JSON.
+ * They are appended after the JSON converter, so clients accepting any media type still get JSON.
+ * <p>
+ * API requests are bound to the tenant of their {@code X-Tenant-Id} header.
+ */
+@Configuration
+@RequiredArgsConstructor
+@EnableConfigurationProperties(TenantProperties.class)
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+    private final TenantProperties tenantProperties;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new TenantInterceptor(tenantProperties))
+                .addPathPatterns("/api/**");
+    }
+
+    @Override
+    public void addFormatters(FormatterRegistry registry) {
+        registry.addConverter(String.class, NoteField.class, NoteField::fromProperty);
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> converter instanceof MappingJackson2SmileHttpMessageConverter
+                || converter instanceof MappingJackson2CborHttpMessageConverter);
+
+        converters.add(new MappingJackson2SmileHttpMessageConverter(
+                objectMapperBuilder.getObject().factory(new SmileFactory()).build()));
+        converters.add(new MappingJackson2CborHttpMessageConverter(
+                objectMapperBuilder.getObject().factory(new CBORFactory()).build()));
+    }
+
+}
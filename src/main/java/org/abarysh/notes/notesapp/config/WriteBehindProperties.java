@@ -0,0 +1,44 @@
+package org.abarysh.notes.notesapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "notes.write-behind")
+public class WriteBehindProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Notes waiting to be written, when the buffer is full notes are written synchronously.
+     */
+    private int capacity = 10_000;
+
+    /**
+     * Upper bound of notes written with one {@code insertMany}.
+     */
+    private int batchSize = 500;
+
+    /**
+     * Name of a {@code com.mongodb.WriteConcern} constant, e.g. {@code W1}, {@code MAJORITY} or {@code UNACKNOWLEDGED}.
+     */
+    private String writeConcern = "W1";
+
+    /**
+     * Pause before a failed batch is written again.
+     */
+    private Duration retryBackoff = Duration.ofSeconds(1);
+
+    /**
+     * Attempts at a batch failing with a transient error before its notes are dropped, enough to ride out an election.
+     */
+    private int maxAttempts = 30;
+
+    /**
+     * How long shutdown waits for the buffer to be written, notes still queued after it are lost.
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+
+}
@@ -0,0 +1,25 @@
+package org.abarysh.notes.notesapp.domain.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NoteBatchRequest {
+
+    public static final int MAX_IDS = 500;
+
+    @NotEmpty(message = "ids must not be empty")
+    @Size(max = MAX_IDS, message = "ids must contain at most " + MAX_IDS + " elements")
+    private List<@NotBlank(message = "id must not be blank") String> ids;
+
+}
@@ -0,0 +1,26 @@
+package org.abarysh.notes.notesapp.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteBatchResponse {
+
+    /**
+     * Found notes in the order of the requested ids.
+     */
+    private List<NoteDetailsResponse> notes;
+
+    /**
+     * Requested ids that do not exist, in request order.
+     */
+    private List<String> missing;
+
+}
@@ -1,5 +1,6 @@
 package org.abarysh.notes.notesapp.domain.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,6 +14,7 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class NoteDetailsResponse {
 
     private String id;
@@ -20,5 +22,6 @@ public class NoteDetailsResponse {
     private Instant createdDate;
     private String text;
     private Set<NoteTag> tags;
+    private String preview;
 
 }
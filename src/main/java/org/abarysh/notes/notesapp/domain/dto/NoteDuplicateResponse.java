@@ -0,0 +1,21 @@
+package org.abarysh.notes.notesapp.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteDuplicateResponse {
+
+    private String id;
+    private String title;
+    private Instant createdDate;
+    private double similarity;
+
+}
@@ -0,0 +1,33 @@
+package org.abarysh.notes.notesapp.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.abarysh.notes.notesapp.domain.enums.NoteTag;
+
+import java.time.Instant;
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NoteFilter {
+
+    /**
+     * Notes having any of these tags, {@code null} or empty for all notes.
+     */
+    private Set<NoteTag> tags;
+
+    /**
+     * Inclusive lower bound of createdDate.
+     */
+    private Instant from;
+
+    /**
+     * Exclusive upper bound of createdDate.
+     */
+    private Instant to;
+
+}
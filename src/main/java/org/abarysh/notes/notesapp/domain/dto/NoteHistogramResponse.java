@@ -0,0 +1,35 @@
+package org.abarysh.notes.notesapp.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.abarysh.notes.notesapp.domain.enums.HistogramInterval;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteHistogramResponse {
+
+    private HistogramInterval interval;
+    private List<Bucket> buckets;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bucket {
+
+        /**
+         * Start of the day, week (Monday) or month in UTC.
+         */
+        private Instant start;
+        private long count;
+
+    }
+
+}
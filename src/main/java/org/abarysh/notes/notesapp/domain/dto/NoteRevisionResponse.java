@@ -0,0 +1,22 @@
+package org.abarysh.notes.notesapp.domain.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class NoteRevisionResponse {
+
+    private int revision;
+    private Instant savedDate;
+    private boolean snapshot;
+
+}
@@ -1,19 +1,26 @@
 package org.abarysh.notes.notesapp.domain.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.abarysh.notes.notesapp.domain.enums.NoteTag;
 
 import java.time.Instant;
+import java.util.Set;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class NoteSummaryResponse {
 
+    private String id;
     private String title;
     private Instant createdDate;
+    private Set<NoteTag> tags;
+    private String preview;
 
 }
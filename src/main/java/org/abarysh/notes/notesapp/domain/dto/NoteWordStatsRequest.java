@@ -0,0 +1,29 @@
+package org.abarysh.notes.notesapp.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.abarysh.notes.notesapp.domain.enums.WordAnalyzerType;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NoteWordStatsRequest {
+
+    /**
+     * Maximum number of words to return, {@code null} means all words.
+     */
+    private Integer limit;
+
+    @Builder.Default
+    private long minCount = 1;
+
+    @Builder.Default
+    private int minLength = 1;
+
+    @Builder.Default
+    private WordAnalyzerType analyzer = WordAnalyzerType.STANDARD;
+
+}
@@ -3,10 +3,13 @@ package org.abarysh.notes.notesapp.domain.entity;
 import lombok.*;
 import org.abarysh.notes.notesapp.domain.enums.NoteTag;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Sharded;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Set;
 
 
@@ -15,19 +18,53 @@ import java.util.Set;
 @AllArgsConstructor
 @Builder
 @Document(collection = "notes")
+@Sharded(shardKey = {"tenantId", "id"}, immutableKey = true)
+@CompoundIndex(name = "tenantId_id_hashed", def = "{'tenantId': 1, '_id': 'hashed'}")
+@CompoundIndex(name = "tenantId_createdDate", def = "{'tenantId': 1, 'createdDate': -1}")
+@CompoundIndex(name = "tenantId_tags_createdDate", def = "{'tenantId': 1, 'tags': 1, 'createdDate': -1}")
+@CompoundIndex(name = "tenantId_title", def = "{'tenantId': 1, 'title': 1}")
+@CompoundIndex(name = "tenantId_lshBands", def = "{'tenantId': 1, 'lshBands': 1}")
 public class Note {
 
     @Id
     protected String id;
 
+    /**
+     * Owner of the note and leading part of the shard key {@code {tenantId: 1, _id: "hashed"}}, never changes.
+     */
+    private String tenantId;
+
+    /**
+     * Indexed on its own for the archive job, which is the only query across tenants.
+     */
     @Indexed
     private Instant createdDate;
 
-    @Indexed
     private String title;
 
     private String text;
 
+    /**
+     * Start of the text for lists, see {@link org.abarysh.notes.notesapp.service.preview.NotePreview}.
+     */
+    private String preview;
+
     private Set<NoteTag> tags;
 
+    /**
+     * Starts at 1 and is increased by every update, see {@link org.abarysh.notes.notesapp.service.revision.NoteHistory}.
+     * {@code null} for notes saved before revisions were counted.
+     */
+    private Integer revision;
+
+    /**
+     * MinHash signature of the text shingles, {@code null} for notes without words.
+     */
+    private int[] minHash;
+
+    /**
+     * LSH band keys of {@link #minHash}, notes sharing a key are near-duplicate candidates.
+     */
+    private List<Long> lshBands;
+
 }
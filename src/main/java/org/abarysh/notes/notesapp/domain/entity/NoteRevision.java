@@ -0,0 +1,79 @@
+package org.abarysh.notes.notesapp.domain.entity;
+
+import lombok.*;
+import org.abarysh.notes.notesapp.domain.enums.NoteTag;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Sharded;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One version of a note, see {@link org.abarysh.notes.notesapp.service.revision.NoteHistory}.
+ * A snapshot holds the full title, text and tags, any other revision only what changed since the previous revision.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "note_revisions")
+@Sharded(shardKey = {"tenantId", "noteId"}, immutableKey = true)
+@CompoundIndex(name = "tenantId_noteId_revision", def = "{'tenantId': 1, 'noteId': 1, 'revision': -1}", unique = true)
+public class NoteRevision {
+
+    @Id
+    private String id;
+
+    private String tenantId;
+
+    private String noteId;
+
+    private int revision;
+
+    /**
+     * When this version was saved, {@code null} if that is no longer known.
+     */
+    private Instant savedDate;
+
+    private boolean snapshot;
+
+    /**
+     * For a diff only set if the title changed.
+     */
+    private String title;
+
+    /**
+     * For a diff only set if the tags changed.
+     */
+    private Set<NoteTag> tags;
+
+    /**
+     * Full text of a snapshot.
+     */
+    private String text;
+
+    /**
+     * Changes of a diff to the text of the previous revision, in ascending order.
+     */
+    private List<Edit> edits;
+
+    /**
+     * Replaces {@code deleted} characters of the previous text starting at {@code at} with {@code inserted}.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Edit {
+
+        private int at;
+
+        private int deleted;
+
+        private String inserted;
+
+    }
+
+}
@@ -0,0 +1,19 @@
+package org.abarysh.notes.notesapp.domain.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum HistogramInterval {
+
+    DAY("day"),
+    WEEK("week"),
+    MONTH("month");
+
+    /**
+     * Unit name of the MongoDB {@code $dateTrunc} operator.
+     */
+    private final String unit;
+
+}
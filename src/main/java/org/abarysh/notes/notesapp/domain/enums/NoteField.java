@@ -0,0 +1,41 @@
+package org.abarysh.notes.notesapp.domain.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+@Getter
+@RequiredArgsConstructor
+public enum NoteField {
+
+    ID("id"),
+    TITLE("title"),
+    CREATED_DATE("createdDate"),
+    TEXT("text"),
+    TAGS("tags"),
+    PREVIEW("preview");
+
+    public static final Set<NoteField> SUMMARY = EnumSet.of(ID, TITLE, CREATED_DATE, PREVIEW);
+    public static final Set<NoteField> LISTABLE = EnumSet.of(ID, TITLE, CREATED_DATE, TAGS, PREVIEW);
+    /**
+     * The whole note, the preview only when asked for as it repeats the start of the text.
+     */
+    public static final Set<NoteField> DETAILS = EnumSet.of(ID, TITLE, CREATED_DATE, TEXT, TAGS);
+
+    /**
+     * Name of the response and document property.
+     */
+    private final String property;
+
+    public static NoteField fromProperty(String property) {
+        for (NoteField field : values()) {
+            if (field.property.equals(property.trim())) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown note field '%s'".formatted(property));
+    }
+
+}
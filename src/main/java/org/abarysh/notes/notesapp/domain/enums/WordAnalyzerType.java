@@ -0,0 +1,20 @@
+package org.abarysh.notes.notesapp.domain.enums;
+
+public enum WordAnalyzerType {
+
+    /**
+     * Unicode words, lower-cased.
+     */
+    STANDARD,
+
+    /**
+     * {@link #STANDARD} without common English stopwords.
+     */
+    STOP,
+
+    /**
+     * {@link #STOP} plus minimal English plural stemming.
+     */
+    ENGLISH
+
+}
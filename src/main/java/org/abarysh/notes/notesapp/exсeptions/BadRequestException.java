@@ -0,0 +1,8 @@
+package org.abarysh.notes.notesapp.exсeptions;
+
+public class BadRequestException extends ClientErrorException {
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
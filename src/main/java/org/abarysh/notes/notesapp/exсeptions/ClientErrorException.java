@@ -0,0 +1,14 @@
+package org.abarysh.notes.notesapp.exсeptions;
+
+/**
+ * Base of errors caused by the request itself, such as unknown ids or invalid parameters.
+ * <p>
+ * They are expected, frequent and always turned into a response by the exception handler, nobody reads their stack trace,
+ * so it is never captured: filling it in walks the whole servlet call stack and is the most expensive part of a 404.
+ */
+public abstract class ClientErrorException extends RuntimeException {
+
+    protected ClientErrorException(String message) {
+        super(message, null, false, false);
+    }
+}
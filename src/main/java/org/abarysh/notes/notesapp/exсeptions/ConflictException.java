@@ -0,0 +1,8 @@
+package org.abarysh.notes.notesapp.exсeptions;
+
+public class ConflictException extends ClientErrorException {
+
+    public ConflictException(String message) {
+        super(message);
+    }
+}
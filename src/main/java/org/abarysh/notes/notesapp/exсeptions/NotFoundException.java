@@ -1,6 +1,6 @@
 package org.abarysh.notes.notesapp.exсeptions;
 
-public class NotFoundException extends RuntimeException {
+public class NotFoundException extends ClientErrorException {
 
     public NotFoundException(String message) {
         super(message);
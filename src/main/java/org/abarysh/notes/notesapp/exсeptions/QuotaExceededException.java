@@ -0,0 +1,8 @@
+package org.abarysh.notes.notesapp.exсeptions;
+
+public class QuotaExceededException extends ClientErrorException {
+
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,81 @@
+package org.abarysh.notes.notesapp.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs at most {@code permits} messages per interval and only counts the rest,
+ * the count is appended to the next message that gets through.
+ * <p>
+ * Meant for messages driven by client traffic, such as lookups of unknown ids, where a scanner could otherwise
+ * make the application spend its time writing log lines.
+ */
+public class SampledLogger {
+
+    private final Logger log;
+    private final Level level;
+    private final int permits;
+    private final long intervalNanos;
+
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicInteger logged = new AtomicInteger();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public SampledLogger(Logger log, Level level, int permits, Duration interval) {
+        this.log = log;
+        this.level = level;
+        this.permits = permits;
+        this.intervalNanos = interval.toNanos();
+    }
+
+    public void log(String format, Object arg) {
+        if (!log.isEnabledForLevel(level)) {
+            return;
+        }
+        if (!tryAcquire()) {
+            suppressed.incrementAndGet();
+            return;
+        }
+
+        long skipped = suppressed.getAndSet(0);
+        if (skipped == 0) {
+            log.atLevel(level).log(format, arg);
+        } else {
+            log.atLevel(level).log(format + " ({} similar messages suppressed)", arg, skipped);
+        }
+    }
+
+    public void log(String format, Object... args) {
+        if (!log.isEnabledForLevel(level)) {
+            return;
+        }
+        if (!tryAcquire()) {
+            suppressed.incrementAndGet();
+            return;
+        }
+
+        long skipped = suppressed.getAndSet(0);
+        if (skipped == 0) {
+            log.atLevel(level).log(format, args);
+        } else {
+            Object[] withSkipped = Arrays.copyOf(args, args.length + 1);
+            withSkipped[args.length] = skipped;
+            log.atLevel(level).log(format + " ({} similar messages suppressed)", withSkipped);
+        }
+    }
+
+    private boolean tryAcquire() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= intervalNanos && windowStart.compareAndSet(start, now)) {
+            logged.set(0);
+        }
+        return logged.incrementAndGet() <= permits;
+    }
+
+}
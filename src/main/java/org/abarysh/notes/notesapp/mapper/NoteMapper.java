@@ -2,26 +2,61 @@ package org.abarysh.notes.notesapp.mapper;
 
 import lombok.experimental.UtilityClass;
 import org.abarysh.notes.notesapp.domain.dto.NoteDetailsResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteDuplicateResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteRevisionResponse;
 import org.abarysh.notes.notesapp.domain.dto.NoteSummaryResponse;
 import org.abarysh.notes.notesapp.domain.entity.Note;
+import org.abarysh.notes.notesapp.domain.entity.NoteRevision;
+import org.abarysh.notes.notesapp.domain.enums.NoteField;
+
+import java.util.Set;
 
 @UtilityClass
 public class NoteMapper {
 
     public NoteSummaryResponse toSummary(Note note) {
+        return toSummary(note, NoteField.SUMMARY);
+    }
+
+    public NoteSummaryResponse toSummary(Note note, Set<NoteField> fields) {
         return NoteSummaryResponse.builder()
+                .id(fields.contains(NoteField.ID) ? note.getId() : null)
+                .title(fields.contains(NoteField.TITLE) ? note.getTitle() : null)
+                .createdDate(fields.contains(NoteField.CREATED_DATE) ? note.getCreatedDate() : null)
+                .tags(fields.contains(NoteField.TAGS) ? note.getTags() : null)
+                .preview(fields.contains(NoteField.PREVIEW) ? note.getPreview() : null)
+                .build();
+    }
+
+    public NoteDuplicateResponse toDuplicate(Note note, double similarity) {
+        return NoteDuplicateResponse.builder()
+                .id(note.getId())
                 .title(note.getTitle())
                 .createdDate(note.getCreatedDate())
+                .similarity(similarity)
                 .build();
     }
 
     public NoteDetailsResponse toDetails(Note note) {
+        return toDetails(note, NoteField.DETAILS);
+    }
+
+    public NoteDetailsResponse toDetails(Note note, Set<NoteField> fields) {
         return NoteDetailsResponse.builder()
-                .id(note.getId())
-                .title(note.getTitle())
-                .createdDate(note.getCreatedDate())
-                .text(note.getText())
-                .tags(note.getTags())
+                .id(fields.contains(NoteField.ID) ? note.getId() : null)
+                .title(fields.contains(NoteField.TITLE) ? note.getTitle() : null)
+                .createdDate(fields.contains(NoteField.CREATED_DATE) ? note.getCreatedDate() : null)
+                .text(fields.contains(NoteField.TEXT) ? note.getText() : null)
+                .tags(fields.contains(NoteField.TAGS) ? note.getTags() : null)
+                .preview(fields.contains(NoteField.PREVIEW) ? note.getPreview() : null)
+                .build();
+    }
+
+    public NoteRevisionResponse toRevision(NoteRevision revision) {
+        return NoteRevisionResponse.builder()
+                .revision(revision.getRevision())
+                .savedDate(revision.getSavedDate())
+                .snapshot(revision.isSnapshot())
                 .build();
     }
 
@@ -0,0 +1,199 @@
+package org.abarysh.notes.notesapp.profiling;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ConnectionId;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolClosedEvent;
+import com.mongodb.event.ConnectionPoolCreatedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.abarysh.notes.notesapp.config.MongoClientProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Times connection checkouts of every MongoDB pool and recommends a pool size from what it observes.
+ * <p>
+ * The connections a load keeps busy on average are the time connections were held divided by the time observed
+ * (Little's law). Every {@code notes.mongo.adaptive.interval} the recommendation is that times
+ * {@code notes.mongo.adaptive.headroom}, and at least the peak in use. When checkouts waited longer than
+ * {@code notes.mongo.adaptive.target-wait} on average or timed out, the pool was full and hid the real demand,
+ * so at least half again the current size is recommended. The driver cannot resize an open pool, the recommendation
+ * is logged and published as {@code notes.mongo.pool.recommended-max-size} for {@code notes.mongo.pool.max-size}.
+ * Pool size, connections in use and the wait queue are published by Spring Boot as {@code mongodb.driver.pool.*}.
+ */
+@Slf4j
+@Component
+public class ConnectionPoolMonitor implements ConnectionPoolListener {
+
+    private final MongoClientProperties.Adaptive properties;
+    private final Timer acquired;
+    private final Timer timedOut;
+    private final Timer failed;
+
+    private final Map<ServerAddress, ServerPool> pools = new ConcurrentHashMap<>();
+    private final Map<ConnectionId, Long> checkedOutAt = new ConcurrentHashMap<>();
+    private final AtomicInteger recommendedMaxSize = new AtomicInteger();
+
+    public ConnectionPoolMonitor(MongoClientProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties.getAdaptive();
+        this.acquired = checkoutTimer(meterRegistry, "acquired");
+        this.timedOut = checkoutTimer(meterRegistry, "timeout");
+        this.failed = checkoutTimer(meterRegistry, "failed");
+        Gauge.builder("notes.mongo.pool.recommended-max-size", recommendedMaxSize, AtomicInteger::get)
+                .description("Pool size per server recommended from the observed load, 0 until there was load")
+                .register(meterRegistry);
+    }
+
+    public int recommendedMaxSize() {
+        return recommendedMaxSize.get();
+    }
+
+    @Override
+    public void connectionPoolCreated(ConnectionPoolCreatedEvent event) {
+        pools.put(event.getServerId().getAddress(), new ServerPool(event.getSettings().getMaxSize()));
+    }
+
+    @Override
+    public void connectionPoolClosed(ConnectionPoolClosedEvent event) {
+        pools.remove(event.getServerId().getAddress());
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        long waited = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        acquired.record(waited, TimeUnit.NANOSECONDS);
+        checkedOutAt.put(event.getConnectionId(), System.nanoTime());
+
+        ServerPool pool = pools.get(event.getConnectionId().getServerId().getAddress());
+        if (pool != null) {
+            pool.waitNanos.add(waited);
+            pool.checkouts.increment();
+            pool.peakInUse.accumulateAndGet(pool.inUse.incrementAndGet(), Math::max);
+        }
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        Long since = checkedOutAt.remove(event.getConnectionId());
+        ServerPool pool = pools.get(event.getConnectionId().getServerId().getAddress());
+        if (since == null || pool == null) {
+            return;
+        }
+        pool.inUse.decrementAndGet();
+        pool.holdNanos.add(System.nanoTime() - since);
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        boolean timeout = event.getReason() == ConnectionCheckOutFailedEvent.Reason.TIMEOUT;
+        (timeout ? timedOut : failed).record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+
+        ServerPool pool = pools.get(event.getServerId().getAddress());
+        if (pool != null && timeout) {
+            pool.timeouts.increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notes.mongo.adaptive.interval:PT1M}")
+    public void recommend() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        int recommended = 0;
+        for (Map.Entry<ServerAddress, ServerPool> entry : pools.entrySet()) {
+            ServerPool pool = entry.getValue();
+            Window window = pool.endWindow();
+            if (window.checkouts() == 0 && window.timeouts() == 0) {
+                continue;
+            }
+            int size = recommend(window, pool.maxSize);
+            recommended = Math.max(recommended, size);
+
+            if (window.saturated(properties.getTargetWait())) {
+                log.warn("MongoDB pool of {} is too small: {} checkouts waited {} ms on average, {} timed out, peak {} of {} in use; "
+                                + "recommended notes.mongo.pool.max-size={}",
+                        entry.getKey(), window.checkouts(), TimeUnit.NANOSECONDS.toMillis(window.meanWaitNanos()),
+                        window.timeouts(), window.peakInUse(), pool.maxSize, size);
+            } else {
+                log.debug("MongoDB pool of {}: {} busy on average, peak {} of {} in use, recommended size {}",
+                        entry.getKey(), window.busy(), window.peakInUse(), pool.maxSize, size);
+            }
+        }
+        if (recommended > 0) {
+            recommendedMaxSize.set(recommended);
+        }
+    }
+
+    private int recommend(Window window, int maxSize) {
+        int recommended = Math.max((int) Math.ceil(window.busy() * properties.getHeadroom()), window.peakInUse());
+        if (window.saturated(properties.getTargetWait())) {
+            recommended = Math.max(recommended, (int) Math.ceil(maxSize * 1.5));
+        }
+        return Math.clamp(recommended, 1, properties.getMaxRecommendedSize());
+    }
+
+    private static Timer checkoutTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("notes.mongo.pool.checkout")
+                .description("Time waited for a pooled MongoDB connection")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static final class ServerPool {
+
+        private final int maxSize;
+        private final AtomicInteger inUse = new AtomicInteger();
+        private final AtomicInteger peakInUse = new AtomicInteger();
+        private final LongAdder checkouts = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final LongAdder holdNanos = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+
+        private ServerPool(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * Counters since the previous call, updates racing with it land in one of the two windows.
+         */
+        private Window endWindow() {
+            long now = System.nanoTime();
+            long elapsed = Math.max(1, now - windowStart.getAndSet(now));
+            return new Window(elapsed, checkouts.sumThenReset(), waitNanos.sumThenReset(), holdNanos.sumThenReset(),
+                    timeouts.sumThenReset(), peakInUse.getAndSet(inUse.get()));
+        }
+
+    }
+
+    private record Window(long nanos, long checkouts, long waitNanos, long holdNanos, long timeouts, int peakInUse) {
+
+        double busy() {
+            return (double) holdNanos / nanos;
+        }
+
+        long meanWaitNanos() {
+            return checkouts == 0 ? 0 : waitNanos / checkouts;
+        }
+
+        boolean saturated(Duration targetWait) {
+            return timeouts > 0 || meanWaitNanos() > targetWait.toNanos();
+        }
+
+    }
+
+}
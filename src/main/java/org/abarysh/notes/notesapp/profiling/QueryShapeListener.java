@@ -0,0 +1,197 @@
+package org.abarysh.notes.notesapp.profiling;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.abarysh.notes.notesapp.config.QueryProfilerProperties;
+import org.abarysh.notes.notesapp.logging.SampledLogger;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.slf4j.event.Level;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every read sent to MongoDB and adds it up per {@linkplain QueryShapes query shape}.
+ * <p>
+ * Reads over {@code notes.query-profiler.slow-threshold} are logged, sampled so a slow collection scan under load
+ * does not flood the log. Command replies do not say how many documents a read examined or which plan it used,
+ * so the next execution of a shape that ran slow is explained with {@code executionStats} on a background thread,
+ * at most once per {@code notes.query-profiler.explain-interval} per shape. The explain reruns the read,
+ * which is why it is not done for every execution.
+ */
+@Slf4j
+@Component
+public class QueryShapeListener implements CommandListener {
+
+    static final String OTHER_SHAPES = "(other shapes)";
+
+    private final QueryProfilerProperties properties;
+    private final ObjectProvider<MongoClient> mongoClient;
+    private final SampledLogger slowLog;
+    private final Counter slowQueries;
+
+    private final Map<String, ShapeStats> shapes = new ConcurrentHashMap<>();
+    private final Map<Integer, String> pending = new ConcurrentHashMap<>();
+
+    /**
+     * One explain at a time and one waiting, anything more is dropped, explains are best effort.
+     */
+    private final ExecutorService explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1),
+            Thread.ofPlatform().name("query-explain").daemon(true).factory(),
+            new ThreadPoolExecutor.DiscardPolicy());
+
+    public QueryShapeListener(QueryProfilerProperties properties, ObjectProvider<MongoClient> mongoClient,
+                              MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.mongoClient = mongoClient;
+        this.slowLog = new SampledLogger(log, Level.WARN, properties.getSlowLogsPerSecond(), Duration.ofSeconds(1));
+        this.slowQueries = Counter.builder("notes.query-profiler.slow-queries")
+                .description("Reads slower than notes.query-profiler.slow-threshold")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        String shape = QueryShapes.shape(event.getCommandName(), event.getCommand());
+        if (shape == null) {
+            return;
+        }
+        pending.put(event.getRequestId(), shape);
+
+        ShapeStats stats = shapes.get(shape);
+        if (properties.isExplain() && stats != null && stats.claimExplain(properties.getExplainInterval().toNanos())) {
+            // the command document is only valid during this call
+            explain(event.getDatabaseName(), QueryShapes.explainCommand(event.getCommand()), stats);
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        String shape = pending.remove(event.getRequestId());
+        if (shape == null) {
+            return;
+        }
+        long nanos = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        long returned = returned(event.getResponse());
+        boolean slow = nanos >= properties.getSlowThreshold().toNanos();
+
+        ShapeStats stats = stats(shape);
+        stats.record(nanos, returned, slow);
+        if (slow) {
+            slowQueries.increment();
+            ShapeStats.Plan plan = stats.plan();
+            slowLog.log("Slow query {} ms, {} documents returned: {} [{}]",
+                    TimeUnit.NANOSECONDS.toMillis(nanos), returned, shape, plan == null ? "plan not known yet" : plan.summary());
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        pending.remove(event.getRequestId());
+    }
+
+    /**
+     * Shapes ordered by {@code order}, highest first.
+     */
+    public List<QueryShapeReport> top(int limit, Order order) {
+        return shapes.entrySet().stream()
+                .map(entry -> entry.getValue().report(entry.getKey()))
+                .sorted(order.comparator.reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    public void reset() {
+        shapes.clear();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        explainer.shutdownNow();
+    }
+
+    private ShapeStats stats(String shape) {
+        ShapeStats stats = shapes.get(shape);
+        if (stats != null) {
+            return stats;
+        }
+        // the size check races with other threads, the limit is approximate
+        String key = shapes.size() < properties.getMaxShapes() ? shape : OTHER_SHAPES;
+        return shapes.computeIfAbsent(key, k -> new ShapeStats());
+    }
+
+    private void explain(String database, BsonDocument command, ShapeStats stats) {
+        explainer.execute(() -> {
+            try {
+                BsonDocument explain = mongoClient.getObject().getDatabase(database)
+                        .runCommand(command, BsonDocument.class);
+                stats.plan(new ShapeStats.Plan(
+                        QueryShapes.planSummary(explain),
+                        stat(explain, "totalDocsExamined"),
+                        stat(explain, "totalKeysExamined"),
+                        stat(explain, "nReturned"),
+                        Instant.now()));
+            } catch (RuntimeException e) {
+                log.debug("Explain of {} failed", command, e);
+            }
+        });
+    }
+
+    private static Long stat(BsonDocument explain, String name) {
+        long value = QueryShapes.executionStat(explain, name);
+        return value < 0 ? null : value;
+    }
+
+    /**
+     * Documents in the first batch of a cursor reply, {@code n} of a count, values of a distinct.
+     */
+    private static long returned(BsonDocument response) {
+        BsonValue cursor = response.get("cursor");
+        if (cursor != null && cursor.isDocument() && cursor.asDocument().isArray("firstBatch")) {
+            return cursor.asDocument().getArray("firstBatch").size();
+        }
+        if (response.isNumber("n")) {
+            return response.getNumber("n").longValue();
+        }
+        if (response.isArray("values")) {
+            return response.getArray("values").size();
+        }
+        return -1;
+    }
+
+    public enum Order {
+        TOTAL(Comparator.comparingDouble(QueryShapeReport::getTotalMs)),
+        MEAN(Comparator.comparingDouble(QueryShapeReport::getMeanMs)),
+        MAX(Comparator.comparingDouble(QueryShapeReport::getMaxMs)),
+        SLOW(Comparator.comparingLong(QueryShapeReport::getSlowCount));
+
+        private final Comparator<QueryShapeReport> comparator;
+
+        Order(Comparator<QueryShapeReport> comparator) {
+            this.comparator = comparator;
+        }
+    }
+
+}
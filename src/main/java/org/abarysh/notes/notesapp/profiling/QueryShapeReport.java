@@ -0,0 +1,34 @@
+package org.abarysh.notes.notesapp.profiling;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * One query shape in {@code /actuator/slowqueries}. Plan and examined counts come from the last explain of the shape
+ * and are {@code null} until it ran slow once.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryShapeReport {
+
+    private String shape;
+    private long count;
+    private long slowCount;
+    private double totalMs;
+    private double meanMs;
+    private double maxMs;
+    private double meanReturned;
+
+    private String planSummary;
+    private Long docsExamined;
+    private Long keysExamined;
+    private Long returnedWhenExplained;
+    private Instant explainedAt;
+
+}
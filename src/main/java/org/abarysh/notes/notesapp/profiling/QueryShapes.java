@@ -0,0 +1,205 @@
+package org.abarysh.notes.notesapp.profiling;
+
+import lombok.experimental.UtilityClass;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Query shapes of MongoDB commands and plan summaries of their explain output.
+ * <p>
+ * A shape keeps what decides the plan and drops the values: filter and pipeline with every value replaced by {@code ?},
+ * sort as is, projected field names, the page size and the page depth as a power of ten
+ * ({@code skip 0}, {@code skip <100}, {@code skip <1000}, ...).
+ */
+@UtilityClass
+public class QueryShapes {
+
+    private static final Set<String> READ_COMMANDS = Set.of("find", "aggregate", "count", "distinct");
+
+    /**
+     * Sent by the driver with every command, explain must not get them.
+     */
+    private static final Set<String> DRIVER_FIELDS = Set.of("lsid", "txnNumber", "autocommit", "startTransaction",
+            "readConcern", "writeConcern", "$db", "$clusterTime", "$readPreference");
+
+    private static final BsonString PLACEHOLDER = new BsonString("?");
+
+    /**
+     * @return {@code null} for commands that are not reads
+     */
+    public String shape(String commandName, BsonDocument command) {
+        if (!READ_COMMANDS.contains(commandName)) {
+            return null;
+        }
+        StringBuilder shape = new StringBuilder()
+                .append(command.get(commandName).isString() ? command.getString(commandName).getValue() : "?")
+                .append(' ').append(commandName);
+        switch (commandName) {
+            case "find" -> {
+                shape.append(' ').append(normalize(command.getDocument("filter", new BsonDocument())).toJson());
+                if (command.containsKey("sort")) {
+                    shape.append(" sort ").append(json(command.get("sort")));
+                }
+                if (command.containsKey("projection")) {
+                    shape.append(" projection ").append(command.getDocument("projection").keySet());
+                }
+                long skip = command.containsKey("skip") ? command.getNumber("skip").longValue() : 0;
+                shape.append(" skip ").append(skipBucket(skip));
+                if (command.containsKey("limit")) {
+                    shape.append(" limit ").append(json(command.get("limit")));
+                }
+            }
+            case "aggregate" -> shape.append(' ').append(json(normalize(command.getArray("pipeline", new BsonArray()))));
+            case "count" -> shape.append(' ').append(normalize(command.getDocument("query", new BsonDocument())).toJson());
+            case "distinct" -> shape.append(' ').append(command.getString("key").getValue())
+                    .append(' ').append(normalize(command.getDocument("query", new BsonDocument())).toJson());
+            default -> {
+            }
+        }
+        return shape.toString();
+    }
+
+    /**
+     * Copy of a read command that can be sent wrapped in {@code explain}.
+     */
+    public BsonDocument explainCommand(BsonDocument command) {
+        BsonDocument explained = new BsonDocument();
+        for (Map.Entry<String, BsonValue> entry : command.entrySet()) {
+            if (!DRIVER_FIELDS.contains(entry.getKey())) {
+                explained.append(entry.getKey(), entry.getValue().clone());
+            }
+        }
+        return new BsonDocument("explain", explained).append("verbosity", new BsonString("executionStats"));
+    }
+
+    /**
+     * Leaf stages of the winning plan like MongoDB's {@code planSummary}, e.g. {@code IXSCAN { tenantId: 1, createdDate: 1 }},
+     * followed by {@code + SORT} when the plan sorts in memory. Works on find, aggregate and sharded explain output.
+     */
+    public String planSummary(BsonDocument explain) {
+        List<String> leaves = new ArrayList<>();
+        boolean[] sorts = {false};
+        BsonDocument winningPlan = find(explain, "winningPlan");
+        if (winningPlan == null) {
+            return "unknown";
+        }
+        collectStages(winningPlan, leaves, sorts);
+        String summary = leaves.isEmpty() ? "unknown" : String.join(", ", leaves);
+        return sorts[0] ? summary + " + SORT" : summary;
+    }
+
+    public long executionStat(BsonDocument explain, String name) {
+        BsonDocument stats = find(explain, "executionStats");
+        return stats != null && stats.isNumber(name) ? stats.getNumber(name).longValue() : -1;
+    }
+
+    private void collectStages(BsonDocument stage, List<String> leaves, boolean[] sorts) {
+        // classic plans nest stages in inputStage(s), SBE plans in queryPlan, sharded plans per shard
+        List<BsonDocument> children = new ArrayList<>();
+        for (String key : List.of("inputStage", "queryPlan", "winningPlan")) {
+            if (stage.isDocument(key)) {
+                children.add(stage.getDocument(key));
+            }
+        }
+        for (String key : List.of("inputStages", "shards")) {
+            if (stage.isArray(key)) {
+                stage.getArray(key).stream().filter(BsonValue::isDocument).map(BsonValue::asDocument).forEach(children::add);
+            }
+        }
+
+        if (stage.isString("stage")) {
+            String name = stage.getString("stage").getValue();
+            if (name.equals("SORT")) {
+                sorts[0] = true;
+            }
+            if (children.isEmpty()) {
+                leaves.add(stage.isDocument("keyPattern")
+                        ? name + " " + stage.getDocument("keyPattern").toJson().replace("\"", "")
+                        : name);
+            }
+        }
+        children.forEach(child -> collectStages(child, leaves, sorts));
+    }
+
+    /**
+     * First document stored under {@code key} anywhere in {@code document}, depth first.
+     */
+    private BsonDocument find(BsonValue value, String key) {
+        if (value.isDocument()) {
+            BsonDocument document = value.asDocument();
+            if (document.isDocument(key)) {
+                return document.getDocument(key);
+            }
+            for (BsonValue child : document.values()) {
+                BsonDocument found = find(child, key);
+                if (found != null) {
+                    return found;
+                }
+            }
+        } else if (value.isArray()) {
+            for (BsonValue child : value.asArray()) {
+                BsonDocument found = find(child, key);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    private BsonDocument normalize(BsonDocument document) {
+        BsonDocument normalized = new BsonDocument();
+        for (Map.Entry<String, BsonValue> entry : document.entrySet()) {
+            normalized.append(entry.getKey(), normalize(entry.getValue()));
+        }
+        return normalized;
+    }
+
+    /**
+     * Arrays of documents ({@code $and}, pipelines) keep their structure, any other value becomes {@code ?}.
+     */
+    private BsonValue normalize(BsonValue value) {
+        if (value.isDocument()) {
+            return normalize(value.asDocument());
+        }
+        if (value.isArray() && !value.asArray().isEmpty() && value.asArray().stream().allMatch(BsonValue::isDocument)) {
+            BsonArray normalized = new BsonArray();
+            value.asArray().forEach(element -> normalized.add(normalize(element.asDocument())));
+            return normalized;
+        }
+        return PLACEHOLDER;
+    }
+
+    private String json(BsonValue value) {
+        if (value.isDocument()) {
+            return value.asDocument().toJson();
+        }
+        if (value.isArray()) {
+            return value.asArray().stream().map(QueryShapes::json).collect(Collectors.joining(", ", "[", "]"));
+        }
+        if (value.isNumber()) {
+            return Long.toString(value.asNumber().longValue());
+        }
+        return value.isString() ? value.asString().getValue() : "?";
+    }
+
+    private String skipBucket(long skip) {
+        if (skip == 0) {
+            return "0";
+        }
+        long bound = 10;
+        while (skip >= bound && bound < 1_000_000) {
+            bound *= 10;
+        }
+        return skip >= bound ? ">=" + bound : "<" + bound;
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.abarysh.notes.notesapp.profiling;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executions of one query shape since startup or the last reset.
+ */
+class ShapeStats {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder slowCount = new LongAdder();
+    private final LongAdder returned = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Set by a slow execution, the next execution of the shape is explained.
+     */
+    private final AtomicBoolean explainDue = new AtomicBoolean();
+    private volatile long lastExplainNanos;
+
+    private volatile Plan plan;
+
+    void record(long nanos, long returnedDocuments, boolean slow) {
+        count.increment();
+        totalNanos.add(nanos);
+        returned.add(Math.max(0, returnedDocuments));
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        if (slow) {
+            slowCount.increment();
+            explainDue.set(true);
+        }
+    }
+
+    /**
+     * {@code true} for exactly one caller once a slow execution asked for it and the interval since the last explain passed.
+     */
+    boolean claimExplain(long intervalNanos) {
+        long now = System.nanoTime();
+        if (!explainDue.get() || (lastExplainNanos != 0 && now - lastExplainNanos < intervalNanos)) {
+            return false;
+        }
+        if (!explainDue.compareAndSet(true, false)) {
+            return false;
+        }
+        lastExplainNanos = now;
+        return true;
+    }
+
+    void plan(Plan plan) {
+        this.plan = plan;
+    }
+
+    Plan plan() {
+        return plan;
+    }
+
+    QueryShapeReport report(String shape) {
+        long executions = count.sum();
+        Plan current = plan;
+        return QueryShapeReport.builder()
+                .shape(shape)
+                .count(executions)
+                .slowCount(slowCount.sum())
+                .totalMs(millis(totalNanos.sum()))
+                .meanMs(executions == 0 ? 0 : millis(totalNanos.sum()) / executions)
+                .maxMs(millis(maxNanos.get()))
+                .meanReturned(executions == 0 ? 0 : (double) returned.sum() / executions)
+                .planSummary(current == null ? null : current.summary())
+                .docsExamined(current == null ? null : current.docsExamined())
+                .keysExamined(current == null ? null : current.keysExamined())
+                .returnedWhenExplained(current == null ? null : current.returned())
+                .explainedAt(current == null ? null : current.explainedAt())
+                .build();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    record Plan(String summary, Long docsExamined, Long keysExamined, Long returned, Instant explainedAt) {
+    }
+
+}
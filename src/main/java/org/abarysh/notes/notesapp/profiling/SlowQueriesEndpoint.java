@@ -0,0 +1,37 @@
+package org.abarysh.notes.notesapp.profiling;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * {@code GET /actuator/slowqueries?limit=20&order=TOTAL} lists the query shapes that cost the most,
+ * {@code DELETE /actuator/slowqueries} starts over. The application has no authentication, so the endpoint is
+ * {@code read-only} by default and the reset has to be allowed with {@code management.endpoint.slowqueries.access}.
+ */
+@Component
+@Endpoint(id = "slowqueries")
+@RequiredArgsConstructor
+public class SlowQueriesEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final QueryShapeListener listener;
+
+    @ReadOperation
+    public List<QueryShapeReport> slowQueries(@Nullable Integer limit, @Nullable QueryShapeListener.Order order) {
+        return listener.top(limit == null ? DEFAULT_LIMIT : Math.max(0, limit),
+                order == null ? QueryShapeListener.Order.TOTAL : order);
+    }
+
+    @DeleteOperation
+    public void reset() {
+        listener.reset();
+    }
+
+}
@@ -0,0 +1,80 @@
+package org.abarysh.notes.notesapp.ratelimit;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limit on requests in flight that adapts to latency (additive increase, multiplicative decrease).
+ * <p>
+ * A request slower than the target shrinks the limit by 10%, at most once per decrease interval so that a burst
+ * of slow requests counts as one signal rather than collapsing the limit. A fast request grows it by one with probability
+ * {@code 1 / limit}, so roughly once per limit's worth of fast requests. Under overload the limit drops towards
+ * the number of requests the backend serves within the target and the rest is refused immediately instead of queueing.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final long decreaseIntervalNanos;
+
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong nextDecrease = new AtomicLong(Long.MIN_VALUE);
+
+    public AdaptiveConcurrencyLimit(int minLimit, int maxLimit, long targetLatencyNanos, long decreaseIntervalNanos) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("limits must satisfy 1 <= minLimit <= maxLimit");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatencyNanos;
+        this.decreaseIntervalNanos = decreaseIntervalNanos;
+        this.limit = new AtomicInteger(maxLimit);
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Ends a request whose latency adjusts the limit, {@code nowNanos} is the {@link System#nanoTime()} it ended at.
+     */
+    public void release(long latencyNanos, long nowNanos) {
+        inFlight.decrementAndGet();
+        if (latencyNanos > targetLatencyNanos) {
+            long next = nextDecrease.get();
+            if ((next == Long.MIN_VALUE || nowNanos - next >= 0)
+                    && nextDecrease.compareAndSet(next, nowNanos + decreaseIntervalNanos)) {
+                limit.updateAndGet(current -> Math.max(minLimit, (int) (current * 0.9)));
+            }
+        } else if (ThreadLocalRandom.current().nextInt(limit.get()) == 0) {
+            limit.updateAndGet(current -> Math.min(maxLimit, current + 1));
+        }
+    }
+
+    /**
+     * Ends a request without taking its latency into account.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+}
@@ -0,0 +1,241 @@
+package org.abarysh.notes.notesapp.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.abarysh.notes.notesapp.config.RateLimitProperties;
+import org.abarysh.notes.notesapp.exсeptions.ApiError;
+import org.abarysh.notes.notesapp.tenant.TenantInterceptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Protects the API in two steps before a request reaches the controllers.
+ * <ol>
+ *     <li>Each client has a token bucket per endpoint class, so a client draining its stats budget can still list notes.
+ *     A client is identified by its address, taken from {@code notes.rate-limit.client-address-header} behind a proxy,
+ *     and optionally its {@code X-Tenant-Id}, see {@link RateLimitProperties.ClientKey}. At most
+ *     {@code notes.rate-limit.max-buckets} buckets are kept. Over budget the request gets 429 with {@code Retry-After}.</li>
+ *     <li>Requests in flight are capped by an {@link AdaptiveConcurrencyLimit}, above it the request gets 503 right away
+ *     instead of adding to the queue in front of MongoDB. Stats of large notes are slow by nature and already
+ *     throttled per client, their latency does not adjust the limit.</li>
+ * </ol>
+ * Outcomes are counted in {@code notes.ratelimit.requests} tagged with endpoint and outcome.
+ */
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Pattern STATS_PATH = Pattern.compile("/api/notes/[^/]+/stats");
+    private static final String LIST_PATH = "/api/notes";
+    private static final String OVERFLOW_CLIENT = "overflow";
+
+    private final RateLimitProperties properties;
+    private final ObjectMapper objectMapper;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<Endpoint, Map<Outcome, Counter>> counters = new EnumMap<>(Endpoint.class);
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.concurrencyLimit = new AdaptiveConcurrencyLimit(properties.getMinConcurrent(), properties.getMaxConcurrent(),
+                properties.getTargetLatency().toNanos(), properties.getDecreaseInterval().toNanos());
+
+        for (Endpoint endpoint : Endpoint.values()) {
+            Map<Outcome, Counter> byOutcome = new EnumMap<>(Outcome.class);
+            for (Outcome outcome : Outcome.values()) {
+                byOutcome.put(outcome, Counter.builder("notes.ratelimit.requests")
+                        .tag("endpoint", endpoint.tag)
+                        .tag("outcome", outcome.tag)
+                        .register(meterRegistry));
+            }
+            counters.put(endpoint, byOutcome);
+        }
+        Gauge.builder("notes.ratelimit.concurrency.limit", concurrencyLimit, AdaptiveConcurrencyLimit::getLimit)
+                .register(meterRegistry);
+        Gauge.builder("notes.ratelimit.concurrency.in-flight", concurrencyLimit, AdaptiveConcurrencyLimit::getInFlight)
+                .register(meterRegistry);
+        Gauge.builder("notes.ratelimit.buckets", buckets, Map::size)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Endpoint endpoint = classify(request);
+        RateLimitProperties.Budget budget = budget(endpoint);
+        long now = System.nanoTime();
+
+        TokenBucket bucket = bucket(client(request), endpoint, budget);
+        long wait = bucket.tryAcquire(Math.min(cost(endpoint, request), budget.getBurst()), now);
+        if (wait > 0) {
+            counters.get(endpoint).get(Outcome.LIMITED).increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + 999_999_999))));
+            reject(request, response, HttpStatus.TOO_MANY_REQUESTS, "Rate limit exceeded, retry later");
+            return;
+        }
+
+        if (!concurrencyLimit.tryAcquire()) {
+            counters.get(endpoint).get(Outcome.SHED).increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            reject(request, response, HttpStatus.SERVICE_UNAVAILABLE, "Server is overloaded, retry later");
+            return;
+        }
+
+        counters.get(endpoint).get(Outcome.ALLOWED).increment();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (endpoint == Endpoint.STATS) {
+                concurrencyLimit.release();
+            } else {
+                long end = System.nanoTime();
+                concurrencyLimit.release(end - now, end);
+            }
+        }
+    }
+
+    /**
+     * Drops buckets that have refilled completely, a new one is created on the client's next request.
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.isIdle(now));
+    }
+
+    private TokenBucket bucket(String client, Endpoint endpoint, RateLimitProperties.Budget budget) {
+        TokenBucket bucket = buckets.get(client + '|' + endpoint.tag);
+        if (bucket != null) {
+            return bucket;
+        }
+        // past the limit new clients share a bucket rather than growing the map until the next eviction
+        String key = buckets.size() < properties.getMaxBuckets() ? client : OVERFLOW_CLIENT;
+        return buckets.computeIfAbsent(key + '|' + endpoint.tag,
+                ignored -> new TokenBucket(budget.getPermitsPerSecond(), budget.getBurst()));
+    }
+
+    private Endpoint classify(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return Endpoint.OTHER;
+        }
+        String path = request.getRequestURI();
+        if (LIST_PATH.equals(path)) {
+            return Endpoint.LIST;
+        }
+        if (STATS_PATH.matcher(path).matches()) {
+            return Endpoint.STATS;
+        }
+        return Endpoint.OTHER;
+    }
+
+    private RateLimitProperties.Budget budget(Endpoint endpoint) {
+        return switch (endpoint) {
+            case STATS -> properties.getStats();
+            case LIST -> properties.getList();
+            case OTHER -> properties.getOther();
+        };
+    }
+
+    /**
+     * Deep pages make MongoDB walk and skip every note before them, so they cost more.
+     */
+    private long cost(Endpoint endpoint, HttpServletRequest request) {
+        if (endpoint != Endpoint.LIST) {
+            return 1;
+        }
+        long skipped = (long) intParam(request, "page", 0) * intParam(request, "size", 20);
+        return 1 + Math.max(0, skipped) / properties.getDeepPageSkip();
+    }
+
+    private int intParam(HttpServletRequest request, String name, int defaultValue) {
+        try {
+            String value = request.getParameter(name);
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            // rejected with 400 by the controller
+            return defaultValue;
+        }
+    }
+
+    private String client(HttpServletRequest request) {
+        String address = address(request);
+        if (properties.getClientKey() == RateLimitProperties.ClientKey.ADDRESS) {
+            return address;
+        }
+        String tenantId = request.getHeader(TenantInterceptor.TENANT_HEADER);
+        // malformed tenants are rejected by the interceptor, they share the client's bucket for requests without one
+        return StringUtils.hasText(tenantId) && TenantInterceptor.isValid(tenantId.trim())
+                ? address + '|' + tenantId.trim()
+                : address;
+    }
+
+    private String address(HttpServletRequest request) {
+        String header = properties.getClientAddressHeader();
+        String forwarded = StringUtils.hasText(header) ? request.getHeader(header) : null;
+        if (!StringUtils.hasText(forwarded)) {
+            return request.getRemoteAddr();
+        }
+        String last = forwarded.substring(forwarded.lastIndexOf(',') + 1).trim();
+        return last.isEmpty() ? request.getRemoteAddr() : last;
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        log.debug("{} {} from {}: {}", request.getMethod(), request.getRequestURI(), client(request), status.value());
+        ApiError body = ApiError.builder()
+                .occurredAt(Instant.now())
+                .status(status.value())
+                .error(status.getReasonPhrase())
+                .message(message)
+                .path(request.getRequestURI())
+                .build();
+
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    private enum Endpoint {
+        STATS("stats"),
+        LIST("list"),
+        OTHER("other");
+
+        private final String tag;
+
+        Endpoint(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private enum Outcome {
+        ALLOWED("allowed"),
+        LIMITED("limited"),
+        SHED("shed");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package org.abarysh.notes.notesapp.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in its GCRA form: instead of a token count and a refill time the whole state is the
+ * theoretical arrival time of the next request, a single {@code long} updated with compare-and-set.
+ * <p>
+ * Taking {@code cost} tokens pushes that time {@code cost} emission intervals forward,
+ * a request is refused when the time would end up more than {@code burst} intervals ahead of now.
+ */
+public class TokenBucket {
+
+    private final long emissionNanos;
+    private final long capacityNanos;
+
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    public TokenBucket(double permitsPerSecond, long burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("permitsPerSecond and burst must be positive");
+        }
+        this.emissionNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.capacityNanos = burst * emissionNanos;
+    }
+
+    /**
+     * Takes {@code cost} tokens if available.
+     *
+     * @return 0 when the tokens were taken, otherwise nanoseconds until they will be available
+     */
+    public long tryAcquire(long cost, long nowNanos) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long next = Math.max(arrival, nowNanos) + cost * emissionNanos;
+            long wait = next - nowNanos - capacityNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Full again, the bucket carries no state worth keeping.
+     */
+    public boolean isIdle(long nowNanos) {
+        long arrival = theoreticalArrival.get();
+        return arrival == Long.MIN_VALUE || arrival - nowNanos <= 0;
+    }
+
+}
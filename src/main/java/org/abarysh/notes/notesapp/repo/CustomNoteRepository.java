@@ -1,14 +1,163 @@
 package org.abarysh.notes.notesapp.repo;
 
+import com.mongodb.WriteConcern;
+import org.abarysh.notes.notesapp.domain.dto.NoteFilter;
 import org.abarysh.notes.notesapp.domain.entity.Note;
+import org.abarysh.notes.notesapp.domain.enums.HistogramInterval;
+import org.abarysh.notes.notesapp.domain.enums.NoteField;
 import org.abarysh.notes.notesapp.domain.enums.NoteTag;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+/**
+ * Every query is scoped to {@link org.abarysh.notes.notesapp.tenant.TenantContext#current()}, which also makes it
+ * target only the shards of that tenant and makes it use the indexes leading with tenantId.
+ * Only the archive job works across tenants.
+ */
 public interface CustomNoteRepository {
 
+    /**
+     * Cold collection that old notes are moved to, see {@link #archiveCreatedBefore(Instant, int)}.
+     */
+    String ARCHIVE_COLLECTION = "notes_archive";
+
+    /**
+     * One document per completed data migration, see {@link #markMigrated(String)}.
+     */
+    String MIGRATIONS_COLLECTION = "migrations";
+
+    Optional<Note> findById(String id);
+
+    /**
+     * Replaces the stored note only if it is still at {@code revision}.
+     *
+     * @return {@code false} if the note was updated meanwhile or is gone
+     */
+    boolean replaceIfRevision(Note note, int revision);
+
+    /**
+     * Inserts the note into the hot collection only if no note with its id is there yet,
+     * restoring an archived note this way lets just one of concurrent updates win.
+     *
+     * @return {@code false} if a note with the same id was already saved
+     */
+    boolean insertIfAbsent(Note note);
+
+    /**
+     * @return {@code false} if the note was already gone
+     */
+    boolean delete(Note note);
+
+    /**
+     * Notes of the current tenant in both the hot and the archive collection.
+     */
+    long countTenantNotes();
+
     Page<Note> findAllFiltered(Set<NoteTag> tags, Pageable pageable);
 
+    /**
+     * Same as {@link #findAllFiltered(Set, Pageable)} with a createdDate range, loads only the given fields,
+     * {@code null} fields load everything.
+     */
+    Page<Note> findAllFiltered(NoteFilter filter, Set<NoteField> fields, Pageable pageable);
+
+    /**
+     * Number of matching notes per day, week or month of createdDate, in ascending order, empty buckets are skipped.
+     */
+    Map<Instant, Long> countByCreatedDate(NoteFilter filter, HistogramInterval interval);
+
+    Optional<Note> findProjectedById(String id, Set<NoteField> fields);
+
+    /**
+     * Single {@code $in} query, the result order is not defined and missing ids are simply absent.
+     */
+    List<Note> findAllByIds(Collection<String> ids, Set<NoteField> fields);
+
+    /**
+     * Notes sharing at least one LSH band key, with only id, title, createdDate and minHash loaded.
+     */
+    List<Note> findDuplicateCandidates(Collection<Long> lshBands, String excludeId);
+
+    /**
+     * Looks the note up in the archive only, {@code null} fields load everything.
+     */
+    Optional<Note> findArchivedById(String id, Set<NoteField> fields);
+
+    List<Note> findAllArchivedByIds(Collection<String> ids, Set<NoteField> fields);
+
+    boolean deleteArchivedById(String id);
+
+    /**
+     * Moves up to {@code batchSize} of the oldest notes created before {@code cutoff} into the archive.
+     * Notes are upserted into the archive before they are removed, so a batch interrupted halfway is copied again next time.
+     * A note is only removed if its revision and preview are still the ones read, one updated or deleted in between
+     * keeps its current state and loses its archived copy. Two concurrent calls would remove each other's copies,
+     * so only one instance may call this at a time.
+     *
+     * @return number of notes moved, less than {@code batchSize} once nothing is left to archive or notes changed
+     */
+    int archiveCreatedBefore(Instant cutoff, int batchSize);
+
+    /**
+     * Inserts new notes, unordered and with the given write concern. Notes that already exist are skipped,
+     * so a batch that failed halfway can be inserted again.
+     */
+    void insertAll(List<Note> notes, WriteConcern writeConcern);
+
+    /**
+     * Fast metadata-based count of all notes of all tenants, hot and archived.
+     */
+    long estimateNoteCount();
+
+    /**
+     * Streams the ids of all notes of all tenants, hot and archived, with a collection scan that only returns {@code _id}.
+     * A note moved between the collections during the scan is still reported, some ids may be reported twice.
+     */
+    void forEachNoteId(Consumer<String> consumer);
+
+    /**
+     * Notes of all tenants in the hot collection saved before notes had a preview, with only id, tenantId and text loaded.
+     * The stream holds a cursor and has to be closed.
+     */
+    Stream<Note> streamWithoutPreview();
+
+    /**
+     * Sets the stored preview of each note, matched by tenantId and id, unless the note got one in the meantime.
+     */
+    void updatePreviews(List<Note> notes);
+
+    /**
+     * Assigns {@code tenantId} to hot and archived notes saved before notes had a tenant.
+     *
+     * @return number of notes updated
+     */
+    long assignTenantWhereMissing(String tenantId);
+
+    /**
+     * Whether a one-off data migration of this name was recorded as completed, by any instance.
+     */
+    boolean isMigrated(String migration);
+
+    void markMigrated(String migration);
+
+    /**
+     * TTL index purging archived notes once their createdDate is older than {@code ttl}.
+     */
+    void expireArchivedAfter(Duration ttl);
+
+    /**
+     * Index on the tenant of archived notes, which {@link #countTenantNotes()} would otherwise count with a collection scan.
+     */
+    void indexArchiveByTenant();
+
 }
@@ -1,35 +1,95 @@
 package org.abarysh.notes.notesapp.repo;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.model.InsertManyOptions;
 import lombok.RequiredArgsConstructor;
+import org.abarysh.notes.notesapp.domain.dto.NoteFilter;
 import org.abarysh.notes.notesapp.domain.entity.Note;
+import org.abarysh.notes.notesapp.domain.enums.HistogramInterval;
+import org.abarysh.notes.notesapp.domain.enums.NoteField;
 import org.abarysh.notes.notesapp.domain.enums.NoteTag;
+import org.abarysh.notes.notesapp.tenant.TenantContext;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
-import java.util.Set;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Repository
 @RequiredArgsConstructor
 public class CustomNoteRepositoryImpl implements CustomNoteRepository {
 
+    private static final int MAX_DUPLICATE_CANDIDATES = 1000;
+
     private final MongoTemplate mongoTemplate;
 
+    @Override
+    public Optional<Note> findById(String id) {
+        return Optional.ofNullable(mongoTemplate.findOne(new Query(byId(id)), Note.class));
+    }
+
+    @Override
+    public boolean replaceIfRevision(Note note, int revision) {
+        Criteria current = byId(note.getId()).and("revision");
+        // notes saved before revisions were counted have none and are at revision 1
+        Query query = new Query(revision == 1 ? current.in(1, null) : current.is(revision));
+        return mongoTemplate.replace(query, note).getMatchedCount() > 0;
+    }
+
+    @Override
+    public boolean insertIfAbsent(Note note) {
+        try {
+            mongoTemplate.insert(note);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean delete(Note note) {
+        return mongoTemplate.remove(new Query(byId(note.getId())), Note.class)
+                .getDeletedCount() > 0;
+    }
+
+    @Override
+    public long countTenantNotes() {
+        return mongoTemplate.count(new Query(tenant()), Note.class)
+                + mongoTemplate.count(new Query(tenant()), ARCHIVE_COLLECTION);
+    }
+
     @Override
     public Page<Note> findAllFiltered(Set<NoteTag> tags, Pageable pageable) {
+        return findAllFiltered(NoteFilter.builder().tags(tags).build(), null, pageable);
+    }
+
+    @Override
+    public Page<Note> findAllFiltered(NoteFilter filter, Set<NoteField> fields, Pageable pageable) {
         Query query = new Query()
                 .with(pageable)
                 .with(Sort.by(Sort.Direction.DESC, "createdDate"));
 
-        if (tags != null && !tags.isEmpty()) {
-            query.addCriteria(Criteria.where("tags").in(tags));
-        }
+        criteria(filter).forEach(query::addCriteria);
+        project(query, fields);
 
         List<Note> content = mongoTemplate.find(query, Note.class);
         long total = mongoTemplate.count(Query.of(query).limit(-1).skip(-1), Note.class);
@@ -37,4 +97,257 @@ public class CustomNoteRepositoryImpl implements CustomNoteRepository {
         return new PageImpl<>(content, pageable, total);
     }
 
+    @Override
+    public Map<Instant, Long> countByCreatedDate(NoteFilter filter, HistogramInterval interval) {
+        Document dateTrunc = new Document("date", "$createdDate")
+                .append("unit", interval.getUnit())
+                .append("timezone", "UTC");
+        if (interval == HistogramInterval.WEEK) {
+            dateTrunc.append("startOfWeek", "monday");
+        }
+
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(new Criteria().andOperator(criteria(filter))));
+        stages.add(context -> new Document("$group", new Document("_id", new Document("$dateTrunc", dateTrunc))
+                .append("count", new Document("$sum", 1))));
+        stages.add(context -> new Document("$sort", new Document("_id", 1)));
+
+        Map<Instant, Long> buckets = new LinkedHashMap<>();
+        mongoTemplate.aggregate(Aggregation.newAggregation(stages), Note.class, Document.class)
+                .forEach(bucket -> buckets.put(bucket.getDate("_id").toInstant(), ((Number) bucket.get("count")).longValue()));
+
+        return buckets;
+    }
+
+    @Override
+    public Optional<Note> findProjectedById(String id, Set<NoteField> fields) {
+        Query query = new Query(byId(id));
+        project(query, fields);
+
+        return Optional.ofNullable(mongoTemplate.findOne(query, Note.class));
+    }
+
+    @Override
+    public List<Note> findAllByIds(Collection<String> ids, Set<NoteField> fields) {
+        Query query = new Query(tenant().and("id").in(ids));
+        project(query, fields);
+
+        return mongoTemplate.find(query, Note.class);
+    }
+
+    @Override
+    public List<Note> findDuplicateCandidates(Collection<Long> lshBands, String excludeId) {
+        if (lshBands.isEmpty()) {
+            return List.of();
+        }
+
+        Query query = new Query(tenant().and("lshBands").in(lshBands))
+                .limit(MAX_DUPLICATE_CANDIDATES);
+        if (excludeId != null) {
+            query.addCriteria(Criteria.where("id").ne(excludeId));
+        }
+        query.fields().include("id", "title", "createdDate", "minHash");
+
+        return mongoTemplate.find(query, Note.class);
+    }
+
+    @Override
+    public Optional<Note> findArchivedById(String id, Set<NoteField> fields) {
+        Query query = new Query(byId(id));
+        project(query, fields);
+
+        return Optional.ofNullable(mongoTemplate.findOne(query, Note.class, ARCHIVE_COLLECTION));
+    }
+
+    @Override
+    public List<Note> findAllArchivedByIds(Collection<String> ids, Set<NoteField> fields) {
+        Query query = new Query(tenant().and("id").in(ids));
+        project(query, fields);
+
+        return mongoTemplate.find(query, Note.class, ARCHIVE_COLLECTION);
+    }
+
+    @Override
+    public boolean deleteArchivedById(String id) {
+        return mongoTemplate.remove(new Query(byId(id)), ARCHIVE_COLLECTION)
+                .getDeletedCount() > 0;
+    }
+
+    @Override
+    public int archiveCreatedBefore(Instant cutoff, int batchSize) {
+        Query query = new Query(Criteria.where("createdDate").lt(cutoff))
+                .with(Sort.by(Sort.Direction.ASC, "createdDate"))
+                .limit(batchSize);
+        List<Note> batch = mongoTemplate.find(query, Note.class);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        BulkOperations archive = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Note.class, ARCHIVE_COLLECTION);
+        for (Note note : batch) {
+            archive.replaceOne(new Query(Criteria.where("id").is(note.getId())), note, FindAndReplaceOptions.options().upsert());
+        }
+        archive.execute();
+
+        // a note updated or deleted since it was read stays as it is, and its archived copy, now stale, is dropped
+        int moved = 0;
+        List<String> changed = new ArrayList<>();
+        for (Note note : batch) {
+            Query unchanged = new Query(Criteria.where("id").is(note.getId())
+                    .and("revision").is(note.getRevision())
+                    .and("preview").is(note.getPreview()));
+            if (mongoTemplate.remove(unchanged, Note.class).getDeletedCount() > 0) {
+                moved++;
+            } else {
+                changed.add(note.getId());
+            }
+        }
+        if (!changed.isEmpty()) {
+            mongoTemplate.remove(new Query(Criteria.where("id").in(changed)), ARCHIVE_COLLECTION);
+        }
+
+        return moved;
+    }
+
+    @Override
+    public void insertAll(List<Note> notes, WriteConcern writeConcern) {
+        List<Document> documents = new ArrayList<>(notes.size());
+        for (Note note : notes) {
+            Document document = new Document();
+            mongoTemplate.getConverter().write(note, document);
+            documents.add(document);
+        }
+        try {
+            mongoTemplate.getCollection(mongoTemplate.getCollectionName(Note.class))
+                    .withWriteConcern(writeConcern)
+                    .insertMany(documents, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            boolean onlyDuplicates = e.getWriteConcernError() == null && e.getWriteErrors().stream()
+                    .allMatch(error -> ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY);
+            if (!onlyDuplicates) {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public long estimateNoteCount() {
+        return mongoTemplate.estimatedCount(Note.class) + mongoTemplate.estimatedCount(ARCHIVE_COLLECTION);
+    }
+
+    @Override
+    public void forEachNoteId(Consumer<String> consumer) {
+        Query query = new Query();
+        query.fields().include("id");
+
+        String hot = mongoTemplate.getCollectionName(Note.class);
+        // a note is copied before it is removed in both directions, so one missed by a pass
+        // was already in the other collection when the next pass started; the hot collection is the smaller one
+        streamIds(query, hot, consumer);
+        streamIds(query, ARCHIVE_COLLECTION, consumer);
+        streamIds(query, hot, consumer);
+    }
+
+    private void streamIds(Query query, String collection, Consumer<String> consumer) {
+        try (Stream<Note> notes = mongoTemplate.stream(query, Note.class, collection)) {
+            notes.forEach(note -> consumer.accept(note.getId()));
+        }
+    }
+
+    @Override
+    public Stream<Note> streamWithoutPreview() {
+        Query query = new Query(Criteria.where("preview").exists(false));
+        query.fields().include("id", "tenantId", "text");
+        return mongoTemplate.stream(query, Note.class);
+    }
+
+    @Override
+    public void updatePreviews(List<Note> notes) {
+        if (notes.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Note.class);
+        for (Note note : notes) {
+            // a save since the note was read stored the preview of the new text
+            bulk.updateOne(new Query(Criteria.where("tenantId").is(note.getTenantId()).and("id").is(note.getId())
+                            .and("preview").exists(false)),
+                    new Update().set("preview", note.getPreview()));
+        }
+        bulk.execute();
+    }
+
+    @Override
+    public long assignTenantWhereMissing(String tenantId) {
+        Query missing = new Query(Criteria.where("tenantId").exists(false));
+        Update update = new Update().set("tenantId", tenantId);
+        return mongoTemplate.updateMulti(missing, update, Note.class).getModifiedCount()
+                + mongoTemplate.updateMulti(missing, update, ARCHIVE_COLLECTION).getModifiedCount();
+    }
+
+    @Override
+    public boolean isMigrated(String migration) {
+        return mongoTemplate.exists(new Query(Criteria.where("_id").is(migration)), MIGRATIONS_COLLECTION);
+    }
+
+    @Override
+    public void markMigrated(String migration) {
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(migration)),
+                new Update().set("completedDate", Instant.now()), MIGRATIONS_COLLECTION);
+    }
+
+    @Override
+    public void expireArchivedAfter(Duration ttl) {
+        mongoTemplate.indexOps(ARCHIVE_COLLECTION).ensureIndex(new Index()
+                .on("createdDate", Sort.Direction.ASC)
+                .named("createdDate_ttl")
+                .expire(ttl));
+    }
+
+    @Override
+    public void indexArchiveByTenant() {
+        mongoTemplate.indexOps(ARCHIVE_COLLECTION).ensureIndex(new Index()
+                .on("tenantId", Sort.Direction.ASC)
+                .named("tenantId"));
+    }
+
+    private Criteria tenant() {
+        return Criteria.where("tenantId").is(TenantContext.current());
+    }
+
+    private Criteria byId(String id) {
+        return tenant().and("id").is(id);
+    }
+
+    private List<Criteria> criteria(NoteFilter filter) {
+        List<Criteria> criteria = new ArrayList<>();
+        criteria.add(tenant());
+        if (filter == null) {
+            return criteria;
+        }
+
+        if (filter.getTags() != null && !filter.getTags().isEmpty()) {
+            criteria.add(Criteria.where("tags").in(filter.getTags()));
+        }
+        if (filter.getFrom() != null || filter.getTo() != null) {
+            Criteria createdDate = Criteria.where("createdDate");
+            if (filter.getFrom() != null) {
+                createdDate.gte(filter.getFrom());
+            }
+            if (filter.getTo() != null) {
+                createdDate.lt(filter.getTo());
+            }
+            criteria.add(createdDate);
+        }
+        return criteria;
+    }
+
+    private void project(Query query, Set<NoteField> fields) {
+        if (fields == null) {
+            return;
+        }
+        query.fields().include(fields.stream()
+                .map(NoteField::getProperty)
+                .toArray(String[]::new));
+    }
+
 }
@@ -1,13 +1,18 @@
 package org.abarysh.notes.notesapp.repo;
 
 import org.abarysh.notes.notesapp.domain.entity.Note;
-import org.abarysh.notes.notesapp.domain.enums.NoteTag;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.repository.Repository;
 
-import java.util.Set;
+import java.util.List;
 
-public interface NoteRepository extends MongoRepository<Note, String>, CustomNoteRepository {
+/**
+ * Exposes only the CRUD methods that cannot leak notes of another tenant: saves write the tenant stored on the note,
+ * every lookup comes from {@link CustomNoteRepository} and is scoped to the current tenant.
+ */
+public interface NoteRepository extends Repository<Note, String>, CustomNoteRepository {
+
+    <S extends Note> S save(S note);
+
+    <S extends Note> List<S> saveAll(Iterable<S> notes);
 
 }
@@ -0,0 +1,39 @@
+package org.abarysh.notes.notesapp.repo;
+
+import org.abarysh.notes.notesapp.domain.entity.NoteRevision;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Revisions of the notes of {@link org.abarysh.notes.notesapp.tenant.TenantContext#current()}.
+ */
+public interface NoteRevisionRepository {
+
+    boolean exists(String noteId, int revision);
+
+    /**
+     * Inserts the revisions unordered, revisions that already exist are skipped.
+     */
+    void insertAll(List<NoteRevision> revisions);
+
+    /**
+     * The snapshot with the highest revision not above {@code revision}.
+     */
+    Optional<NoteRevision> findLatestSnapshot(String noteId, int revision);
+
+    /**
+     * Revisions {@code from} to {@code to} inclusive, in ascending order.
+     */
+    List<NoteRevision> findRange(String noteId, int from, int to);
+
+    /**
+     * Newest first, without title, tags, text and edits.
+     */
+    Page<NoteRevision> findAllMetadata(String noteId, Pageable pageable);
+
+    void deleteAll(String noteId);
+
+}
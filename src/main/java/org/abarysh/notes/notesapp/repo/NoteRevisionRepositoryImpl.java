@@ -0,0 +1,90 @@
+package org.abarysh.notes.notesapp.repo;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.model.InsertManyOptions;
+import lombok.RequiredArgsConstructor;
+import org.abarysh.notes.notesapp.domain.entity.NoteRevision;
+import org.abarysh.notes.notesapp.tenant.TenantContext;
+import org.bson.Document;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class NoteRevisionRepositoryImpl implements NoteRevisionRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean exists(String noteId, int revision) {
+        return mongoTemplate.exists(new Query(byNoteId(noteId).and("revision").is(revision)), NoteRevision.class);
+    }
+
+    @Override
+    public void insertAll(List<NoteRevision> revisions) {
+        List<Document> documents = new ArrayList<>(revisions.size());
+        for (NoteRevision revision : revisions) {
+            Document document = new Document();
+            mongoTemplate.getConverter().write(revision, document);
+            documents.add(document);
+        }
+        try {
+            mongoTemplate.getCollection(mongoTemplate.getCollectionName(NoteRevision.class))
+                    .insertMany(documents, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            boolean onlyDuplicates = e.getWriteConcernError() == null && e.getWriteErrors().stream()
+                    .allMatch(error -> ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY);
+            if (!onlyDuplicates) {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public Optional<NoteRevision> findLatestSnapshot(String noteId, int revision) {
+        Query query = new Query(byNoteId(noteId).and("revision").lte(revision).and("snapshot").is(true))
+                .with(Sort.by(Sort.Direction.DESC, "revision"));
+        return Optional.ofNullable(mongoTemplate.findOne(query, NoteRevision.class));
+    }
+
+    @Override
+    public List<NoteRevision> findRange(String noteId, int from, int to) {
+        Query query = new Query(byNoteId(noteId).and("revision").gte(from).lte(to))
+                .with(Sort.by(Sort.Direction.ASC, "revision"));
+        return mongoTemplate.find(query, NoteRevision.class);
+    }
+
+    @Override
+    public Page<NoteRevision> findAllMetadata(String noteId, Pageable pageable) {
+        Query query = new Query(byNoteId(noteId))
+                .with(pageable)
+                .with(Sort.by(Sort.Direction.DESC, "revision"));
+        query.fields().include("noteId", "revision", "savedDate", "snapshot");
+
+        List<NoteRevision> content = mongoTemplate.find(query, NoteRevision.class);
+        long total = mongoTemplate.count(Query.of(query).limit(-1).skip(-1), NoteRevision.class);
+
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    @Override
+    public void deleteAll(String noteId) {
+        mongoTemplate.remove(new Query(byNoteId(noteId)), NoteRevision.class);
+    }
+
+    private Criteria byNoteId(String noteId) {
+        return Criteria.where("tenantId").is(TenantContext.current()).and("noteId").is(noteId);
+    }
+
+}
@@ -1,25 +1,71 @@
 package org.abarysh.notes.notesapp.service;
 
+import org.abarysh.notes.notesapp.domain.dto.NoteBatchResponse;
 import org.abarysh.notes.notesapp.domain.dto.NoteDetailsResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteDuplicateResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteFilter;
+import org.abarysh.notes.notesapp.domain.dto.NoteHistogramResponse;
 import org.abarysh.notes.notesapp.domain.dto.NoteRequest;
+import org.abarysh.notes.notesapp.domain.dto.NoteRevisionResponse;
 import org.abarysh.notes.notesapp.domain.dto.NoteSummaryResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteWordStatsRequest;
 import org.abarysh.notes.notesapp.domain.dto.NoteWordStatsResponse;
-import org.abarysh.notes.notesapp.domain.enums.NoteTag;
+import org.abarysh.notes.notesapp.domain.enums.HistogramInterval;
+import org.abarysh.notes.notesapp.domain.enums.NoteField;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 public interface NoteService {
 
     NoteDetailsResponse createOrUpdate(NoteRequest request);
 
+    NoteDetailsResponse createOrUpdate(NoteRequest request, boolean rejectDuplicates);
+
+    /**
+     * Creates a note without waiting for MongoDB, it becomes readable once the write-behind buffer is flushed.
+     *
+     * @return the note with its generated id, empty if write-behind is disabled or its buffer is full,
+     * the note then has to be created with {@link #createOrUpdate(NoteRequest, boolean)}
+     */
+    Optional<NoteDetailsResponse> createAsync(NoteRequest request, boolean rejectDuplicates);
+
     void delete(String id);
 
-    NoteDetailsResponse getById(String id);
+    /**
+     * @param fields fields to return, {@code null} for all of them
+     */
+    NoteDetailsResponse getById(String id, Set<NoteField> fields);
+
+    /**
+     * @param fields fields to return, {@code null} for all of them
+     */
+    NoteBatchResponse getByIds(List<String> ids, Set<NoteField> fields);
+
+    /**
+     * @param fields fields to return, {@code null} for id, title, createdDate and preview
+     */
+    Page<NoteSummaryResponse> list(NoteFilter filter, Set<NoteField> fields, Pageable pageable);
 
-    Page<NoteSummaryResponse> list(Set<NoteTag> tags, Pageable pageable);
+    NoteHistogramResponse histogram(NoteFilter filter, HistogramInterval interval);
 
     NoteWordStatsResponse getStats(String id);
 
+    NoteWordStatsResponse getStats(String id, NoteWordStatsRequest request);
+
+    List<NoteDuplicateResponse> findDuplicates(String id, double threshold);
+
+    /**
+     * Recorded revisions of the note, newest first.
+     */
+    Page<NoteRevisionResponse> listRevisions(String id, Pageable pageable);
+
+    /**
+     * The note as it was at the given revision.
+     */
+    NoteDetailsResponse getRevision(String id, int revision);
+
 }
@@ -0,0 +1,77 @@
+package org.abarysh.notes.notesapp.service.archive;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.abarysh.notes.notesapp.config.ArchiveProperties;
+import org.abarysh.notes.notesapp.repo.NoteRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Moves notes older than {@code notes.archive.older-than} into the archive collection.
+ * <p>
+ * Each run works in batches of {@code notes.archive.batch-size} with {@code notes.archive.batch-pause} in between
+ * until a batch comes back short, so the hot collection and its indexes only hold recent notes.
+ * {@code notes.archive.enabled} is checked at runtime rather than by a bean condition, which an AOT-processed jar would fix at build time.
+ * The job takes no lock, it must be enabled on a single instance of the application.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NoteArchiveJob {
+
+    private final NoteRepository noteRepository;
+    private final ArchiveProperties properties;
+
+    @PostConstruct
+    void init() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (properties.getBatchSize() < 1) {
+            throw new IllegalArgumentException("notes.archive.batch-size must be greater than 0");
+        }
+        Duration ttl = properties.getTtl();
+        if (ttl != null) {
+            if (ttl.compareTo(properties.getOlderThan()) <= 0) {
+                throw new IllegalArgumentException("notes.archive.ttl must be longer than notes.archive.older-than");
+            }
+            noteRepository.expireArchivedAfter(ttl);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notes.archive.interval:PT1H}")
+    public void archive() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(properties.getOlderThan());
+        int batchSize = properties.getBatchSize();
+        log.info("Archiving notes created before {}", cutoff);
+
+        long total = 0;
+        int moved;
+        do {
+            moved = noteRepository.archiveCreatedBefore(cutoff, batchSize);
+            total += moved;
+        } while (moved == batchSize && pause());
+
+        log.info("Archived {} notes created before {}", total, cutoff);
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(properties.getBatchPause());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Archiving interrupted, the rest is left for the next run");
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+package org.abarysh.notes.notesapp.service.idfilter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counting Bloom filter with 4-bit counters packed sixteen to a {@code long}, so keys can be removed again.
+ * <p>
+ * Counters are updated with compare-and-set, adds, removes and lookups never block each other.
+ * A counter that reaches 15 sticks there and is never decremented, which can only leave a false positive behind.
+ * Removing a key that was never added corrupts the filter, callers must only remove keys they added.
+ */
+public class CountingBloomFilter {
+
+    private static final int COUNTER_BITS = 4;
+    private static final int COUNTERS_PER_WORD = Long.SIZE / COUNTER_BITS;
+    private static final long MAX_COUNT = (1L << COUNTER_BITS) - 1;
+
+    private final AtomicLongArray words;
+    private final int counters;
+    private final int hashes;
+
+    public CountingBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("expectedInsertions must be positive and falsePositiveRate in (0, 1)");
+        }
+        double optimal = -expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        this.counters = (int) Math.min(Integer.MAX_VALUE - COUNTERS_PER_WORD, Math.max(COUNTERS_PER_WORD, Math.ceil(optimal)));
+        this.hashes = Math.max(1, (int) Math.round((double) counters / expectedInsertions * Math.log(2)));
+        this.words = new AtomicLongArray((counters + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD);
+    }
+
+    public void add(String key) {
+        long hash = hash(key);
+        int step = step(hash);
+        for (int i = 0, index = start(hash); i < hashes; i++, index = next(index, step)) {
+            increment(index);
+        }
+    }
+
+    public void remove(String key) {
+        long hash = hash(key);
+        int step = step(hash);
+        for (int i = 0, index = start(hash); i < hashes; i++, index = next(index, step)) {
+            decrement(index);
+        }
+    }
+
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        int step = step(hash);
+        for (int i = 0, index = start(hash); i < hashes; i++, index = next(index, step)) {
+            if (count(index) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long memoryBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    public int getHashes() {
+        return hashes;
+    }
+
+    public int getCounters() {
+        return counters;
+    }
+
+    private long count(int index) {
+        return (words.get(index / COUNTERS_PER_WORD) >>> shift(index)) & MAX_COUNT;
+    }
+
+    private void increment(int index) {
+        int word = index / COUNTERS_PER_WORD;
+        int shift = shift(index);
+        while (true) {
+            long current = words.get(word);
+            if (((current >>> shift) & MAX_COUNT) == MAX_COUNT
+                    || words.compareAndSet(word, current, current + (1L << shift))) {
+                return;
+            }
+        }
+    }
+
+    private void decrement(int index) {
+        int word = index / COUNTERS_PER_WORD;
+        int shift = shift(index);
+        while (true) {
+            long current = words.get(word);
+            long count = (current >>> shift) & MAX_COUNT;
+            if (count == 0 || count == MAX_COUNT
+                    || words.compareAndSet(word, current, current - (1L << shift))) {
+                return;
+            }
+        }
+    }
+
+    private int shift(int index) {
+        return (index % COUNTERS_PER_WORD) * COUNTER_BITS;
+    }
+
+    /**
+     * Double hashing: counter i is {@code start + i * step} modulo the number of counters.
+     */
+    private int start(long hash) {
+        return (int) Long.remainderUnsigned(hash, counters);
+    }
+
+    private int step(long hash) {
+        // in [1, counters), so a probe never stays on the same counter
+        return 1 + (int) Long.remainderUnsigned(Long.rotateLeft(hash, 32), counters - 1);
+    }
+
+    private int next(int index, int step) {
+        int next = index + step;
+        return next >= counters || next < 0 ? next - counters : next;
+    }
+
+    /**
+     * FNV-1a over the UTF-16 chars, finished with the SplitMix64 mixer.
+     */
+    private long hash(String key) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+
+}
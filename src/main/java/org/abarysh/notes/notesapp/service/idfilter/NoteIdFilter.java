@@ -0,0 +1,127 @@
+package org.abarysh.notes.notesapp.service.idfilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.abarysh.notes.notesapp.config.IdFilterProperties;
+import org.abarysh.notes.notesapp.repo.NoteRepository;
+import org.abarysh.notes.notesapp.service.writebehind.NoteWriteBehind;
+import org.bson.types.ObjectId;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers lookups of ids that do not exist without asking MongoDB.
+ * <p>
+ * A {@link CountingBloomFilter} is filled from a scan of all note ids, hot and archived, at startup and every
+ * {@code notes.id-filter.rebuild-interval}, and deletes of this instance are removed from it.
+ * Other instances create notes this filter never sees, so only ids generated before the scan started
+ * (the ObjectId timestamp tells) are trusted to be absent, newer ones are always looked up.
+ * Notes queued for {@link NoteWriteBehind} may be inserted long after their id was generated, on any instance,
+ * so with write-behind enabled the horizon moves back by {@link NoteWriteBehind#maxWriteDelay()} as well.
+ * Notes this instance still has pending when a scan starts are added to the filter as they are about to exist.
+ * Until the first scan completes every id is looked up.
+ */
+@Slf4j
+@Component
+public class NoteIdFilter {
+
+    private final NoteRepository noteRepository;
+    private final NoteWriteBehind writeBehind;
+    private final IdFilterProperties properties;
+    private final Counter avoidedLookups;
+
+    private volatile Snapshot snapshot;
+    private final AtomicLong scannedIds = new AtomicLong();
+
+    public NoteIdFilter(NoteRepository noteRepository, NoteWriteBehind writeBehind, IdFilterProperties properties,
+                        MeterRegistry meterRegistry) {
+        this.noteRepository = noteRepository;
+        this.writeBehind = writeBehind;
+        this.properties = properties;
+        this.avoidedLookups = Counter.builder("notes.id-filter.avoided-lookups")
+                .description("Lookups of unknown ids answered without MongoDB")
+                .register(meterRegistry);
+        Gauge.builder("notes.id-filter.memory", this, NoteIdFilter::memoryBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("notes.id-filter.scanned-ids", scannedIds, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    /**
+     * {@code true} only if no note with this id exists, {@code false} means it has to be looked up.
+     */
+    public boolean definitelyAbsent(String id) {
+        Snapshot current = snapshot;
+        if (current == null || !current.covers(id)) {
+            return false;
+        }
+        boolean absent = !current.filter().mightContain(id);
+        if (absent) {
+            avoidedLookups.increment();
+        }
+        return absent;
+    }
+
+    /**
+     * Called after a note was actually deleted, ids the last scan cannot have seen are left alone.
+     */
+    public void removed(String id) {
+        Snapshot current = snapshot;
+        if (current != null && current.covers(id)) {
+            current.filter().remove(id);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notes.id-filter.rebuild-interval:PT6H}")
+    public void rebuild() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long started = System.nanoTime();
+        Instant horizon = Instant.now().minus(properties.getClockSkew()).minus(writeBehind.maxWriteDelay());
+        // taken before the scan: a note written during it may be missed by the scan, but it was pending here
+        Set<String> pending = writeBehind.pendingIds();
+        long expected = Math.max(properties.getExpectedIds(), 2 * noteRepository.estimateNoteCount());
+
+        CountingBloomFilter filter = new CountingBloomFilter(expected, properties.getFalsePositiveRate());
+        pending.forEach(filter::add);
+        AtomicLong ids = new AtomicLong();
+        noteRepository.forEachNoteId(id -> {
+            filter.add(id);
+            ids.incrementAndGet();
+        });
+
+        // deletes during the scan went to the previous filter only and stay false positives here
+        snapshot = new Snapshot(filter, horizon.getEpochSecond());
+        scannedIds.set(ids.get());
+        log.info("Note id filter built from {} scanned ids in {} ms: {} KB, {} counters, {} hashes, false positive rate {}",
+                ids.get(), (System.nanoTime() - started) / 1_000_000, filter.memoryBytes() / 1024,
+                filter.getCounters(), filter.getHashes(), properties.getFalsePositiveRate());
+    }
+
+    private double memoryBytes() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.filter().memoryBytes();
+    }
+
+    /**
+     * @param horizon epoch second of the scan start, ObjectIds generated at or after it are not in the filter
+     */
+    private record Snapshot(CountingBloomFilter filter, long horizon) {
+
+        /**
+         * Ids that are not ObjectIds are never generated by the application, so the scan saw all of them.
+         */
+        boolean covers(String id) {
+            return !ObjectId.isValid(id) || new ObjectId(id).getTimestamp() < horizon;
+        }
+    }
+
+}
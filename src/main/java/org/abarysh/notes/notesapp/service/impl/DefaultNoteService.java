@@ -2,108 +2,393 @@ package org.abarysh.notes.notesapp.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.abarysh.notes.notesapp.domain.dto.NoteBatchResponse;
 import org.abarysh.notes.notesapp.domain.dto.NoteDetailsResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteDuplicateResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteFilter;
+import org.abarysh.notes.notesapp.domain.dto.NoteHistogramResponse;
 import org.abarysh.notes.notesapp.domain.dto.NoteRequest;
+import org.abarysh.notes.notesapp.domain.dto.NoteRevisionResponse;
 import org.abarysh.notes.notesapp.domain.dto.NoteSummaryResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteWordStatsRequest;
 import org.abarysh.notes.notesapp.domain.dto.NoteWordStatsResponse;
 import org.abarysh.notes.notesapp.domain.entity.Note;
-import org.abarysh.notes.notesapp.domain.enums.NoteTag;
+import org.abarysh.notes.notesapp.domain.entity.NoteRevision;
+import org.abarysh.notes.notesapp.domain.enums.HistogramInterval;
+import org.abarysh.notes.notesapp.domain.enums.NoteField;
+import org.abarysh.notes.notesapp.exсeptions.BadRequestException;
+import org.abarysh.notes.notesapp.exсeptions.ConflictException;
 import org.abarysh.notes.notesapp.exсeptions.NotFoundException;
+import org.abarysh.notes.notesapp.logging.SampledLogger;
 import org.abarysh.notes.notesapp.mapper.NoteMapper;
 import org.abarysh.notes.notesapp.repo.NoteRepository;
 import org.abarysh.notes.notesapp.service.NoteService;
+import org.abarysh.notes.notesapp.service.idfilter.NoteIdFilter;
+import org.abarysh.notes.notesapp.service.preview.NotePreview;
+import org.abarysh.notes.notesapp.service.revision.NoteHistory;
+import org.abarysh.notes.notesapp.service.similarity.MinHashSignatures;
+import org.abarysh.notes.notesapp.service.stats.Analyzers;
+import org.abarysh.notes.notesapp.service.stats.WordStatsCalculator;
+import org.abarysh.notes.notesapp.service.writebehind.NoteWriteBehind;
+import org.abarysh.notes.notesapp.tenant.TenantContext;
+import org.abarysh.notes.notesapp.tenant.TenantQuota;
+import org.bson.types.ObjectId;
+import org.slf4j.event.Level;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class DefaultNoteService implements NoteService {
 
+    private static final SampledLogger NOT_FOUND_LOG = new SampledLogger(log, Level.WARN, 10, Duration.ofSeconds(1));
+
     private final NoteRepository noteRepository;
+    private final TenantQuota tenantQuota;
+    private final NoteIdFilter idFilter;
+    private final NoteWriteBehind writeBehind;
+    private final NoteHistory history;
 
     @Override
     public NoteDetailsResponse createOrUpdate(NoteRequest request) {
+        return createOrUpdate(request, false);
+    }
+
+    @Override
+    public NoteDetailsResponse createOrUpdate(NoteRequest request, boolean rejectDuplicates) {
         Note note;
+        NoteRevision previous = null;
+        boolean archived = false;
         if (request.getId() == null) {
             log.info("Creating new note with title='{}'", request.getTitle());
-            note = Note.builder()
-                    .createdDate(Instant.now())
-                    .build();
+            tenantQuota.checkCanCreate();
+            note = newNote();
         } else {
             log.info("Updating note id='{}' with title='{}'", request.getId(), request.getTitle());
-            note = findByIdOrThrow(request.getId());
+            if (idFilter.definitelyAbsent(request.getId())) {
+                throw notFound(request.getId());
+            }
+            Optional<Note> hot = noteRepository.findById(request.getId());
+            archived = hot.isEmpty();
+            note = hot.or(() -> noteRepository.findArchivedById(request.getId(), null))
+                    // a concurrent update may have restored it in between, inserting it again then fails with 409
+                    .or(() -> noteRepository.findById(request.getId()))
+                    .orElseThrow(() -> notFound(request.getId()));
+            previous = NoteHistory.snapshot(note);
+            note.setRevision(previous.getRevision() + 1);
         }
 
-        note.setTitle(request.getTitle());
-        note.setText(request.getText());
-        note.setTags(Optional.ofNullable(request.getTags()).orElse(Set.of()));
+        apply(request, note);
+
+        if (rejectDuplicates) {
+            nearDuplicates(request.getId(), note.getMinHash(), MinHashSignatures.DEFAULT_THRESHOLD).stream()
+                    .findFirst()
+                    .ifPresent(duplicate -> {
+                        log.info("Rejecting note with title='{}' as near-duplicate of id='{}'", request.getTitle(), duplicate.getId());
+                        throw new ConflictException("Note is a near-duplicate of note with id %s".formatted(duplicate.getId()));
+                    });
+        }
 
-        Note saved = noteRepository.save(note);
+        Note saved;
+        if (previous == null) {
+            saved = noteRepository.save(note);
+        } else if (archived ? noteRepository.insertIfAbsent(note) : noteRepository.replaceIfRevision(note, previous.getRevision())) {
+            // a restored note is inserted, so of concurrent updates of an archived note only the first one lands
+            saved = note;
+        } else {
+            // the note was read at a revision another update has replaced, the diff would be against the wrong text
+            log.info("Rejecting update of note id='{}' changed since revision {}", request.getId(), previous.getRevision());
+            throw new ConflictException("Note with id %s was changed concurrently, reload it and retry".formatted(request.getId()));
+        }
         log.debug("Note saved id='{}'", saved.getId());
+        if (request.getId() == null) {
+            tenantQuota.created();
+        }
+        if (archived) {
+            // an updated note is hot again, it is removed from the archive only once saved
+            log.info("Restored archived note id='{}'", saved.getId());
+            noteRepository.deleteArchivedById(saved.getId());
+        }
+        if (previous != null) {
+            history.recordUpdate(previous, saved);
+        }
         return NoteMapper.toDetails(saved);
     }
 
+    @Override
+    public Optional<NoteDetailsResponse> createAsync(NoteRequest request, boolean rejectDuplicates) {
+        if (request.getId() != null) {
+            throw new BadRequestException("async only creates notes, id must not be set");
+        }
+        if (rejectDuplicates) {
+            throw new BadRequestException("rejectDuplicates is not supported with async");
+        }
+        if (!writeBehind.isEnabled()) {
+            return Optional.empty();
+        }
+        tenantQuota.checkCanCreate();
+
+        Note note = newNote();
+        // generated here so that it can be returned before the insert
+        note.setId(new ObjectId().toHexString());
+        apply(request, note);
+
+        if (!writeBehind.offer(note)) {
+            log.debug("Write-behind buffer full, creating note with title='{}' synchronously", request.getTitle());
+            return Optional.empty();
+        }
+        log.info("Queued new note id='{}' with title='{}'", note.getId(), request.getTitle());
+        tenantQuota.created();
+        return Optional.of(NoteMapper.toDetails(note));
+    }
+
     @Override
     public void delete(String id) {
         log.info("Deleting note id='{}'", id);
-        Note note = findByIdOrThrow(id);
-        noteRepository.delete(note);
+        if (idFilter.definitelyAbsent(id)) {
+            throw notFound(id);
+        }
+        Optional<Note> note = noteRepository.findById(id);
+        boolean deleted = note.isPresent()
+                ? noteRepository.delete(note.get())
+                : noteRepository.deleteArchivedById(id);
+        if (!deleted) {
+            throw notFound(id);
+        }
+        idFilter.removed(id);
+        tenantQuota.deleted();
+        history.deleteAll(id);
     }
 
     @Override
-    public NoteDetailsResponse getById(String id) {
-        log.debug("Fetching note details id='{}'", id);
-        Note note = findByIdOrThrow(id);
-        return NoteMapper.toDetails(note);
+    public NoteDetailsResponse getById(String id, Set<NoteField> fields) {
+        log.debug("Fetching note details id='{}' fields={}", id, fields);
+        if (fields == null || fields.containsAll(NoteField.DETAILS)) {
+            return NoteMapper.toDetails(findByIdOrThrow(id), fields == null ? NoteField.DETAILS : fields);
+        }
+        if (fields.isEmpty()) {
+            throw new BadRequestException("fields must not be empty");
+        }
+        if (idFilter.definitelyAbsent(id)) {
+            throw notFound(id);
+        }
+
+        Note note = noteRepository.findProjectedById(id, fields)
+                .or(() -> noteRepository.findArchivedById(id, fields))
+                .orElseThrow(() -> notFound(id));
+        return NoteMapper.toDetails(note, fields);
+    }
+
+    @Override
+    public NoteBatchResponse getByIds(List<String> ids, Set<NoteField> fields) {
+        log.debug("Fetching {} notes by id fields={}", ids.size(), fields);
+        if (fields != null && fields.isEmpty()) {
+            throw new BadRequestException("fields must not be empty");
+        }
+        Set<NoteField> resultFields = fields == null ? NoteField.DETAILS : fields;
+
+        Set<NoteField> projection = null;
+        if (fields != null) {
+            // the id is needed to put the notes back into request order
+            projection = EnumSet.copyOf(fields);
+            projection.add(NoteField.ID);
+        }
+
+        Map<String, Note> found = new HashMap<>();
+        Set<String> uniqueIds = new LinkedHashSet<>(ids);
+        uniqueIds.removeIf(idFilter::definitelyAbsent);
+        if (uniqueIds.isEmpty()) {
+            return NoteBatchResponse.builder()
+                    .notes(List.of())
+                    .missing(ids)
+                    .build();
+        }
+        for (Note note : noteRepository.findAllByIds(uniqueIds, projection)) {
+            found.put(note.getId(), note);
+        }
+        if (found.size() < uniqueIds.size()) {
+            uniqueIds.removeAll(found.keySet());
+            for (Note note : noteRepository.findAllArchivedByIds(uniqueIds, projection)) {
+                found.put(note.getId(), note);
+            }
+        }
+
+        List<NoteDetailsResponse> notes = new ArrayList<>(found.size());
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            Note note = found.get(id);
+            if (note == null) {
+                missing.add(id);
+            } else {
+                notes.add(NoteMapper.toDetails(note, resultFields));
+            }
+        }
+
+        return NoteBatchResponse.builder()
+                .notes(notes)
+                .missing(missing)
+                .build();
     }
 
     @Override
-    public Page<NoteSummaryResponse> list(Set<NoteTag> tags, Pageable pageable) {
-        log.debug("Listing notes with tags={} page={} size={}", tags, pageable.getPageNumber(), pageable.getPageSize());
-        return noteRepository.findAllFiltered(tags, pageable)
-                .map(NoteMapper::toSummary);
+    public Page<NoteSummaryResponse> list(NoteFilter filter, Set<NoteField> fields, Pageable pageable) {
+        log.debug("Listing notes with filter={} fields={} page={} size={}", filter, fields, pageable.getPageNumber(), pageable.getPageSize());
+        validate(filter);
+        Set<NoteField> projection = fields == null ? NoteField.SUMMARY : fields;
+        if (projection.isEmpty()) {
+            throw new BadRequestException("fields must not be empty");
+        }
+        if (!NoteField.LISTABLE.containsAll(projection)) {
+            throw new BadRequestException("list supports only fields id, title, createdDate, tags and preview");
+        }
+
+        return noteRepository.findAllFiltered(filter, projection, pageable)
+                .map(note -> NoteMapper.toSummary(note, projection));
+    }
+
+    @Override
+    public NoteHistogramResponse histogram(NoteFilter filter, HistogramInterval interval) {
+        log.debug("Building {} histogram with filter={}", interval, filter);
+        validate(filter);
+
+        List<NoteHistogramResponse.Bucket> buckets = noteRepository.countByCreatedDate(filter, interval)
+                .entrySet()
+                .stream()
+                .map(entry -> new NoteHistogramResponse.Bucket(entry.getKey(), entry.getValue()))
+                .toList();
+
+        return NoteHistogramResponse.builder()
+                .interval(interval)
+                .buckets(buckets)
+                .build();
     }
 
     @Override
     public NoteWordStatsResponse getStats(String id) {
-        log.debug("Calculating stats for note id='{}'", id);
+        return getStats(id, NoteWordStatsRequest.builder().build());
+    }
+
+    @Override
+    public NoteWordStatsResponse getStats(String id, NoteWordStatsRequest request) {
+        log.debug("Calculating stats for note id='{}' analyzer={} limit={} minCount={} minLength={}",
+                id, request.getAnalyzer(), request.getLimit(), request.getMinCount(), request.getMinLength());
+        validate(request);
         Note note = findByIdOrThrow(id);
         String text = Optional.ofNullable(note.getText()).orElse("");
 
-        Map<String, Long> counts = Arrays.stream(text.split("\\s+"))
-                .filter(s -> !s.isBlank())
-                .map(s -> s.replaceAll("\\p{Punct}", "").toLowerCase())
-                .filter(s -> !s.isBlank())
-                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        Map<String, Long> counts = WordStatsCalculator.count(text, Analyzers.forType(request.getAnalyzer()));
+        return new NoteWordStatsResponse(WordStatsCalculator.select(counts, request));
+    }
+
+    @Override
+    public List<NoteDuplicateResponse> findDuplicates(String id, double threshold) {
+        log.debug("Searching near-duplicates of note id='{}' threshold={}", id, threshold);
+        if (threshold <= 0 || threshold > 1) {
+            throw new BadRequestException("threshold must be in (0, 1]");
+        }
+        Note note = findByIdOrThrow(id);
+        int[] minHash = Optional.ofNullable(note.getMinHash())
+                .orElseGet(() -> MinHashSignatures.signature(note.getText()));
+
+        return nearDuplicates(id, minHash, threshold);
+    }
+
+    @Override
+    public Page<NoteRevisionResponse> listRevisions(String id, Pageable pageable) {
+        log.debug("Listing revisions of note id='{}' page={} size={}", id, pageable.getPageNumber(), pageable.getPageSize());
+        findByIdOrThrow(id);
+        return history.list(id, pageable)
+                .map(NoteMapper::toRevision);
+    }
 
-        Map<String, Long> sorted = counts.entrySet()
+    @Override
+    public NoteDetailsResponse getRevision(String id, int revision) {
+        log.debug("Fetching revision {} of note id='{}'", revision, id);
+        if (revision < 1) {
+            throw new BadRequestException("revision must be positive");
+        }
+        Note note = findByIdOrThrow(id);
+        return history.find(note, revision)
+                .map(NoteMapper::toDetails)
+                .orElseThrow(() -> new NotFoundException("Revision %d of note with id %s not found".formatted(revision, id)));
+    }
+
+    /**
+     * Candidates come from the LSH band index, only they are compared signature by signature.
+     */
+    private List<NoteDuplicateResponse> nearDuplicates(String excludeId, int[] minHash, double threshold) {
+        if (minHash == null) {
+            return List.of();
+        }
+        return noteRepository.findDuplicateCandidates(MinHashSignatures.bands(minHash), excludeId)
                 .stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
-                        .thenComparing(Map.Entry.comparingByKey())
-                )
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (a, b) -> a,
-                        LinkedHashMap::new
-                ));
+                .map(candidate -> NoteMapper.toDuplicate(candidate, MinHashSignatures.similarity(minHash, candidate.getMinHash())))
+                .filter(duplicate -> duplicate.getSimilarity() >= threshold)
+                .sorted(Comparator.comparingDouble(NoteDuplicateResponse::getSimilarity).reversed())
+                .toList();
+    }
+
+    private Note newNote() {
+        return Note.builder()
+                .tenantId(TenantContext.current())
+                .createdDate(Instant.now())
+                .revision(1)
+                .build();
+    }
+
+    private void apply(NoteRequest request, Note note) {
+        note.setTitle(request.getTitle());
+        note.setText(request.getText());
+        note.setPreview(NotePreview.of(request.getText()));
+        note.setTags(Optional.ofNullable(request.getTags()).orElse(Set.of()));
 
-        return new NoteWordStatsResponse(sorted);
+        int[] minHash = MinHashSignatures.signature(request.getText());
+        note.setMinHash(minHash);
+        note.setLshBands(MinHashSignatures.bands(minHash));
     }
 
+    private void validate(NoteFilter filter) {
+        if (filter != null && filter.getFrom() != null && filter.getTo() != null && !filter.getFrom().isBefore(filter.getTo())) {
+            throw new BadRequestException("from must be before to");
+        }
+    }
+
+    private void validate(NoteWordStatsRequest request) {
+        if (request.getAnalyzer() == null) {
+            throw new BadRequestException("analyzer must not be null");
+        }
+        if (request.getLimit() != null && request.getLimit() < 1) {
+            throw new BadRequestException("limit must be greater than 0");
+        }
+        if (request.getMinCount() < 1) {
+            throw new BadRequestException("minCount must be greater than 0");
+        }
+        if (request.getMinLength() < 1) {
+            throw new BadRequestException("minLength must be greater than 0");
+        }
+    }
+
+    /**
+     * Id filter first, then the hot collection and the archive only on a miss.
+     */
     private Note findByIdOrThrow(String id) {
+        if (idFilter.definitelyAbsent(id)) {
+            throw notFound(id);
+        }
         return noteRepository.findById(id)
-                .orElseThrow(() -> {
-                    log.warn("Note with id '{}' not found", id);
-                    return new NotFoundException("Note with id %s not found".formatted(id));
-                });
+                .or(() -> noteRepository.findArchivedById(id, null))
+                .orElseThrow(() -> notFound(id));
+    }
+
+    private NotFoundException notFound(String id) {
+        NOT_FOUND_LOG.log("Note with id '{}' not found", id);
+        return new NotFoundException("Note with id " + id + " not found");
     }
 
 }
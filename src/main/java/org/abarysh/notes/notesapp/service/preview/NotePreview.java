@@ -0,0 +1,57 @@
+package org.abarysh.notes.notesapp.service.preview;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Preview of a note text for lists: the text with every run of whitespace, line breaks included, collapsed into one space,
+ * cut to at most {@value #MAX_LENGTH} characters. A cut text ends at the last word boundary that keeps at least
+ * {@value #MIN_CUT_LENGTH} characters, followed by {@value #ELLIPSIS}, and never splits a surrogate pair.
+ * Only the start of the text is read, however long it is.
+ */
+@UtilityClass
+public class NotePreview {
+
+    public static final int MAX_LENGTH = 200;
+
+    private static final String ELLIPSIS = "…";
+    private static final int MIN_CUT_LENGTH = MAX_LENGTH * 3 / 4;
+
+    public String of(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder preview = new StringBuilder(Math.min(text.length(), MAX_LENGTH + 1));
+        boolean pendingSpace = false;
+        int i = 0;
+        while (i < text.length() && preview.length() <= MAX_LENGTH) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isWhitespace(codePoint) || Character.isSpaceChar(codePoint)) {
+                pendingSpace = !preview.isEmpty();
+                continue;
+            }
+            if (pendingSpace) {
+                preview.append(' ');
+                pendingSpace = false;
+            }
+            preview.appendCodePoint(codePoint);
+        }
+        if (preview.length() <= MAX_LENGTH) {
+            return preview.toString();
+        }
+        return cut(preview) + ELLIPSIS;
+    }
+
+    private String cut(StringBuilder preview) {
+        int end = MAX_LENGTH - ELLIPSIS.length();
+        if (Character.isHighSurrogate(preview.charAt(end - 1))) {
+            end--;
+        }
+        int space = preview.lastIndexOf(" ", end);
+        if (space >= MIN_CUT_LENGTH) {
+            end = space;
+        }
+        return preview.substring(0, end);
+    }
+
+}
@@ -0,0 +1,94 @@
+package org.abarysh.notes.notesapp.service.preview;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.abarysh.notes.notesapp.config.PreviewProperties;
+import org.abarysh.notes.notesapp.domain.entity.Note;
+import org.abarysh.notes.notesapp.repo.NoteRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Stores a {@link NotePreview} for notes saved before notes had one, once after startup on a background thread.
+ * <p>
+ * Until then such notes are listed without a preview. Notes are updated in batches of {@code notes.preview.batch-size}
+ * with {@code notes.preview.batch-pause} in between. Instances starting together may fill the same notes,
+ * they write the same preview. Archived notes are not listed and keep no preview until they are saved again.
+ * <p>
+ * Finding the notes scans the collection, no index covers a missing field. Once a run finds none left the backfill
+ * is recorded as {@value #MIGRATION} in {@code migrations} and later starts skip it. A run that still filled notes is
+ * not recorded, instances of the previous version may have saved notes without preview during a rolling upgrade.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NotePreviewBackfill {
+
+    public static final String MIGRATION = "note-previews";
+
+    private final NoteRepository noteRepository;
+    private final PreviewProperties properties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isBackfill()) {
+            return;
+        }
+        if (properties.getBatchSize() < 1) {
+            throw new IllegalArgumentException("notes.preview.batch-size must be greater than 0");
+        }
+        Thread.ofVirtual().name("note-preview-backfill").start(() -> {
+            try {
+                if (noteRepository.isMigrated(MIGRATION)) {
+                    log.debug("Previews were backfilled before, skipping");
+                    return;
+                }
+            } catch (RuntimeException e) {
+                log.error("Could not check whether previews were backfilled, the backfill is left for the next start", e);
+                return;
+            }
+            backfill();
+        });
+    }
+
+    public void backfill() {
+        long filled = 0;
+        try (Stream<Note> notes = noteRepository.streamWithoutPreview()) {
+            Iterator<Note> iterator = notes.iterator();
+            List<Note> batch = new ArrayList<>(properties.getBatchSize());
+            while (iterator.hasNext()) {
+                Note note = iterator.next();
+                note.setPreview(NotePreview.of(note.getText()));
+                batch.add(note);
+                if (batch.size() == properties.getBatchSize() || !iterator.hasNext()) {
+                    noteRepository.updatePreviews(batch);
+                    filled += batch.size();
+                    batch.clear();
+                    if (iterator.hasNext()) {
+                        Thread.sleep(properties.getBatchPause());
+                    }
+                }
+            }
+            if (filled == 0) {
+                noteRepository.markMigrated(MIGRATION);
+                log.info("Every note has a preview, the backfill will not run again");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Preview backfill interrupted after {} notes, the rest is left for the next start", filled);
+            return;
+        } catch (RuntimeException e) {
+            log.error("Preview backfill failed after {} notes, the rest is left for the next start", filled, e);
+            return;
+        }
+        log.info("Stored previews of {} notes", filled);
+    }
+
+}
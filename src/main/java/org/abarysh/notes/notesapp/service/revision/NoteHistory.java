@@ -0,0 +1,179 @@
+package org.abarysh.notes.notesapp.service.revision;
+
+import com.mongodb.MongoException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.abarysh.notes.notesapp.config.RevisionProperties;
+import org.abarysh.notes.notesapp.domain.entity.Note;
+import org.abarysh.notes.notesapp.domain.entity.NoteRevision;
+import org.abarysh.notes.notesapp.domain.enums.NoteTag;
+import org.abarysh.notes.notesapp.repo.NoteRevisionRepository;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Revision history of notes in {@code note_revisions}.
+ * <p>
+ * A note is at revision 1 when created and every update adds one. An update stores a {@link TextDiff} against the
+ * previous revision, and the title and tags only if they changed, so history grows with the size of the edits.
+ * Revisions 1, 1 + {@code notes.revisions.snapshot-every}, 1 + 2 × {@code snapshot-every} and so on are full snapshots,
+ * as is any revision whose diff would not be smaller than its text. A revision is rebuilt from the latest snapshot
+ * before it and the diffs in between, at most {@code snapshot-every} documents.
+ * <p>
+ * A note is not written to its history when created, the revision before an update is stored as a snapshot
+ * by the update if it is missing. This covers notes created before revisions existed, notes created through
+ * write-behind and updates that stopped after the note was saved and before its revision was.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NoteHistory {
+
+    private final NoteRevisionRepository revisionRepository;
+    private final RevisionProperties properties;
+
+    /**
+     * Notes saved before revisions were counted have none and are at revision 1.
+     */
+    public static int revisionOf(Note note) {
+        return note.getRevision() == null ? 1 : note.getRevision();
+    }
+
+    /**
+     * The note as it is now, to be taken before an update changes it.
+     */
+    public static NoteRevision snapshot(Note note) {
+        int revision = revisionOf(note);
+        return NoteRevision.builder()
+                .tenantId(note.getTenantId())
+                .noteId(note.getId())
+                .revision(revision)
+                .savedDate(revision == 1 ? note.getCreatedDate() : null)
+                .snapshot(true)
+                .title(note.getTitle())
+                .tags(note.getTags() == null ? null : new HashSet<>(note.getTags()))
+                .text(note.getText())
+                .build();
+    }
+
+    /**
+     * Records {@code saved}, which has to be the revision following {@code previous}.
+     * A failure is only logged, the note is saved and the next update stores a snapshot of this revision.
+     */
+    public void recordUpdate(NoteRevision previous, Note saved) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            List<NoteRevision> revisions = new ArrayList<>(2);
+            if (!revisionRepository.exists(saved.getId(), previous.getRevision())) {
+                revisions.add(previous);
+            }
+            revisions.add(next(previous, saved));
+            revisionRepository.insertAll(revisions);
+        } catch (DataAccessException | MongoException e) {
+            log.warn("Could not record revision {} of note id='{}'", revisionOf(saved), saved.getId(), e);
+        }
+    }
+
+    /**
+     * Newest first, without content.
+     */
+    public Page<NoteRevision> list(String noteId, Pageable pageable) {
+        return revisionRepository.findAllMetadata(noteId, pageable);
+    }
+
+    /**
+     * The note with title, text and tags of the given revision, empty if the note has no such revision
+     * or it cannot be rebuilt.
+     */
+    public Optional<Note> find(Note note, int revision) {
+        int current = revisionOf(note);
+        if (revision == current) {
+            return Optional.of(note);
+        }
+        if (revision < 1 || revision > current) {
+            return Optional.empty();
+        }
+
+        NoteRevision snapshot = revisionRepository.findLatestSnapshot(note.getId(), revision).orElse(null);
+        List<NoteRevision> diffs = snapshot == null
+                ? List.of()
+                : revisionRepository.findRange(note.getId(), snapshot.getRevision() + 1, revision);
+        if (snapshot == null || snapshot.getRevision() + diffs.size() != revision) {
+            log.warn("Revision {} of note id='{}' cannot be rebuilt, its history is incomplete", revision, note.getId());
+            return Optional.empty();
+        }
+
+        String title = snapshot.getTitle();
+        String text = Objects.requireNonNullElse(snapshot.getText(), "");
+        Set<NoteTag> tags = snapshot.getTags();
+        for (NoteRevision diff : diffs) {
+            title = diff.getTitle() != null ? diff.getTitle() : title;
+            tags = diff.getTags() != null ? diff.getTags() : tags;
+            text = TextDiff.apply(text, diff.getEdits());
+        }
+        return Optional.of(Note.builder()
+                .id(note.getId())
+                .tenantId(note.getTenantId())
+                .createdDate(note.getCreatedDate())
+                .revision(revision)
+                .title(title)
+                .text(text)
+                .tags(tags)
+                .build());
+    }
+
+    /**
+     * Called after the note was deleted. A failure is only logged, the note is gone and its revisions are left
+     * behind unreachable, as are those of archived notes purged by {@code notes.archive.ttl}.
+     */
+    public void deleteAll(String noteId) {
+        try {
+            revisionRepository.deleteAll(noteId);
+        } catch (DataAccessException | MongoException e) {
+            log.warn("Could not delete the revisions of deleted note id='{}'", noteId, e);
+        }
+    }
+
+    private NoteRevision next(NoteRevision previous, Note saved) {
+        int revision = previous.getRevision() + 1;
+        String text = Objects.requireNonNullElse(saved.getText(), "");
+        NoteRevision next = NoteRevision.builder()
+                .tenantId(saved.getTenantId())
+                .noteId(saved.getId())
+                .revision(revision)
+                .savedDate(Instant.now())
+                .build();
+
+        if ((revision - 1) % snapshotEvery() != 0) {
+            List<NoteRevision.Edit> edits = TextDiff.diff(Objects.requireNonNullElse(previous.getText(), ""), text);
+            if (TextDiff.size(edits) < text.length()) {
+                next.setEdits(edits);
+                next.setTitle(Objects.equals(previous.getTitle(), saved.getTitle()) ? null : saved.getTitle());
+                next.setTags(Objects.equals(previous.getTags(), saved.getTags()) ? null : saved.getTags());
+                return next;
+            }
+        }
+        next.setSnapshot(true);
+        next.setTitle(saved.getTitle());
+        next.setTags(saved.getTags());
+        next.setText(text);
+        return next;
+    }
+
+    private int snapshotEvery() {
+        return Math.max(1, properties.getSnapshotEvery());
+    }
+
+}
@@ -0,0 +1,215 @@
+package org.abarysh.notes.notesapp.service.revision;
+
+import lombok.experimental.UtilityClass;
+import org.abarysh.notes.notesapp.domain.entity.NoteRevision.Edit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Diff of two texts as the edits that turn the first one into the second.
+ * <p>
+ * The common start and end are skipped character by character, what is left in between is compared line by line
+ * with the Myers algorithm, and each edit is narrowed down to the characters that changed within its lines.
+ * An edit therefore holds about as much text as was typed, however long the note is. When more than
+ * {@value #MAX_EDIT_LINES} lines changed the span between the common start and end becomes a single edit,
+ * which bounds the time and memory of a diff. Edits never start or end within a surrogate pair.
+ */
+@UtilityClass
+public class TextDiff {
+
+    static final int MAX_EDIT_LINES = 500;
+
+    /**
+     * Approximate stored size of an edit besides its inserted text: field names, two ints and the document framing.
+     */
+    private static final int EDIT_OVERHEAD = 40;
+
+    private static final int EQUAL = 0;
+    private static final int DELETE = 1;
+    private static final int INSERT = 2;
+
+    public List<Edit> diff(String from, String to) {
+        if (from.equals(to)) {
+            return List.of();
+        }
+        int prefix = commonPrefix(from, to);
+        int suffix = commonSuffix(from, to, prefix);
+
+        String removed = from.substring(prefix, from.length() - suffix);
+        String added = to.substring(prefix, to.length() - suffix);
+        List<Edit> edits = diffLines(lines(removed), lines(added), prefix);
+        if (edits == null) {
+            return List.of(new Edit(prefix, removed.length(), added));
+        }
+        // the skipped start and end cut through lines, edits of whole lines often keep some of them unchanged
+        List<Edit> trimmed = new ArrayList<>(edits.size());
+        for (Edit edit : edits) {
+            Edit shorter = trim(from, edit);
+            if (shorter.getDeleted() > 0 || !shorter.getInserted().isEmpty()) {
+                trimmed.add(shorter);
+            }
+        }
+        return trimmed;
+    }
+
+    public String apply(String from, List<Edit> edits) {
+        StringBuilder to = new StringBuilder(from.length());
+        int position = 0;
+        for (Edit edit : edits) {
+            if (edit.getAt() < position || edit.getAt() + edit.getDeleted() > from.length()) {
+                throw new IllegalArgumentException("Edit at %d deleting %d does not apply to a text of length %d after position %d"
+                        .formatted(edit.getAt(), edit.getDeleted(), from.length(), position));
+            }
+            to.append(from, position, edit.getAt());
+            if (edit.getInserted() != null) {
+                to.append(edit.getInserted());
+            }
+            position = edit.getAt() + edit.getDeleted();
+        }
+        return to.append(from, position, from.length()).toString();
+    }
+
+    /**
+     * Approximate number of bytes the edits take to store.
+     */
+    public int size(List<Edit> edits) {
+        int size = 0;
+        for (Edit edit : edits) {
+            size += EDIT_OVERHEAD + (edit.getInserted() == null ? 0 : edit.getInserted().length());
+        }
+        return size;
+    }
+
+    /**
+     * Myers shortest edit script over lines, {@code null} if it needs more than {@value #MAX_EDIT_LINES} line edits.
+     */
+    private List<Edit> diffLines(List<String> a, List<String> b, int offset) {
+        int n = a.size();
+        int m = b.size();
+        int max = Math.min(n + m, MAX_EDIT_LINES);
+        int[] v = new int[2 * max + 2];
+        List<int[]> trace = new ArrayList<>();
+        for (int d = 0; d <= max; d++) {
+            trace.add(v.clone());
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && v[max + k - 1] < v[max + k + 1])
+                        ? v[max + k + 1]
+                        : v[max + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a.get(x).equals(b.get(y))) {
+                    x++;
+                    y++;
+                }
+                v[max + k] = x;
+                if (x >= n && y >= m) {
+                    return edits(a, b, trace, max, offset);
+                }
+            }
+        }
+        return null;
+    }
+
+    private List<Edit> edits(List<String> a, List<String> b, List<int[]> trace, int max, int offset) {
+        // walks the trace back from the end, collecting the script from the last line to the first
+        List<int[]> script = new ArrayList<>();
+        int x = a.size();
+        int y = b.size();
+        for (int d = trace.size() - 1; d >= 0; d--) {
+            int[] v = trace.get(d);
+            int k = x - y;
+            int previousX = 0;
+            int previousY = 0;
+            if (d > 0) {
+                int previousK = k == -d || (k != d && v[max + k - 1] < v[max + k + 1]) ? k + 1 : k - 1;
+                previousX = v[max + previousK];
+                previousY = previousX - previousK;
+            }
+            while (x > previousX && y > previousY) {
+                script.add(new int[]{EQUAL, --x});
+                y--;
+            }
+            if (d > 0) {
+                script.add(x == previousX ? new int[]{INSERT, previousY} : new int[]{DELETE, previousX});
+            }
+            x = previousX;
+            y = previousY;
+        }
+
+        List<Edit> edits = new ArrayList<>();
+        int position = offset;
+        Edit edit = null;
+        for (int i = script.size() - 1; i >= 0; i--) {
+            int[] step = script.get(i);
+            if (step[0] == EQUAL) {
+                edit = null;
+                position += a.get(step[1]).length();
+                continue;
+            }
+            if (edit == null) {
+                edit = new Edit(position, 0, "");
+                edits.add(edit);
+            }
+            if (step[0] == DELETE) {
+                String line = a.get(step[1]);
+                edit.setDeleted(edit.getDeleted() + line.length());
+                position += line.length();
+            } else {
+                edit.setInserted(edit.getInserted() + b.get(step[1]));
+            }
+        }
+        return edits;
+    }
+
+    private Edit trim(String from, Edit edit) {
+        String removed = from.substring(edit.getAt(), edit.getAt() + edit.getDeleted());
+        String inserted = edit.getInserted();
+        int prefix = commonPrefix(removed, inserted);
+        int suffix = commonSuffix(removed, inserted, prefix);
+        return new Edit(edit.getAt() + prefix, removed.length() - prefix - suffix,
+                inserted.substring(prefix, inserted.length() - suffix));
+    }
+
+    private int commonPrefix(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int prefix = 0;
+        while (prefix < max && a.charAt(prefix) == b.charAt(prefix)) {
+            prefix++;
+        }
+        if (prefix > 0 && Character.isHighSurrogate(a.charAt(prefix - 1))) {
+            prefix--;
+        }
+        return prefix;
+    }
+
+    /**
+     * Common end not overlapping the common start of {@code prefix} characters.
+     */
+    private int commonSuffix(String a, String b, int prefix) {
+        int max = Math.min(a.length(), b.length()) - prefix;
+        int suffix = 0;
+        while (suffix < max && a.charAt(a.length() - suffix - 1) == b.charAt(b.length() - suffix - 1)) {
+            suffix++;
+        }
+        if (suffix > 0 && Character.isLowSurrogate(a.charAt(a.length() - suffix))) {
+            suffix--;
+        }
+        return suffix;
+    }
+
+    /**
+     * Lines with their line breaks, so that they join back into the text.
+     */
+    private List<String> lines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            end = end < 0 ? text.length() : end + 1;
+            lines.add(text.substring(start, end));
+            start = end;
+        }
+        return lines;
+    }
+
+}
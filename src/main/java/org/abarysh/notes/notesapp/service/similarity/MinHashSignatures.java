@@ -0,0 +1,174 @@
+package org.abarysh.notes.notesapp.service.similarity;
+
+import lombok.experimental.UtilityClass;
+import org.abarysh.notes.notesapp.service.stats.Analyzers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * MinHash signatures over word 3-shingles and their LSH band keys.
+ * <p>
+ * The signature has {@value #SIGNATURE_SIZE} values split into {@value #BANDS} bands of {@value #ROWS} rows.
+ * Two notes share at least one band key with probability {@code 1 - (1 - s^ROWS)^BANDS} for Jaccard similarity
+ * {@code s}: about 95% at {@code s = 0.8} and about 6% at {@code s = 0.5}, so only likely duplicates become candidates.
+ * Seeds are fixed, signatures stay comparable across restarts and instances.
+ */
+@UtilityClass
+public class MinHashSignatures {
+
+    public static final int SIGNATURE_SIZE = 128;
+    public static final int BANDS = 16;
+    public static final int ROWS = SIGNATURE_SIZE / BANDS;
+    public static final double DEFAULT_THRESHOLD = 0.8;
+
+    private static final int SHINGLE_SIZE = 3;
+    private static final long[] SEEDS = seeds(0x6E6F7465734D48L);
+
+    /**
+     * @return the signature, or {@code null} when the text has no words
+     */
+    public int[] signature(String text) {
+        if (text == null) {
+            return null;
+        }
+        long[] shingles = shingles(text);
+        if (shingles.length == 0) {
+            return null;
+        }
+
+        int[] signature = new int[SIGNATURE_SIZE];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (long shingle : shingles) {
+            for (int i = 0; i < SIGNATURE_SIZE; i++) {
+                int value = (int) (mix(shingle ^ SEEDS[i]) >>> 32);
+                if (value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    public List<Long> bands(int[] signature) {
+        if (signature == null) {
+            return List.of();
+        }
+        List<Long> bands = new ArrayList<>(BANDS);
+        for (int band = 0; band < BANDS; band++) {
+            long hash = band;
+            for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+                hash = mix(hash * 31 + signature[row]);
+            }
+            bands.add(hash);
+        }
+        return bands;
+    }
+
+    /**
+     * Estimated Jaccard similarity of the two shingle sets.
+     */
+    public double similarity(int[] first, int[] second) {
+        if (first == null || second == null || first.length != second.length) {
+            return 0;
+        }
+        int equal = 0;
+        for (int i = 0; i < first.length; i++) {
+            if (first[i] == second[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / first.length;
+    }
+
+    /**
+     * Distinct hashes of word 3-shingles, or a single shingle of all words for shorter texts.
+     */
+    private long[] shingles(String text) {
+        ShingleCollector collector = new ShingleCollector();
+        Analyzers.STANDARD.analyze(text, 0, text.length(), collector);
+        return collector.distinctShingles();
+    }
+
+    private long[] seeds(long seed) {
+        long[] seeds = new long[SIGNATURE_SIZE];
+        long state = seed;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            seeds[i] = mix(state);
+        }
+        return seeds;
+    }
+
+    /**
+     * SplitMix64 finalizer.
+     */
+    private long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * FNV-1a over the UTF-16 chars of the word.
+     */
+    private long hash(String word) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < word.length(); i++) {
+            hash ^= word.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    private static final class ShingleCollector implements Consumer<String> {
+
+        private final long[] window = new long[SHINGLE_SIZE];
+        private long[] shingles = new long[64];
+        private int size;
+        private int words;
+
+        @Override
+        public void accept(String word) {
+            window[words % SHINGLE_SIZE] = hash(word);
+            words++;
+            if (words >= SHINGLE_SIZE) {
+                add(currentShingle(SHINGLE_SIZE));
+            }
+        }
+
+        private long currentShingle(int length) {
+            long hash = 0;
+            for (int i = words - length; i < words; i++) {
+                hash = mix(hash * 31 + window[i % SHINGLE_SIZE]);
+            }
+            return hash;
+        }
+
+        private void add(long shingle) {
+            if (size == shingles.length) {
+                shingles = Arrays.copyOf(shingles, size * 2);
+            }
+            shingles[size++] = shingle;
+        }
+
+        private long[] distinctShingles() {
+            if (words > 0 && words < SHINGLE_SIZE) {
+                add(currentShingle(words));
+            }
+            long[] sorted = Arrays.copyOf(shingles, size);
+            Arrays.sort(sorted);
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, distinct);
+        }
+
+    }
+
+}
@@ -0,0 +1,36 @@
+package org.abarysh.notes.notesapp.service.stats;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A tokenizer followed by a chain of token filters.
+ */
+public final class Analyzer {
+
+    private final Tokenizer tokenizer;
+    private final TokenFilter[] filters;
+
+    private Analyzer(Tokenizer tokenizer, List<TokenFilter> filters) {
+        this.tokenizer = tokenizer;
+        this.filters = filters.toArray(TokenFilter[]::new);
+    }
+
+    public static Analyzer of(Tokenizer tokenizer, TokenFilter... filters) {
+        return new Analyzer(tokenizer, List.of(filters));
+    }
+
+    public void analyze(CharSequence text, int from, int to, Consumer<String> sink) {
+        tokenizer.tokenize(text, from, to, token -> {
+            String current = token;
+            for (TokenFilter filter : filters) {
+                current = filter.filter(current);
+                if (current == null) {
+                    return;
+                }
+            }
+            sink.accept(current);
+        });
+    }
+
+}
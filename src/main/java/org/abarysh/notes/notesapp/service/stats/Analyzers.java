@@ -0,0 +1,29 @@
+package org.abarysh.notes.notesapp.service.stats;
+
+import lombok.experimental.UtilityClass;
+import org.abarysh.notes.notesapp.domain.enums.WordAnalyzerType;
+
+@UtilityClass
+public class Analyzers {
+
+    public static final Analyzer STANDARD = Analyzer.of(UnicodeWordTokenizer.INSTANCE,
+            TokenFilters.lowerCase());
+
+    public static final Analyzer STOP = Analyzer.of(UnicodeWordTokenizer.INSTANCE,
+            TokenFilters.lowerCase(),
+            TokenFilters.stopwords(TokenFilters.ENGLISH_STOPWORDS));
+
+    public static final Analyzer ENGLISH = Analyzer.of(UnicodeWordTokenizer.INSTANCE,
+            TokenFilters.lowerCase(),
+            TokenFilters.stopwords(TokenFilters.ENGLISH_STOPWORDS),
+            TokenFilters.minimalEnglishStem());
+
+    public Analyzer forType(WordAnalyzerType type) {
+        return switch (type) {
+            case STANDARD -> STANDARD;
+            case STOP -> STOP;
+            case ENGLISH -> ENGLISH;
+        };
+    }
+
+}
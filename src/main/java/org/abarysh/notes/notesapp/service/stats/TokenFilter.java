@@ -0,0 +1,14 @@
+package org.abarysh.notes.notesapp.service.stats;
+
+/**
+ * One step of an {@link Analyzer} chain.
+ */
+@FunctionalInterface
+public interface TokenFilter {
+
+    /**
+     * @return the transformed token, or {@code null} to drop it
+     */
+    String filter(String token);
+
+}
@@ -0,0 +1,55 @@
+package org.abarysh.notes.notesapp.service.stats;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.Locale;
+import java.util.Set;
+
+@UtilityClass
+public class TokenFilters {
+
+    public static final Set<String> ENGLISH_STOPWORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "into", "is", "it",
+            "no", "not", "of", "on", "or", "such", "that", "the", "their", "then", "there", "these",
+            "they", "this", "to", "was", "will", "with"
+    );
+
+    /**
+     * Lower-cases with {@link Locale#ROOT}, so results do not depend on the server default locale.
+     */
+    public TokenFilter lowerCase() {
+        return token -> token.toLowerCase(Locale.ROOT);
+    }
+
+    public TokenFilter stopwords(Set<String> stopwords) {
+        return token -> stopwords.contains(token) ? null : token;
+    }
+
+    /**
+     * Plural-only English stemmer: {@code notes -> note}, {@code stories -> story}, leaves {@code class}, {@code status} alone.
+     * Expects lower-cased input.
+     */
+    public TokenFilter minimalEnglishStem() {
+        return token -> {
+            int length = token.length();
+            if (length < 3 || token.charAt(length - 1) != 's') {
+                return token;
+            }
+            char beforeLast = token.charAt(length - 2);
+            if (beforeLast == 'u' || beforeLast == 's') {
+                return token;
+            }
+            if (beforeLast == 'e') {
+                char third = token.charAt(length - 3);
+                if (length > 3 && third == 'i' && token.charAt(length - 4) != 'a' && token.charAt(length - 4) != 'e') {
+                    return token.substring(0, length - 3) + 'y';
+                }
+                if (third == 'i' || third == 'a' || third == 'o' || third == 'e') {
+                    return token;
+                }
+            }
+            return token.substring(0, length - 1);
+        };
+    }
+
+}
@@ -0,0 +1,15 @@
+package org.abarysh.notes.notesapp.service.stats;
+
+import java.util.function.Consumer;
+
+/**
+ * Splits a range of text into tokens.
+ * <p>
+ * Implementations must never produce a token that contains whitespace,
+ * so that text may be cut on whitespace and tokenized chunk by chunk.
+ */
+public interface Tokenizer {
+
+    void tokenize(CharSequence text, int from, int to, Consumer<String> sink);
+
+}
@@ -0,0 +1,78 @@
+package org.abarysh.notes.notesapp.service.stats;
+
+import java.util.function.Consumer;
+
+/**
+ * Word segmentation close to the Unicode default word boundaries (UAX #29) without regex or per-character allocation.
+ * <p>
+ * A word is a run of letters, digits and combining marks. An apostrophe between two letters ({@code don't})
+ * and a dot or comma between two digits ({@code 3.14}, {@code 1,000}) stay inside the word.
+ * Ideographs and hiragana are emitted one character per token, as there is no dictionary segmentation.
+ * Everything else, including all Unicode punctuation and whitespace, separates words.
+ */
+public final class UnicodeWordTokenizer implements Tokenizer {
+
+    public static final UnicodeWordTokenizer INSTANCE = new UnicodeWordTokenizer();
+
+    private UnicodeWordTokenizer() {
+    }
+
+    @Override
+    public void tokenize(CharSequence text, int from, int to, Consumer<String> sink) {
+        int start = -1;
+        int previous = 0;
+        int i = from;
+
+        while (i < to) {
+            int cp = Character.codePointAt(text, i);
+            int next = i + Character.charCount(cp);
+
+            if (isIdeographic(cp)) {
+                if (start >= 0) {
+                    sink.accept(text.subSequence(start, i).toString());
+                    start = -1;
+                }
+                sink.accept(text.subSequence(i, next).toString());
+            } else if (isWordPart(cp)) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0 && !(next < to && isJoiner(previous, cp, Character.codePointAt(text, next)))) {
+                sink.accept(text.subSequence(start, i).toString());
+                start = -1;
+            }
+
+            previous = cp;
+            i = next;
+        }
+
+        if (start >= 0) {
+            sink.accept(text.subSequence(start, to).toString());
+        }
+    }
+
+    private static boolean isWordPart(int cp) {
+        if (Character.isLetterOrDigit(cp)) {
+            return true;
+        }
+        int type = Character.getType(cp);
+        return type == Character.NON_SPACING_MARK
+                || type == Character.COMBINING_SPACING_MARK
+                || type == Character.ENCLOSING_MARK;
+    }
+
+    private static boolean isIdeographic(int cp) {
+        return Character.isIdeographic(cp) || Character.UnicodeScript.of(cp) == Character.UnicodeScript.HIRAGANA;
+    }
+
+    private static boolean isJoiner(int before, int cp, int after) {
+        if (cp == '\'' || cp == '’') {
+            return Character.isLetter(before) && Character.isLetter(after);
+        }
+        if (cp == '.' || cp == ',') {
+            return Character.isDigit(before) && Character.isDigit(after);
+        }
+        return false;
+    }
+
+}
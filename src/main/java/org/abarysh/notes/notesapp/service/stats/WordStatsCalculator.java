@@ -0,0 +1,158 @@
+package org.abarysh.notes.notesapp.service.stats;
+
+import lombok.experimental.UtilityClass;
+import org.abarysh.notes.notesapp.domain.dto.NoteWordStatsRequest;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Word statistics for note text.
+ * <p>
+ * Counting runs the text once through an {@link Analyzer} and feeds tokens straight into the counts map,
+ * so no intermediate array or stream of all tokens is ever materialized.
+ * Texts of {@value #PARALLEL_THRESHOLD} characters and more are cut on whitespace into chunks that are counted
+ * on a fork/join pool and merged, which gives exactly the same counts as the sequential scan.
+ * Top-N selection keeps a bounded heap of {@code limit} entries instead of sorting every unique word.
+ */
+@UtilityClass
+public class WordStatsCalculator {
+
+    private static final Comparator<Map.Entry<String, Long>> ORDER =
+            Map.Entry.<String, Long>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey());
+
+    public static final int PARALLEL_THRESHOLD = 1 << 20;
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+    public Map<String, Long> count(CharSequence text, Analyzer analyzer) {
+        if (text.length() >= PARALLEL_THRESHOLD) {
+            return countParallel(text, analyzer, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+        }
+        return countRange(text, 0, text.length(), analyzer);
+    }
+
+    public Map<String, Long> countParallel(CharSequence text, Analyzer analyzer, int chunkSize, ForkJoinPool pool) {
+        return pool.invoke(new CountTask(text, 0, text.length(), analyzer, chunkSize));
+    }
+
+    private Map<String, Long> countRange(CharSequence text, int from, int to, Analyzer analyzer) {
+        Map<String, Long> counts = new HashMap<>();
+        analyzer.analyze(text, from, to, word -> counts.merge(word, 1L, Long::sum));
+        return counts;
+    }
+
+    public Map<String, Long> select(Map<String, Long> counts, NoteWordStatsRequest request) {
+        Integer limit = request.getLimit();
+        long minCount = request.getMinCount();
+        int minLength = request.getMinLength();
+
+        if (limit == null) {
+            List<Map.Entry<String, Long>> entries = new ArrayList<>();
+            for (Map.Entry<String, Long> entry : counts.entrySet()) {
+                if (accept(entry, minCount, minLength)) {
+                    entries.add(entry);
+                }
+            }
+            entries.sort(ORDER);
+            return toOrderedMap(entries);
+        }
+
+        // head of the heap is the weakest entry kept so far, never more entries than words however large the limit
+        PriorityQueue<Map.Entry<String, Long>> heap = new PriorityQueue<>(Math.min(limit, counts.size()) + 1, ORDER.reversed());
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            if (!accept(entry, minCount, minLength)) {
+                continue;
+            }
+            if (heap.size() < limit) {
+                heap.add(entry);
+            } else if (ORDER.compare(entry, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+
+        List<Map.Entry<String, Long>> top = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            top.add(heap.poll());
+        }
+        Collections.reverse(top);
+        return toOrderedMap(top);
+    }
+
+    /**
+     * First whitespace position at or after {@code from}, or {@code to} if the range has none.
+     */
+    private int nextWhitespace(CharSequence text, int from, int to) {
+        int i = from;
+        while (i < to && !isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private Map<String, Long> merge(Map<String, Long> left, Map<String, Long> right) {
+        Map<String, Long> target = left.size() >= right.size() ? left : right;
+        Map<String, Long> source = target == left ? right : left;
+        source.forEach((word, count) -> target.merge(word, count, Long::sum));
+        return target;
+    }
+
+    private static final class CountTask extends RecursiveTask<Map<String, Long>> {
+
+        private final CharSequence text;
+        private final int from;
+        private final int to;
+        private final Analyzer analyzer;
+        private final int chunkSize;
+
+        private CountTask(CharSequence text, int from, int to, Analyzer analyzer, int chunkSize) {
+            this.text = text;
+            this.from = from;
+            this.to = to;
+            this.analyzer = analyzer;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected Map<String, Long> compute() {
+            if (to - from <= chunkSize) {
+                return countRange(text, from, to, analyzer);
+            }
+            // split on whitespace so no token is cut in two
+            int mid = nextWhitespace(text, from + (to - from) / 2, to);
+            if (mid == to) {
+                return countRange(text, from, to, analyzer);
+            }
+
+            CountTask left = new CountTask(text, from, mid, analyzer, chunkSize);
+            CountTask right = new CountTask(text, mid, to, analyzer, chunkSize);
+            left.fork();
+            Map<String, Long> rightCounts = right.compute();
+            return merge(left.join(), rightCounts);
+        }
+
+    }
+
+    private boolean accept(Map.Entry<String, Long> entry, long minCount, int minLength) {
+        return entry.getValue() >= minCount && entry.getKey().length() >= minLength;
+    }
+
+    private Map<String, Long> toOrderedMap(List<Map.Entry<String, Long>> entries) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : entries) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Same character class as the {@code \s} regex: space, tab, line feed, vertical tab, form feed and carriage return.
+     */
+    private boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+}
@@ -0,0 +1,294 @@
+package org.abarysh.notes.notesapp.service.writebehind;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.MongoNodeIsRecoveringException;
+import com.mongodb.MongoNotPrimaryException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.abarysh.notes.notesapp.config.WriteBehindProperties;
+import org.abarysh.notes.notesapp.domain.entity.Note;
+import org.abarysh.notes.notesapp.repo.NoteRepository;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers new notes and inserts them in batches on a background thread.
+ * <p>
+ * The writer takes whatever has queued up while the previous batch was written, up to {@code notes.write-behind.batch-size},
+ * so batches stay small under light load and grow with it. A batch that failed with a transient error, such as a lost
+ * connection or a primary election, is written again after {@code notes.write-behind.retry-backoff}, at most
+ * {@code notes.write-behind.max-attempts} times; notes that made it the first time are skipped as duplicates.
+ * Any other error drops the batch, and notes MongoDB refused one by one are dropped while the rest of the batch is kept.
+ * Dropped notes are logged with their ids.
+ * <p>
+ * Stopping runs after the web server has stopped, no more notes are accepted and the writer empties the buffer
+ * for up to {@code notes.write-behind.shutdown-timeout} before MongoDB is disconnected.
+ */
+@Slf4j
+@Component
+public class NoteWriteBehind implements SmartLifecycle {
+
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final String RETRYABLE_WRITE_ERROR = "RetryableWriteError";
+
+    private final NoteRepository noteRepository;
+    private final WriteBehindProperties properties;
+    private final WriteConcern writeConcern;
+    private final BlockingQueue<Pending> queue;
+    private final Set<String> unwritten = ConcurrentHashMap.newKeySet();
+
+    private final Timer flushTimer;
+    private final Timer lagTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter failures;
+
+    private volatile boolean running;
+    private volatile long stopDeadline = Long.MAX_VALUE;
+    private Thread writer;
+
+    public NoteWriteBehind(NoteRepository noteRepository, WriteBehindProperties properties, MeterRegistry meterRegistry) {
+        if (properties.getCapacity() < 1 || properties.getBatchSize() < 1 || properties.getMaxAttempts() < 1) {
+            throw new IllegalArgumentException("notes.write-behind.capacity, batch-size and max-attempts must be greater than 0");
+        }
+        this.noteRepository = noteRepository;
+        this.properties = properties;
+        this.writeConcern = WriteConcern.valueOf(properties.getWriteConcern());
+        if (writeConcern == null) {
+            throw new IllegalArgumentException("Unknown notes.write-behind.write-concern " + properties.getWriteConcern());
+        }
+        this.queue = new ArrayBlockingQueue<>(properties.getCapacity());
+
+        Gauge.builder("notes.write-behind.queue.depth", queue, Collection::size)
+                .description("Notes waiting to be written")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("notes.write-behind.flush")
+                .description("Time to write one batch")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("notes.write-behind.lag")
+                .description("Time from accepting a note to its write being acknowledged")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("notes.write-behind.batch.size")
+                .register(meterRegistry);
+        this.failures = Counter.builder("notes.write-behind.failures")
+                .description("Batches that failed and were retried or dropped")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * @return {@code false} if the note was not queued because the buffer is full or the writer is not running,
+     * the caller then has to write it itself
+     */
+    public boolean offer(Note note) {
+        if (!running) {
+            return false;
+        }
+        unwritten.add(note.getId());
+        if (!queue.offer(new Pending(note, System.nanoTime()))) {
+            unwritten.remove(note.getId());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Longest a note accepted by write-behind, on this or any instance with the same settings, keeps retrying its insert:
+     * every attempt with its backoff and then the shutdown timeout. {@link Duration#ZERO} when write-behind is disabled.
+     */
+    public Duration maxWriteDelay() {
+        if (!properties.isEnabled()) {
+            return Duration.ZERO;
+        }
+        return properties.getRetryBackoff().multipliedBy(properties.getMaxAttempts()).plus(properties.getShutdownTimeout());
+    }
+
+    /**
+     * Ids of notes accepted but not yet written or dropped, a note leaves this set only once its insert returned.
+     */
+    public Set<String> pendingIds() {
+        return Set.copyOf(unwritten);
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        writer = Thread.ofPlatform()
+                .name("note-write-behind")
+                .daemon(true)
+                .start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        stopDeadline = System.nanoTime() + properties.getShutdownTimeout().toNanos();
+        running = false;
+        try {
+            if (!writer.join(properties.getShutdownTimeout().plusSeconds(1))) {
+                log.error("Write-behind writer did not finish within {}", properties.getShutdownTimeout());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Lower than the web server, so this stops after it and starts before it.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            if (System.nanoTime() > stopDeadline) {
+                List<Pending> lost = new ArrayList<>(queue);
+                queue.clear();
+                log.error("Shutdown timeout reached, {} queued notes were not written: {}", lost.size(), ids(lost));
+                unwritten.clear();
+                return;
+            }
+            try {
+                Pending first = queue.poll(POLL_NANOS, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, properties.getBatchSize() - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Write-behind writer interrupted, {} queued notes were not written", queue.size() + batch.size());
+                return;
+            } finally {
+                batch.forEach(pending -> unwritten.remove(pending.note().getId()));
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) throws InterruptedException {
+        List<Note> notes = batch.stream().map(Pending::note).toList();
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                noteRepository.insertAll(notes, writeConcern);
+                written(batch, start);
+                return;
+            } catch (MongoBulkWriteException e) {
+                failures.increment();
+                if (e.getWriteConcernError() == null) {
+                    // the insert is unordered, every note without a write error of its own was written
+                    dropRefused(batch, e.getWriteErrors(), start);
+                    return;
+                }
+                if (!retry(batch, attempt, e)) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                failures.increment();
+                if (!retry(batch, attempt, e)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean retry(List<Pending> batch, int attempt, RuntimeException e) throws InterruptedException {
+        if (!isTransient(e)) {
+            log.error("Writing {} queued notes failed, they are dropped: {}", batch.size(), ids(batch), e);
+            return false;
+        }
+        if (attempt >= properties.getMaxAttempts()) {
+            log.error("Writing {} queued notes failed {} times, they are dropped: {}", batch.size(), attempt, ids(batch), e);
+            return false;
+        }
+        if (System.nanoTime() + properties.getRetryBackoff().toNanos() > stopDeadline) {
+            log.error("Writing {} queued notes failed during shutdown, they are lost: {}", batch.size(), ids(batch), e);
+            return false;
+        }
+        log.warn("Writing {} queued notes failed, retrying in {}", batch.size(), properties.getRetryBackoff(), e);
+        Thread.sleep(properties.getRetryBackoff());
+        return true;
+    }
+
+    private void dropRefused(List<Pending> batch, List<BulkWriteError> errors, long start) {
+        Set<Integer> refused = new HashSet<>();
+        for (BulkWriteError error : errors) {
+            refused.add(error.getIndex());
+            if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                log.error("Queued note id='{}' was refused, it is dropped: {}",
+                        batch.get(error.getIndex()).note().getId(), error.getMessage());
+            }
+        }
+        List<Pending> kept = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (!refused.contains(i)) {
+                kept.add(batch.get(i));
+            }
+        }
+        written(kept, start);
+    }
+
+    private void written(List<Pending> batch, long start) {
+        long end = System.nanoTime();
+        flushTimer.record(end - start, TimeUnit.NANOSECONDS);
+        batchSizes.record(batch.size());
+        for (Pending pending : batch) {
+            lagTimer.record(end - pending.enqueuedAt(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Errors that go away once the connection is back or a new primary is elected, anything else fails again.
+     */
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof MongoSocketException
+                || e instanceof MongoTimeoutException
+                || e instanceof MongoNotPrimaryException
+                || e instanceof MongoNodeIsRecoveringException
+                || e instanceof MongoBulkWriteException bulk && bulk.getWriteConcernError() != null
+                || e instanceof MongoException mongo && mongo.hasErrorLabel(RETRYABLE_WRITE_ERROR);
+    }
+
+    private List<String> ids(List<Pending> pending) {
+        return pending.stream().map(p -> p.note().getId()).toList();
+    }
+
+    private record Pending(Note note, long enqueuedAt) {
+    }
+
+}
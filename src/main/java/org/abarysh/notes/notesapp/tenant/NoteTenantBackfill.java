@@ -0,0 +1,40 @@
+package org.abarysh.notes.notesapp.tenant;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.abarysh.notes.notesapp.repo.NoteRepository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves notes saved before notes had a tenant into {@link TenantContext#DEFAULT_TENANT}, once at startup.
+ * <p>
+ * Every query is scoped to a tenant, such notes would neither be listed nor found until they have one.
+ * The update runs before the web server starts, so no request sees them missing, and is recorded
+ * as {@value #MIGRATION} in {@code migrations} so that later starts do not look for them again.
+ * Instances starting together may both run it, they set the same tenant.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NoteTenantBackfill {
+
+    public static final String MIGRATION = "note-tenants";
+
+    private final NoteRepository noteRepository;
+
+    @PostConstruct
+    void init() {
+        if (noteRepository.isMigrated(MIGRATION)) {
+            return;
+        }
+        backfill();
+    }
+
+    public void backfill() {
+        long updated = noteRepository.assignTenantWhereMissing(TenantContext.DEFAULT_TENANT);
+        noteRepository.markMigrated(MIGRATION);
+        log.info("Assigned tenant '{}' to {} notes saved before tenants existed", TenantContext.DEFAULT_TENANT, updated);
+    }
+
+}
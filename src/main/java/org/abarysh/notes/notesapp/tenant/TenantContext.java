@@ -0,0 +1,34 @@
+package org.abarysh.notes.notesapp.tenant;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Tenant of the current request.
+ * <p>
+ * The tenant id is the leading part of the notes shard key, every repository query carries it
+ * so that mongos routes the query to the shards holding that tenant's notes only.
+ */
+@UtilityClass
+public class TenantContext {
+
+    public static final String DEFAULT_TENANT = "default";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Tenant bound to this thread, {@link #DEFAULT_TENANT} when none is bound.
+     */
+    public String current() {
+        String tenantId = CURRENT.get();
+        return tenantId == null ? DEFAULT_TENANT : tenantId;
+    }
+
+    public void set(String tenantId) {
+        CURRENT.set(tenantId);
+    }
+
+    public void clear() {
+        CURRENT.remove();
+    }
+
+}
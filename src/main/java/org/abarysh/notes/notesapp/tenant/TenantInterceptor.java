@@ -0,0 +1,56 @@
+package org.abarysh.notes.notesapp.tenant;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.abarysh.notes.notesapp.config.TenantProperties;
+import org.abarysh.notes.notesapp.exсeptions.BadRequestException;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.regex.Pattern;
+
+/**
+ * Binds the {@value #TENANT_HEADER} request header to {@link TenantContext} for the duration of the request.
+ * Runs inside the dispatcher, so a missing or malformed header is answered with the usual {@code ApiError}.
+ */
+@RequiredArgsConstructor
+public class TenantInterceptor implements HandlerInterceptor {
+
+    public static final String TENANT_HEADER = "X-Tenant-Id";
+
+    private static final Pattern TENANT_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final TenantProperties properties;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String tenantId = request.getHeader(TENANT_HEADER);
+        if (!StringUtils.hasText(tenantId)) {
+            if (properties.isRequired()) {
+                throw new BadRequestException("%s header is required".formatted(TENANT_HEADER));
+            }
+            return true;
+        }
+
+        tenantId = tenantId.trim();
+        if (!isValid(tenantId)) {
+            throw new BadRequestException("%s must be 1 to 64 letters, digits, '_' or '-'".formatted(TENANT_HEADER));
+        }
+        TenantContext.set(tenantId);
+        return true;
+    }
+
+    /**
+     * Whether {@code tenantId} is 1 to 64 letters, digits, '_' or '-'.
+     */
+    public static boolean isValid(String tenantId) {
+        return TENANT_ID.matcher(tenantId).matches();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        TenantContext.clear();
+    }
+
+}
@@ -0,0 +1,95 @@
+package org.abarysh.notes.notesapp.tenant;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.abarysh.notes.notesapp.config.TenantProperties;
+import org.abarysh.notes.notesapp.exсeptions.QuotaExceededException;
+import org.abarysh.notes.notesapp.repo.NoteRepository;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-tenant limit on the number of notes.
+ * <p>
+ * Counting a tenant's notes on every create would cost an index scan per write, so the count is cached per tenant,
+ * kept up to date by this instance's creates and deletes and counted again once {@code notes.tenant.count-cache-ttl}
+ * has passed to pick up writes of other instances. The limit is therefore soft: concurrent creates may overshoot it slightly.
+ * At most {@code notes.tenant.max-cached-counts} counts are cached, expired ones are dropped to make room and a tenant
+ * that finds no room is counted on every create.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TenantQuota {
+
+    private final NoteRepository noteRepository;
+    private final TenantProperties properties;
+
+    private final Map<String, CachedCount> counts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        if (properties.getMaxNotes() > 0) {
+            noteRepository.indexArchiveByTenant();
+        }
+    }
+
+    public void checkCanCreate() {
+        long maxNotes = properties.getMaxNotes();
+        if (maxNotes <= 0) {
+            return;
+        }
+
+        String tenantId = TenantContext.current();
+        if (count(tenantId) >= maxNotes) {
+            log.info("Tenant '{}' reached its limit of {} notes", tenantId, maxNotes);
+            throw new QuotaExceededException("Tenant %s reached its limit of %d notes".formatted(tenantId, maxNotes));
+        }
+    }
+
+    public void created() {
+        adjust(1);
+    }
+
+    public void deleted() {
+        adjust(-1);
+    }
+
+    private long count(String tenantId) {
+        long now = System.nanoTime();
+        CachedCount cached = counts.get(tenantId);
+        if (cached != null && !cached.expired(now, properties.getCountCacheTtl())) {
+            return cached.count().get();
+        }
+
+        long count = noteRepository.countTenantNotes();
+        if (cached == null && counts.size() >= properties.getMaxCachedCounts()) {
+            counts.values().removeIf(other -> other.expired(now, properties.getCountCacheTtl()));
+        }
+        if (cached != null || counts.size() < properties.getMaxCachedCounts()) {
+            counts.put(tenantId, new CachedCount(new AtomicLong(count), now));
+        }
+        return count;
+    }
+
+    private void adjust(long delta) {
+        CachedCount cached = counts.get(TenantContext.current());
+        if (cached != null) {
+            cached.count().addAndGet(delta);
+        }
+    }
+
+    private record CachedCount(AtomicLong count, long loadedAt) {
+
+        boolean expired(long now, Duration ttl) {
+            return now - loadedAt > ttl.toNanos();
+        }
+
+    }
+
+}
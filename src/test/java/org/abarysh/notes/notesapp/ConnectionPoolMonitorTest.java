@@ -0,0 +1,106 @@
+package org.abarysh.notes.notesapp;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionId;
+import com.mongodb.connection.ConnectionPoolSettings;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolCreatedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.abarysh.notes.notesapp.config.MongoClientConfig;
+import org.abarysh.notes.notesapp.config.MongoClientProperties;
+import org.abarysh.notes.notesapp.profiling.ConnectionPoolMonitor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolMonitorTest {
+
+    private final ServerId server = new ServerId(new ClusterId(), new ServerAddress("localhost", 27017));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ConnectionPoolMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        monitor = new ConnectionPoolMonitor(new MongoClientProperties(), meterRegistry);
+        monitor.connectionPoolCreated(new ConnectionPoolCreatedEvent(server, ConnectionPoolSettings.builder().maxSize(10).build()));
+    }
+
+    @Test
+    void recommend_shouldGrowPool_whenCheckoutsTimeOut() {
+        monitor.connectionCheckOutFailed(new ConnectionCheckOutFailedEvent(server, 1,
+                ConnectionCheckOutFailedEvent.Reason.TIMEOUT, TimeUnit.SECONDS.toNanos(2)));
+
+        monitor.recommend();
+
+        assertEquals(15, monitor.recommendedMaxSize());
+        assertEquals(1, meterRegistry.get("notes.mongo.pool.checkout").tag("outcome", "timeout").timer().count());
+    }
+
+    @Test
+    void recommend_shouldGrowPool_whenCheckoutsWaitLongerThanTarget() {
+        ConnectionId connection = new ConnectionId(server);
+        monitor.connectionCheckedOut(new ConnectionCheckedOutEvent(connection, 1, TimeUnit.MILLISECONDS.toNanos(500)));
+        monitor.connectionCheckedIn(new ConnectionCheckedInEvent(connection, 1));
+
+        monitor.recommend();
+
+        assertEquals(15, monitor.recommendedMaxSize());
+    }
+
+    @Test
+    void recommend_shouldFollowPeakInUse_whenLoadIsLight() throws InterruptedException {
+        // holding connections for a tiny part of the window leaves the peak as the bound
+        Thread.sleep(50);
+        List<ConnectionId> connections = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ConnectionId connection = new ConnectionId(server);
+            connections.add(connection);
+            monitor.connectionCheckedOut(new ConnectionCheckedOutEvent(connection, i, TimeUnit.MICROSECONDS.toNanos(10)));
+        }
+        connections.forEach(connection -> monitor.connectionCheckedIn(new ConnectionCheckedInEvent(connection, 0)));
+
+        monitor.recommend();
+
+        assertEquals(3, monitor.recommendedMaxSize());
+    }
+
+    @Test
+    void recommend_shouldKeepPreviousRecommendation_whenIdle() {
+        monitor.connectionCheckOutFailed(new ConnectionCheckOutFailedEvent(server, 1,
+                ConnectionCheckOutFailedEvent.Reason.TIMEOUT, TimeUnit.SECONDS.toNanos(2)));
+        monitor.recommend();
+
+        monitor.recommend();
+
+        assertEquals(15, monitor.recommendedMaxSize());
+    }
+
+    @Test
+    void compressors_shouldRejectUnknownName() {
+        assertEquals(1, MongoClientConfig.compressors(List.of("zlib")).size());
+        assertThrows(IllegalArgumentException.class, () -> MongoClientConfig.compressors(List.of("lz4")));
+    }
+
+    @Test
+    void compressors_shouldIgnoreDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        // lower-cased in Turkish "ZLIB" has a dotless i
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            assertEquals(1, MongoClientConfig.compressors(List.of("ZLIB")).size());
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+}
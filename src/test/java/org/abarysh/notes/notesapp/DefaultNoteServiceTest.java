@@ -1,17 +1,37 @@
 package org.abarysh.notes.notesapp;
 
+import org.abarysh.notes.notesapp.domain.dto.NoteBatchResponse;
 import org.abarysh.notes.notesapp.domain.dto.NoteDetailsResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteDuplicateResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteFilter;
+import org.abarysh.notes.notesapp.domain.dto.NoteHistogramResponse;
 import org.abarysh.notes.notesapp.domain.dto.NoteRequest;
 import org.abarysh.notes.notesapp.domain.dto.NoteSummaryResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteWordStatsRequest;
 import org.abarysh.notes.notesapp.domain.dto.NoteWordStatsResponse;
 import org.abarysh.notes.notesapp.domain.entity.Note;
+import org.abarysh.notes.notesapp.domain.entity.NoteRevision;
+import org.abarysh.notes.notesapp.domain.enums.HistogramInterval;
+import org.abarysh.notes.notesapp.domain.enums.NoteField;
 import org.abarysh.notes.notesapp.domain.enums.NoteTag;
+import org.abarysh.notes.notesapp.exсeptions.BadRequestException;
+import org.abarysh.notes.notesapp.exсeptions.ConflictException;
 import org.abarysh.notes.notesapp.exсeptions.NotFoundException;
+import org.abarysh.notes.notesapp.exсeptions.QuotaExceededException;
 import org.abarysh.notes.notesapp.repo.NoteRepository;
 import org.abarysh.notes.notesapp.service.impl.DefaultNoteService;
+import org.abarysh.notes.notesapp.service.preview.NotePreview;
+import org.abarysh.notes.notesapp.service.revision.NoteHistory;
+import org.abarysh.notes.notesapp.service.idfilter.NoteIdFilter;
+import org.abarysh.notes.notesapp.service.similarity.MinHashSignatures;
+import org.abarysh.notes.notesapp.service.writebehind.NoteWriteBehind;
+import org.abarysh.notes.notesapp.tenant.TenantContext;
+import org.abarysh.notes.notesapp.tenant.TenantQuota;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -29,6 +49,18 @@ class DefaultNoteServiceTest {
     @Mock
     private NoteRepository noteRepository;
 
+    @Mock
+    private TenantQuota tenantQuota;
+
+    @Mock
+    private NoteIdFilter idFilter;
+
+    @Mock
+    private NoteWriteBehind writeBehind;
+
+    @Mock
+    private NoteHistory history;
+
     @InjectMocks
     private DefaultNoteService noteService;
 
@@ -51,6 +83,8 @@ class DefaultNoteServiceTest {
         assertEquals("Text", toSave.getText());
         assertEquals(Set.of(NoteTag.BUSINESS), toSave.getTags());
         assertNotNull(toSave.getCreatedDate()); // createdDate має виставлятися
+        assertEquals(TenantContext.DEFAULT_TENANT, toSave.getTenantId());
+        verify(tenantQuota).created();
 
         assertEquals("123", result.getId());
         assertEquals("Title", result.getTitle());
@@ -58,6 +92,22 @@ class DefaultNoteServiceTest {
         assertEquals(Set.of(NoteTag.BUSINESS), result.getTags());
     }
 
+    @Test
+    void createOrUpdate_shouldStorePreviewOfText() {
+        Note existing = buildNote("123", "Old", "Old text", Set.of(), CREATED_AT);
+        existing.setPreview("Old text");
+        NoteRequest request = buildRequest("123", "Title", "Updated\n\n  text " + "word ".repeat(100), null);
+
+        when(noteRepository.findById("123")).thenReturn(Optional.of(existing));
+        when(noteRepository.replaceIfRevision(existing, 1)).thenReturn(true);
+
+        noteService.createOrUpdate(request);
+
+        assertTrue(existing.getPreview().startsWith("Updated text word word"));
+        assertTrue(existing.getPreview().endsWith("…"));
+        assertTrue(existing.getPreview().length() <= NotePreview.MAX_LENGTH);
+    }
+
     @Test
     void createOrUpdate_shouldUseEmptyTags_whenRequestTagsNull() {
         NoteRequest request = buildRequest(null, "Title", "Text", null);
@@ -81,18 +131,62 @@ class DefaultNoteServiceTest {
         NoteRequest request = buildRequest("123", "Updated", "Updated text", Set.of(NoteTag.IMPORTANT));
 
         when(noteRepository.findById("123")).thenReturn(Optional.of(existing));
-        when(noteRepository.save(any(Note.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(noteRepository.replaceIfRevision(existing, 1)).thenReturn(true);
 
         NoteDetailsResponse result = noteService.createOrUpdate(request);
 
         verify(noteRepository).findById("123");
-        verify(noteRepository).save(existing);
+        verify(noteRepository).replaceIfRevision(existing, 1);
 
         assertEquals("123", result.getId());
         assertEquals("Updated", result.getTitle());
         assertEquals("Updated text", result.getText());
         assertEquals(Set.of(NoteTag.IMPORTANT), result.getTags());
         assertEquals(CREATED_AT, existing.getCreatedDate());
+        assertEquals(2, existing.getRevision());
+    }
+
+    @Test
+    void createOrUpdate_shouldRecordPreviousVersion_whenUpdated() {
+        Note existing = buildNote("123", "Old", "Old text", Set.of(NoteTag.PERSONAL), CREATED_AT);
+        existing.setRevision(4);
+        NoteRequest request = buildRequest("123", "Old", "New text", Set.of(NoteTag.PERSONAL));
+
+        when(noteRepository.findById("123")).thenReturn(Optional.of(existing));
+        when(noteRepository.replaceIfRevision(existing, 4)).thenReturn(true);
+
+        noteService.createOrUpdate(request);
+
+        ArgumentCaptor<NoteRevision> captor = ArgumentCaptor.forClass(NoteRevision.class);
+        verify(history).recordUpdate(captor.capture(), eq(existing));
+        assertEquals(4, captor.getValue().getRevision());
+        assertEquals("Old text", captor.getValue().getText());
+        assertEquals(5, existing.getRevision());
+    }
+
+    @Test
+    void createOrUpdate_shouldThrowConflict_whenNoteChangedConcurrently() {
+        Note existing = buildNote("123", "Old", "Old text", null, CREATED_AT);
+        existing.setRevision(3);
+        NoteRequest request = buildRequest("123", "New", "New text", null);
+
+        when(noteRepository.findById("123")).thenReturn(Optional.of(existing));
+        when(noteRepository.replaceIfRevision(existing, 3)).thenReturn(false);
+
+        assertThrows(ConflictException.class, () -> noteService.createOrUpdate(request));
+        verify(history, never()).recordUpdate(any(), any());
+    }
+
+    @Test
+    void getRevision_shouldThrowNotFound_whenRevisionCannotBeRebuilt() {
+        Note note = buildNote("123", "Title", "Text", null, CREATED_AT);
+        note.setRevision(3);
+
+        when(noteRepository.findById("123")).thenReturn(Optional.of(note));
+        when(history.find(note, 2)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> noteService.getRevision("123", 2));
+        assertThrows(BadRequestException.class, () -> noteService.getRevision("123", 0));
     }
 
     @Test
@@ -105,16 +199,123 @@ class DefaultNoteServiceTest {
                 () -> noteService.createOrUpdate(request));
     }
 
+    @Test
+    void createOrUpdate_shouldNotSave_whenTenantQuotaExceeded() {
+        NoteRequest request = buildRequest(null, "Title", "Text", null);
+
+        doThrow(new QuotaExceededException("Tenant default reached its limit of 1 notes")).when(tenantQuota).checkCanCreate();
+
+        assertThrows(QuotaExceededException.class, () -> noteService.createOrUpdate(request));
+        verify(noteRepository, never()).save(any());
+        verify(tenantQuota, never()).created();
+    }
+
+    @Test
+    void createAsync_shouldQueueNoteWithGeneratedId() {
+        NoteRequest request = buildRequest(null, "Title", "Text", Set.of(NoteTag.BUSINESS));
+        when(writeBehind.isEnabled()).thenReturn(true);
+        when(writeBehind.offer(any(Note.class))).thenReturn(true);
+
+        NoteDetailsResponse result = noteService.createAsync(request, false).orElseThrow();
+
+        ArgumentCaptor<Note> captor = ArgumentCaptor.forClass(Note.class);
+        verify(writeBehind).offer(captor.capture());
+        Note queued = captor.getValue();
+        assertTrue(ObjectId.isValid(queued.getId()));
+        assertEquals(queued.getId(), result.getId());
+        assertEquals(TenantContext.DEFAULT_TENANT, queued.getTenantId());
+        assertNotNull(queued.getCreatedDate());
+        assertNotNull(queued.getMinHash());
+        verify(tenantQuota).created();
+        verifyNoInteractions(noteRepository);
+    }
+
+    @Test
+    void createAsync_shouldReturnEmpty_whenBufferFull() {
+        NoteRequest request = buildRequest(null, "Title", "Text", null);
+        when(writeBehind.isEnabled()).thenReturn(true);
+        when(writeBehind.offer(any(Note.class))).thenReturn(false);
+
+        assertTrue(noteService.createAsync(request, false).isEmpty());
+        verify(tenantQuota, never()).created();
+    }
+
+    @Test
+    void createAsync_shouldRejectUpdatesAndDuplicateChecks() {
+        assertThrows(BadRequestException.class,
+                () -> noteService.createAsync(buildRequest("123", "Title", "Text", null), false));
+        assertThrows(BadRequestException.class,
+                () -> noteService.createAsync(buildRequest(null, "Title", "Text", null), true));
+        verifyNoInteractions(writeBehind);
+    }
+
+    @Test
+    void createOrUpdate_shouldStoreMinHashSignature() {
+        NoteRequest request = buildRequest(null, "Title", "the quick brown fox jumps", null);
+
+        when(noteRepository.save(any(Note.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        noteService.createOrUpdate(request);
+
+        ArgumentCaptor<Note> captor = ArgumentCaptor.forClass(Note.class);
+        verify(noteRepository).save(captor.capture());
+        assertEquals(MinHashSignatures.SIGNATURE_SIZE, captor.getValue().getMinHash().length);
+        assertEquals(MinHashSignatures.BANDS, captor.getValue().getLshBands().size());
+        verify(noteRepository, never()).findDuplicateCandidates(any(), any());
+    }
+
+    @Test
+    void createOrUpdate_shouldThrowConflict_whenNearDuplicateExists() {
+        String text = "the quick brown fox jumps over the lazy dog";
+        Note existing = buildNote("456", "Original", text, null, CREATED_AT);
+        existing.setMinHash(MinHashSignatures.signature(text));
+
+        when(noteRepository.findDuplicateCandidates(any(), isNull())).thenReturn(List.of(existing));
+
+        NoteRequest request = buildRequest(null, "Copy", text, null);
+
+        assertThrows(ConflictException.class, () -> noteService.createOrUpdate(request, true));
+        verify(noteRepository, never()).save(any());
+    }
+
+    @Test
+    void findDuplicates_shouldReturnCandidatesAboveThreshold() {
+        String text = "one two three four five six seven eight nine ten eleven twelve";
+        Note note = buildNote("1", "Original", text, null, CREATED_AT);
+        Note nearCopy = buildNote("2", "Near copy", text + " thirteen", null, CREATED_AT);
+        nearCopy.setMinHash(MinHashSignatures.signature(nearCopy.getText()));
+        Note unrelated = buildNote("3", "Unrelated", "completely different words in this other note", null, CREATED_AT);
+        unrelated.setMinHash(MinHashSignatures.signature(unrelated.getText()));
+
+        when(noteRepository.findById("1")).thenReturn(Optional.of(note));
+        when(noteRepository.findDuplicateCandidates(any(), eq("1"))).thenReturn(List.of(unrelated, nearCopy));
+
+        List<NoteDuplicateResponse> duplicates = noteService.findDuplicates("1", 0.7);
+
+        assertEquals(1, duplicates.size());
+        assertEquals("2", duplicates.get(0).getId());
+        assertTrue(duplicates.get(0).getSimilarity() >= 0.7);
+    }
+
+    @Test
+    void findDuplicates_shouldThrowBadRequest_whenThresholdOutOfRange() {
+        assertThrows(BadRequestException.class, () -> noteService.findDuplicates("1", 1.5));
+        verifyNoInteractions(noteRepository);
+    }
+
     @Test
     void delete_shouldDeleteNote_whenExists() {
         Note note = buildNote("123", "Title", null, null, CREATED_AT);
 
         when(noteRepository.findById("123")).thenReturn(Optional.of(note));
+        when(noteRepository.delete(note)).thenReturn(true);
 
         noteService.delete("123");
 
         verify(noteRepository).findById("123");
         verify(noteRepository).delete(note);
+        verify(idFilter).removed("123");
+        verify(history).deleteAll("123");
     }
 
     @Test
@@ -122,6 +323,40 @@ class DefaultNoteServiceTest {
         when(noteRepository.findById("missing")).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class, () -> noteService.delete("missing"));
+        verify(idFilter, never()).removed(any());
+    }
+
+    @Test
+    void getById_shouldNotQueryRepository_whenIdFilterRulesIdOut() {
+        when(idFilter.definitelyAbsent("gone")).thenReturn(true);
+
+        assertThrows(NotFoundException.class, () -> noteService.getById("gone", null));
+        assertThrows(NotFoundException.class, () -> noteService.getStats("gone"));
+        verifyNoInteractions(noteRepository);
+    }
+
+    @Test
+    void getByIds_shouldQueryOnlyIdsNotRuledOut() {
+        Note note = buildNote("123", "Title", "Text", Set.of(), CREATED_AT);
+        when(idFilter.definitelyAbsent("gone")).thenReturn(true);
+        when(noteRepository.findAllByIds(Set.of("123"), null)).thenReturn(List.of(note));
+
+        NoteBatchResponse response = noteService.getByIds(List.of("gone", "123"), null);
+
+        assertEquals(List.of("123"), response.getNotes().stream().map(NoteDetailsResponse::getId).toList());
+        assertEquals(List.of("gone"), response.getMissing());
+        verify(noteRepository, never()).findAllArchivedByIds(any(), any());
+    }
+
+    @Test
+    void delete_shouldDeleteFromArchive_whenNoteArchived() {
+        when(noteRepository.findById("123")).thenReturn(Optional.empty());
+        when(noteRepository.deleteArchivedById("123")).thenReturn(true);
+
+        noteService.delete("123");
+
+        verify(noteRepository).deleteArchivedById("123");
+        verify(noteRepository, never()).delete(any());
     }
 
     @Test
@@ -130,7 +365,7 @@ class DefaultNoteServiceTest {
 
         when(noteRepository.findById("123")).thenReturn(Optional.of(note));
 
-        NoteDetailsResponse result = noteService.getById("123");
+        NoteDetailsResponse result = noteService.getById("123", null);
 
         verify(noteRepository).findById("123");
         assertEquals("123", result.getId());
@@ -144,7 +379,94 @@ class DefaultNoteServiceTest {
     void getById_shouldThrowNotFound_whenMissing() {
         when(noteRepository.findById("missing")).thenReturn(Optional.empty());
 
-        assertThrows(NotFoundException.class, () -> noteService.getById("missing"));
+        assertThrows(NotFoundException.class, () -> noteService.getById("missing", null));
+    }
+
+    @Test
+    void getById_shouldFallThroughToArchive_whenMissingInHotCollection() {
+        Note note = buildNote("123", "Old", "Old text", null, CREATED_AT);
+
+        when(noteRepository.findById("123")).thenReturn(Optional.empty());
+        when(noteRepository.findArchivedById("123", null)).thenReturn(Optional.of(note));
+
+        NoteDetailsResponse result = noteService.getById("123", null);
+
+        assertEquals("Old text", result.getText());
+    }
+
+    @Test
+    void createOrUpdate_shouldRestoreArchivedNote_whenUpdated() {
+        Note archived = buildNote("123", "Old", "Old text", null, CREATED_AT);
+        NoteRequest request = buildRequest("123", "New", "New text", null);
+
+        when(noteRepository.findById("123")).thenReturn(Optional.empty());
+        when(noteRepository.findArchivedById("123", null)).thenReturn(Optional.of(archived));
+        when(noteRepository.insertIfAbsent(archived)).thenReturn(true);
+
+        NoteDetailsResponse result = noteService.createOrUpdate(request);
+
+        assertEquals("New", result.getTitle());
+        assertEquals(CREATED_AT, result.getCreatedDate());
+        InOrder order = inOrder(noteRepository);
+        order.verify(noteRepository).insertIfAbsent(archived);
+        order.verify(noteRepository).deleteArchivedById("123");
+        verify(noteRepository, never()).save(any());
+    }
+
+    @Test
+    void createOrUpdate_shouldThrowConflict_whenArchivedNoteRestoredConcurrently() {
+        Note archived = buildNote("123", "Old", "Old text", null, CREATED_AT);
+        NoteRequest request = buildRequest("123", "New", "New text", null);
+
+        when(noteRepository.findById("123")).thenReturn(Optional.empty());
+        when(noteRepository.findArchivedById("123", null)).thenReturn(Optional.of(archived));
+        when(noteRepository.insertIfAbsent(archived)).thenReturn(false);
+
+        assertThrows(ConflictException.class, () -> noteService.createOrUpdate(request));
+        verify(noteRepository, never()).deleteArchivedById(any());
+        verify(history, never()).recordUpdate(any(), any());
+    }
+
+    @Test
+    void getByIds_shouldLookUpOnlyMissingIdsInArchive() {
+        Note first = buildNote("1", "First", "Text 1", null, CREATED_AT);
+        Note archived = buildNote("2", "Second", "Text 2", null, CREATED_AT);
+
+        when(noteRepository.findAllByIds(Set.of("1", "2", "3"), null)).thenReturn(List.of(first));
+        when(noteRepository.findAllArchivedByIds(Set.of("2", "3"), null)).thenReturn(List.of(archived));
+
+        NoteBatchResponse result = noteService.getByIds(List.of("1", "2", "3"), null);
+
+        assertEquals(List.of("1", "2"), result.getNotes().stream().map(NoteDetailsResponse::getId).toList());
+        assertEquals(List.of("3"), result.getMissing());
+    }
+
+    @Test
+    void getByIds_shouldKeepRequestOrderAndReportMissing() {
+        Note first = buildNote("1", "First", "Text 1", null, CREATED_AT);
+        Note third = buildNote("3", "Third", "Text 3", null, CREATED_AT);
+
+        when(noteRepository.findAllByIds(Set.of("3", "2", "1"), null)).thenReturn(List.of(first, third));
+
+        NoteBatchResponse result = noteService.getByIds(List.of("3", "2", "1"), null);
+
+        assertEquals(List.of("3", "1"), result.getNotes().stream().map(NoteDetailsResponse::getId).toList());
+        assertEquals("Text 3", result.getNotes().get(0).getText());
+        assertEquals(List.of("2"), result.getMissing());
+        verify(noteRepository, never()).findById(any());
+    }
+
+    @Test
+    void getByIds_shouldAlwaysProjectId() {
+        Note note = buildNote("1", "First", null, null, null);
+
+        when(noteRepository.findAllByIds(Set.of("1"), Set.of(NoteField.ID, NoteField.TITLE))).thenReturn(List.of(note));
+
+        NoteBatchResponse result = noteService.getByIds(List.of("1"), Set.of(NoteField.TITLE));
+
+        assertNull(result.getNotes().get(0).getId());
+        assertEquals("First", result.getNotes().get(0).getTitle());
+        assertTrue(result.getMissing().isEmpty());
     }
 
     @Test
@@ -156,17 +478,33 @@ class DefaultNoteServiceTest {
 
         Page<Note> page = new PageImpl<>(List.of(firstNote, secondNote), pageable, 2);
 
-        when(noteRepository.findAllFiltered(null, pageable))
+        when(noteRepository.findAllFiltered(null, NoteField.SUMMARY, pageable))
                 .thenReturn(page);
 
-        Page<NoteSummaryResponse> result = noteService.list(null, pageable);
+        Page<NoteSummaryResponse> result = noteService.list(null, null, pageable);
 
-        verify(noteRepository).findAllFiltered(null, pageable);
+        verify(noteRepository).findAllFiltered(null, NoteField.SUMMARY, pageable);
         assertEquals(2, result.getTotalElements());
         assertEquals("First", result.getContent().get(0).getTitle());
         assertEquals("Second", result.getContent().get(1).getTitle());
     }
 
+    @Test
+    void list_shouldReturnStoredPreviewByDefault() {
+        Pageable pageable = PageRequest.of(0, 20);
+        Note note = buildNote("1", "First", null, null, CREATED_AT);
+        note.setPreview("Start of the text");
+
+        when(noteRepository.findAllFiltered(null, NoteField.SUMMARY, pageable))
+                .thenReturn(new PageImpl<>(List.of(note), pageable, 1));
+
+        Page<NoteSummaryResponse> result = noteService.list(null, null, pageable);
+
+        assertTrue(NoteField.SUMMARY.contains(NoteField.PREVIEW));
+        assertFalse(NoteField.SUMMARY.contains(NoteField.TEXT));
+        assertEquals("Start of the text", result.getContent().get(0).getPreview());
+    }
+
     @Test
     void list_shouldUseFindAllFiltered_whenTagsProvided() {
         Set<NoteTag> tags = Set.of(NoteTag.BUSINESS);
@@ -176,16 +514,96 @@ class DefaultNoteServiceTest {
 
         Page<Note> page = new PageImpl<>(List.of(note), pageable, 1);
 
-        when(noteRepository.findAllFiltered(tags, pageable))
+        NoteFilter filter = NoteFilter.builder().tags(tags).build();
+
+        when(noteRepository.findAllFiltered(filter, NoteField.SUMMARY, pageable))
                 .thenReturn(page);
 
-        Page<NoteSummaryResponse> result = noteService.list(tags, pageable);
+        Page<NoteSummaryResponse> result = noteService.list(filter, null, pageable);
 
-        verify(noteRepository).findAllFiltered(tags, pageable);
+        verify(noteRepository).findAllFiltered(filter, NoteField.SUMMARY, pageable);
         assertEquals(1, result.getTotalElements());
         assertEquals("Business note", result.getContent().get(0).getTitle());
     }
 
+    @Test
+    void list_shouldProjectRequestedFields() {
+        Set<NoteField> fields = Set.of(NoteField.ID, NoteField.TITLE);
+        Pageable pageable = PageRequest.of(0, 10);
+
+        Note note = buildNote("1", "Title", null, null, null);
+        when(noteRepository.findAllFiltered(null, fields, pageable))
+                .thenReturn(new PageImpl<>(List.of(note), pageable, 1));
+
+        NoteSummaryResponse summary = noteService.list(null, fields, pageable).getContent().get(0);
+
+        assertEquals("1", summary.getId());
+        assertEquals("Title", summary.getTitle());
+        assertNull(summary.getCreatedDate());
+        assertNull(summary.getTags());
+    }
+
+    @Test
+    void list_shouldThrowBadRequest_whenTextRequested() {
+        Set<NoteField> fields = Set.of(NoteField.ID, NoteField.TEXT);
+
+        assertThrows(BadRequestException.class, () -> noteService.list(null, fields, PageRequest.of(0, 10)));
+        verifyNoInteractions(noteRepository);
+    }
+
+    @Test
+    void list_shouldThrowBadRequest_whenFromNotBeforeTo() {
+        NoteFilter filter = NoteFilter.builder()
+                .from(CREATED_AT)
+                .to(CREATED_AT)
+                .build();
+
+        assertThrows(BadRequestException.class, () -> noteService.list(filter, null, PageRequest.of(0, 10)));
+        verifyNoInteractions(noteRepository);
+    }
+
+    @Test
+    void histogram_shouldMapCountsToBuckets() {
+        NoteFilter filter = NoteFilter.builder().tags(Set.of(NoteTag.BUSINESS)).build();
+        Map<Instant, Long> counts = new LinkedHashMap<>();
+        counts.put(Instant.parse("2025-01-01T00:00:00Z"), 3L);
+        counts.put(Instant.parse("2025-01-02T00:00:00Z"), 1L);
+
+        when(noteRepository.countByCreatedDate(filter, HistogramInterval.DAY)).thenReturn(counts);
+
+        NoteHistogramResponse result = noteService.histogram(filter, HistogramInterval.DAY);
+
+        assertEquals(HistogramInterval.DAY, result.getInterval());
+        assertEquals(2, result.getBuckets().size());
+        assertEquals(Instant.parse("2025-01-01T00:00:00Z"), result.getBuckets().get(0).getStart());
+        assertEquals(3L, result.getBuckets().get(0).getCount());
+        assertEquals(1L, result.getBuckets().get(1).getCount());
+    }
+
+    @Test
+    void getById_shouldUseProjection_whenFieldsProvided() {
+        Set<NoteField> fields = Set.of(NoteField.ID, NoteField.TITLE, NoteField.CREATED_DATE, NoteField.TAGS);
+        Note note = buildNote("123", "Title", null, Set.of(NoteTag.PERSONAL), CREATED_AT);
+
+        when(noteRepository.findProjectedById("123", fields)).thenReturn(Optional.of(note));
+
+        NoteDetailsResponse result = noteService.getById("123", fields);
+
+        verify(noteRepository, never()).findById(any());
+        assertEquals("123", result.getId());
+        assertEquals(Set.of(NoteTag.PERSONAL), result.getTags());
+        assertNull(result.getText());
+    }
+
+    @Test
+    void getById_shouldThrowNotFound_whenProjectedNoteMissing() {
+        Set<NoteField> fields = Set.of(NoteField.TITLE);
+
+        when(noteRepository.findProjectedById("missing", fields)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> noteService.getById("missing", fields));
+    }
+
     @Test
     void getStats_shouldReturnWordCountsSorted() {
         Note note = buildNote("1", null, "note is just a note!", null, null);
@@ -203,6 +621,61 @@ class DefaultNoteServiceTest {
         assertEquals(1L, stats.get("just"));
     }
 
+    @Test
+    void getStats_shouldReturnTopWords_whenLimitProvided() {
+        Note note = buildNote("1", null, "b a c b a b d", null, null);
+
+        when(noteRepository.findById("1")).thenReturn(Optional.of(note));
+
+        NoteWordStatsRequest request = NoteWordStatsRequest.builder()
+                .limit(2)
+                .build();
+        Map<String, Long> stats = noteService.getStats("1", request).getWordStats();
+
+        assertEquals(List.of("b", "a"), new ArrayList<>(stats.keySet()));
+        assertEquals(3L, stats.get("b"));
+        assertEquals(2L, stats.get("a"));
+    }
+
+    @Test
+    void getStats_shouldBreakTiesAlphabetically_whenLimitCutsThroughEqualCounts() {
+        Note note = buildNote("1", null, "delta charlie bravo alpha", null, null);
+
+        when(noteRepository.findById("1")).thenReturn(Optional.of(note));
+
+        NoteWordStatsRequest request = NoteWordStatsRequest.builder()
+                .limit(2)
+                .build();
+        Map<String, Long> stats = noteService.getStats("1", request).getWordStats();
+
+        assertEquals(List.of("alpha", "bravo"), new ArrayList<>(stats.keySet()));
+    }
+
+    @Test
+    void getStats_shouldApplyMinCountAndMinLength() {
+        Note note = buildNote("1", null, "a a a note note, is: just NOTE!", null, null);
+
+        when(noteRepository.findById("1")).thenReturn(Optional.of(note));
+
+        NoteWordStatsRequest request = NoteWordStatsRequest.builder()
+                .minCount(2)
+                .minLength(2)
+                .build();
+        Map<String, Long> stats = noteService.getStats("1", request).getWordStats();
+
+        assertEquals(Map.of("note", 3L), stats);
+    }
+
+    @Test
+    void getStats_shouldThrowBadRequest_whenLimitNotPositive() {
+        NoteWordStatsRequest request = NoteWordStatsRequest.builder()
+                .limit(0)
+                .build();
+
+        assertThrows(BadRequestException.class, () -> noteService.getStats("1", request));
+        verifyNoInteractions(noteRepository);
+    }
+
     @Test
     void getStats_shouldThrowNotFound_whenNoteMissing() {
         when(noteRepository.findById("missing")).thenReturn(Optional.empty());
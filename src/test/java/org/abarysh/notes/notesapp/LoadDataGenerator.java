@@ -0,0 +1,126 @@
+package org.abarysh.notes.notesapp;
+
+import org.abarysh.notes.notesapp.domain.dto.NoteRequest;
+import org.abarysh.notes.notesapp.domain.enums.NoteTag;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Reproducible notes for {@link NoteLoadTest}, the same seed gives the same notes.
+ * <p>
+ * Text length is log-normal around {@value #MEDIAN_TEXT_LENGTH} characters, most notes are short and a few are long,
+ * capped at {@value #MAX_TEXT_LENGTH}. Words follow a Zipf distribution over a vocabulary of {@value #VOCABULARY_SIZE} words
+ * like natural text. Most notes have no tag or one, {@code PERSONAL} is the most common tag and {@code IMPORTANT} the rarest.
+ */
+class LoadDataGenerator {
+
+    private static final int VOCABULARY_SIZE = 5_000;
+    private static final double ZIPF_EXPONENT = 1.1;
+    private static final int MEDIAN_TEXT_LENGTH = 600;
+    private static final double TEXT_LENGTH_SIGMA = 1.0;
+    private static final int MIN_TEXT_LENGTH = 20;
+    private static final int MAX_TEXT_LENGTH = 64 * 1024;
+
+    /**
+     * Cumulative shares of notes with 0, 1, 2 and 3 tags.
+     */
+    private static final double[] TAG_COUNT_CDF = {0.40, 0.85, 0.97, 1.0};
+    private static final NoteTag[] TAGS = {NoteTag.PERSONAL, NoteTag.BUSINESS, NoteTag.IMPORTANT};
+    private static final double[] TAG_CDF = {0.50, 0.85, 1.0};
+
+    private static final String[] VOCABULARY = vocabulary();
+    private static final double[] WORD_CDF = zipfCdf();
+
+    private final Random random;
+
+    LoadDataGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    NoteRequest note() {
+        return NoteRequest.builder()
+                .title(words(2 + random.nextInt(7), Integer.MAX_VALUE))
+                .text(words(Integer.MAX_VALUE, textLength()))
+                .tags(tags())
+                .build();
+    }
+
+    /**
+     * Tag filter of a list request, {@code null} for an unfiltered list in two cases out of three.
+     */
+    Set<NoteTag> tagFilter() {
+        return random.nextInt(3) == 0 ? Set.of(TAGS[sample(TAG_CDF)]) : null;
+    }
+
+    private int textLength() {
+        double length = MEDIAN_TEXT_LENGTH * Math.exp(TEXT_LENGTH_SIGMA * random.nextGaussian());
+        return (int) Math.max(MIN_TEXT_LENGTH, Math.min(MAX_TEXT_LENGTH, length));
+    }
+
+    private String words(int count, int maxLength) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            String word = VOCABULARY[sample(WORD_CDF)];
+            if (text.length() + word.length() + 1 > maxLength) {
+                break;
+            }
+            if (!text.isEmpty()) {
+                text.append(random.nextInt(12) == 0 ? ".\n" : " ");
+            }
+            text.append(word);
+        }
+        return text.toString();
+    }
+
+    private Set<NoteTag> tags() {
+        int count = sample(TAG_COUNT_CDF);
+        Set<NoteTag> tags = EnumSet.noneOf(NoteTag.class);
+        while (tags.size() < count) {
+            tags.add(TAGS[sample(TAG_CDF)]);
+        }
+        return tags;
+    }
+
+    private int sample(double[] cdf) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Pronounceable made-up words, short ones first so that the frequent words are the short ones.
+     */
+    private static String[] vocabulary() {
+        Random random = new Random(0);
+        String consonants = "bcdfghklmnprstvz";
+        String vowels = "aeiou";
+        String[] words = new String[VOCABULARY_SIZE];
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            int syllables = 1 + (int) Math.log10(i + 1) + random.nextInt(2);
+            StringBuilder word = new StringBuilder();
+            for (int s = 0; s < syllables; s++) {
+                word.append(consonants.charAt(random.nextInt(consonants.length())))
+                        .append(vowels.charAt(random.nextInt(vowels.length())));
+            }
+            words[i] = word.toString();
+        }
+        return words;
+    }
+
+    private static double[] zipfCdf() {
+        double[] cdf = new double[VOCABULARY_SIZE];
+        double sum = 0;
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            cdf[i] /= sum;
+        }
+        cdf[VOCABULARY_SIZE - 1] = 1.0;
+        return cdf;
+    }
+
+}
@@ -0,0 +1,53 @@
+package org.abarysh.notes.notesapp;
+
+import java.util.Random;
+
+/**
+ * Operation mixes of {@link NoteLoadTest}, weights are percent.
+ */
+enum LoadWorkload {
+
+    READ_HEAVY(80, 10, 5, 5),
+    LIST_HEAVY(20, 70, 5, 5),
+    STATS_HEAVY(30, 5, 60, 5),
+    WRITE_HEAVY(20, 10, 0, 70);
+
+    enum Operation {
+        /**
+         * {@code GET /api/notes/{id}}, one in twenty for an id that does not exist.
+         */
+        READ,
+        /**
+         * {@code GET /api/notes}, a random page of the first hundred and sometimes a tag filter.
+         */
+        LIST,
+        /**
+         * {@code GET /api/notes/{id}/stats}
+         */
+        STATS,
+        /**
+         * {@code POST /api/notes} with a generated note.
+         */
+        WRITE
+    }
+
+    private final int[] cumulativeWeights;
+
+    LoadWorkload(int read, int list, int stats, int write) {
+        if (read + list + stats + write != 100) {
+            throw new IllegalArgumentException("weights must add up to 100");
+        }
+        this.cumulativeWeights = new int[]{read, read + list, read + list + stats, 100};
+    }
+
+    Operation next(Random random) {
+        int draw = random.nextInt(100);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (draw < cumulativeWeights[i]) {
+                return Operation.values()[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+}
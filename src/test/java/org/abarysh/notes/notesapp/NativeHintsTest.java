@@ -0,0 +1,55 @@
+package org.abarysh.notes.notesapp;
+
+import org.abarysh.notes.notesapp.config.NativeHints;
+import org.abarysh.notes.notesapp.domain.dto.NoteHistogramResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteRequest;
+import org.abarysh.notes.notesapp.domain.entity.Note;
+import org.abarysh.notes.notesapp.domain.entity.NoteRevision;
+import org.abarysh.notes.notesapp.exсeptions.ApiError;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NativeHintsTest {
+
+    private static final String SWAGGER_UI_POM = "META-INF/maven/org.webjars/swagger-ui/pom.properties";
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    @Test
+    void registerHints_shouldCoverMongoMappingDtosAndSwaggerUi() throws IOException {
+        new NativeHints.Registrar().registerHints(hints, getClass().getClassLoader());
+
+        assertTrue(RuntimeHintsPredicates.reflection().onType(Note.class)
+                .withMemberCategories(MemberCategory.DECLARED_FIELDS).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(NoteRevision.Edit.class)
+                .withMemberCategories(MemberCategory.DECLARED_FIELDS).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(NoteRequest.class).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(NoteHistogramResponse.Bucket.class).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(ApiError.class).test(hints));
+        assertTrue(RuntimeHintsPredicates.resource().forResource(SWAGGER_UI_POM).test(hints));
+        assertTrue(RuntimeHintsPredicates.resource()
+                .forResource("META-INF/resources/webjars/swagger-ui/%s/index.html".formatted(swaggerUiVersion())).test(hints));
+    }
+
+    /**
+     * Version of the webjar springdoc brought in, read the same way springdoc does.
+     */
+    private String swaggerUiVersion() throws IOException {
+        Properties pom = new Properties();
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(SWAGGER_UI_POM)) {
+            assertNotNull(in, SWAGGER_UI_POM + " is not on the classpath");
+            pom.load(in);
+        }
+        return pom.getProperty("version");
+    }
+
+}
@@ -0,0 +1,154 @@
+package org.abarysh.notes.notesapp;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.abarysh.notes.notesapp.config.IdFilterProperties;
+import org.abarysh.notes.notesapp.config.RevisionProperties;
+import org.abarysh.notes.notesapp.config.TenantProperties;
+import org.abarysh.notes.notesapp.config.WriteBehindProperties;
+import org.abarysh.notes.notesapp.exсeptions.ApiError;
+import org.abarysh.notes.notesapp.exсeptions.NotFoundException;
+import org.abarysh.notes.notesapp.exсeptions.handler.GlobalExceptionHandler;
+import org.abarysh.notes.notesapp.repo.NoteRepository;
+import org.abarysh.notes.notesapp.service.NoteService;
+import org.abarysh.notes.notesapp.service.idfilter.NoteIdFilter;
+import org.abarysh.notes.notesapp.service.impl.DefaultNoteService;
+import org.abarysh.notes.notesapp.service.revision.NoteHistory;
+import org.abarysh.notes.notesapp.service.writebehind.NoteWriteBehind;
+import org.abarysh.notes.notesapp.tenant.TenantQuota;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.IntFunction;
+
+/**
+ * Manual benchmark of the 404 path for unknown ids, not part of the test run.
+ * <p>
+ * "before" replays the previous path: WARN per miss, {@code String.formatted} message and an exception
+ * with a stack trace. "after" goes through {@link DefaultNoteService} and {@link GlobalExceptionHandler},
+ * "id filter" does the same with a built {@link NoteIdFilter}, so misses never reach the repository.
+ * Both run {@value #STACK_DEPTH} frames deep, about as deep as a controller call inside Tomcat and Spring MVC,
+ * and log into a discarding appender so that formatting is measured but not console output.
+ * <p>
+ * {@code mvn test-compile exec:java -Dexec.mainClass=org.abarysh.notes.notesapp.NotFoundBenchmark -Dexec.classpathScope=test}
+ */
+public class NotFoundBenchmark {
+
+    private static final int WARMUP_ROUNDS = 50_000;
+    private static final int MEASURED_ROUNDS = 200_000;
+    private static final int STACK_DEPTH = 150;
+
+    private static final Logger log = LoggerFactory.getLogger(NotFoundBenchmark.class);
+
+    public static void main(String[] args) {
+        discardLogOutput();
+
+        TenantQuota tenantQuota = new TenantQuota(null, new TenantProperties());
+        NoteWriteBehind writeBehind = new NoteWriteBehind(emptyRepository(), new WriteBehindProperties(), new SimpleMeterRegistry());
+        NoteHistory history = new NoteHistory(null, new RevisionProperties());
+        NoteService noteService = new DefaultNoteService(emptyRepository(), tenantQuota, idFilter(false, writeBehind), writeBehind, history);
+        NoteService filteredNoteService = new DefaultNoteService(emptyRepository(), tenantQuota, idFilter(true, writeBehind), writeBehind, history);
+        GlobalExceptionHandler handler = new GlobalExceptionHandler();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/notes/unknown");
+
+        report("before", i -> {
+            String id = Long.toHexString(i);
+            log.warn("Note with id '{}' not found", id);
+            RuntimeException ex = new RuntimeException("Note with id %s not found".formatted(id));
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiError.builder()
+                    .occurredAt(Instant.now())
+                    .status(HttpStatus.NOT_FOUND.value())
+                    .error(HttpStatus.NOT_FOUND.getReasonPhrase())
+                    .message(ex.getMessage())
+                    .path(request.getRequestURI())
+                    .build());
+        });
+        report("after", i -> {
+            try {
+                return noteService.getById(Long.toHexString(i), null);
+            } catch (NotFoundException ex) {
+                return handler.handleNotFound(ex, request);
+            }
+        });
+        report("id filter", i -> {
+            try {
+                return filteredNoteService.getById(Long.toHexString(i), null);
+            } catch (NotFoundException ex) {
+                return handler.handleNotFound(ex, request);
+            }
+        });
+    }
+
+    private static NoteIdFilter idFilter(boolean enabled, NoteWriteBehind writeBehind) {
+        IdFilterProperties properties = new IdFilterProperties();
+        properties.setEnabled(enabled);
+        properties.setExpectedIds(1_000);
+        NoteIdFilter idFilter = new NoteIdFilter(emptyRepository(), writeBehind, properties, new SimpleMeterRegistry());
+        idFilter.rebuild();
+        return idFilter;
+    }
+
+    private static void report(String name, IntFunction<Object> notFound) {
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += atDepth(STACK_DEPTH, notFound, i).hashCode();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            sink += atDepth(STACK_DEPTH, notFound, i).hashCode();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-9s %,12.0f 404/s (%d)%n", name, MEASURED_ROUNDS / seconds, sink & 1);
+    }
+
+    private static Object atDepth(int depth, IntFunction<Object> task, int i) {
+        return depth == 0 ? task.apply(i) : atDepth(depth - 1, task, i);
+    }
+
+    private static NoteRepository emptyRepository() {
+        return (NoteRepository) Proxy.newProxyInstance(NoteRepository.class.getClassLoader(), new Class<?>[]{NoteRepository.class},
+                (proxy, method, args) -> {
+                    Class<?> type = method.getReturnType();
+                    if (type == Optional.class) {
+                        return Optional.empty();
+                    }
+                    if (type == List.class) {
+                        return List.of();
+                    }
+                    if (type == long.class) {
+                        return 0L;
+                    }
+                    return type == boolean.class ? false : null;
+                });
+    }
+
+    private static void discardLogOutput() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d %level [%thread] %logger - %msg%n");
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+
+        ch.qos.logback.classic.Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.detachAndStopAllAppenders();
+        root.addAppender(appender);
+    }
+
+}
@@ -0,0 +1,73 @@
+package org.abarysh.notes.notesapp;
+
+import org.abarysh.notes.notesapp.config.ArchiveProperties;
+import org.abarysh.notes.notesapp.repo.NoteRepository;
+import org.abarysh.notes.notesapp.service.archive.NoteArchiveJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NoteArchiveJobTest {
+
+    @Mock
+    private NoteRepository noteRepository;
+
+    private ArchiveProperties properties;
+
+    private NoteArchiveJob job;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ArchiveProperties();
+        properties.setEnabled(true);
+        properties.setOlderThan(Duration.ofDays(30));
+        properties.setBatchSize(2);
+        properties.setBatchPause(Duration.ZERO);
+        job = new NoteArchiveJob(noteRepository, properties);
+    }
+
+    @Test
+    void archive_shouldMoveBatchesUntilShortBatch() {
+        when(noteRepository.archiveCreatedBefore(any(), eq(2))).thenReturn(2, 2, 1);
+
+        Instant before = Instant.now().minus(Duration.ofDays(30));
+        job.archive();
+
+        ArgumentCaptor<Instant> cutoff = ArgumentCaptor.forClass(Instant.class);
+        verify(noteRepository, times(3)).archiveCreatedBefore(cutoff.capture(), eq(2));
+        assertFalse(cutoff.getValue().isBefore(before));
+        assertEquals(1, cutoff.getAllValues().stream().distinct().count());
+    }
+
+    @Test
+    void archive_shouldStop_whenNothingToArchive() {
+        when(noteRepository.archiveCreatedBefore(any(), eq(2))).thenReturn(0);
+
+        job.archive();
+
+        verify(noteRepository, times(1)).archiveCreatedBefore(any(), eq(2));
+    }
+
+    @Test
+    void archive_shouldDoNothing_whenDisabled() {
+        properties.setEnabled(false);
+
+        job.archive();
+
+        verifyNoInteractions(noteRepository);
+    }
+
+}
@@ -1,16 +1,32 @@
 package org.abarysh.notes.notesapp;
 
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.abarysh.notes.notesapp.api.NoteController;
+import org.abarysh.notes.notesapp.domain.dto.NoteBatchRequest;
+import org.abarysh.notes.notesapp.domain.dto.NoteBatchResponse;
 import org.abarysh.notes.notesapp.domain.dto.NoteDetailsResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteDuplicateResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteFilter;
+import org.abarysh.notes.notesapp.domain.dto.NoteHistogramResponse;
 import org.abarysh.notes.notesapp.domain.dto.NoteRequest;
+import org.abarysh.notes.notesapp.domain.dto.NoteRevisionResponse;
 import org.abarysh.notes.notesapp.domain.dto.NoteSummaryResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteWordStatsRequest;
 import org.abarysh.notes.notesapp.domain.dto.NoteWordStatsResponse;
+import org.abarysh.notes.notesapp.domain.enums.HistogramInterval;
+import org.abarysh.notes.notesapp.domain.enums.NoteField;
 import org.abarysh.notes.notesapp.domain.enums.NoteTag;
+import org.abarysh.notes.notesapp.exсeptions.BadRequestException;
+import org.abarysh.notes.notesapp.exсeptions.ConflictException;
 import org.abarysh.notes.notesapp.exсeptions.NotFoundException;
+import org.abarysh.notes.notesapp.exсeptions.QuotaExceededException;
 import org.abarysh.notes.notesapp.exсeptions.handler.GlobalExceptionHandler;
 import org.abarysh.notes.notesapp.service.NoteService;
+import org.abarysh.notes.notesapp.tenant.TenantInterceptor;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -28,10 +44,12 @@ import java.time.Instant;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 import static org.mockito.Mockito.*;
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -57,7 +75,7 @@ class NoteControllerTest {
 
         NoteDetailsResponse response = buildDetails("Test title", "Some text");
 
-        when(noteService.createOrUpdate(any(NoteRequest.class))).thenReturn(response);
+        when(noteService.createOrUpdate(any(NoteRequest.class), eq(false))).thenReturn(response);
 
         performSave(request)
                 .andExpect(status().isOk())
@@ -92,11 +110,70 @@ class NoteControllerTest {
     }
 
 
+    @Test
+    void saveNote_shouldReturnForbidden_whenTenantQuotaExceeded() throws Exception {
+        NoteRequest request = buildRequest("Test title", "Some text");
+
+        when(noteService.createOrUpdate(any(NoteRequest.class), eq(false)))
+                .thenThrow(new QuotaExceededException("Tenant acme reached its limit of 10 notes"));
+
+        mockMvc.perform(post("/api/notes")
+                        .header(TenantInterceptor.TENANT_HEADER, "acme")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.status").value(403))
+                .andExpect(jsonPath("$.message").value("Tenant acme reached its limit of 10 notes"));
+    }
+
+    @Test
+    void getById_shouldReturnBadRequest_whenTenantHeaderMalformed() throws Exception {
+        mockMvc.perform(get("/api/notes/{id}", "123")
+                        .header(TenantInterceptor.TENANT_HEADER, "acme/../globex"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(containsString(TenantInterceptor.TENANT_HEADER)));
+
+        verifyNoInteractions(noteService);
+    }
+
+    @Test
+    void saveNote_shouldReturnConflict_whenDuplicateRejected() throws Exception {
+        NoteRequest request = buildRequest("Test title", "Some text");
+
+        when(noteService.createOrUpdate(any(NoteRequest.class), eq(true)))
+                .thenThrow(new ConflictException("Note is a near-duplicate of note with id 123"));
+
+        mockMvc.perform(post("/api/notes")
+                        .param("rejectDuplicates", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.status").value(409))
+                .andExpect(jsonPath("$.message").value("Note is a near-duplicate of note with id 123"));
+    }
+
+    @Test
+    void findDuplicates_shouldReturnDuplicates() throws Exception {
+        NoteDuplicateResponse duplicate = NoteDuplicateResponse.builder()
+                .id("456")
+                .title("Copy")
+                .createdDate(CREATED_AT)
+                .similarity(0.9)
+                .build();
+
+        when(noteService.findDuplicates("123", 0.75)).thenReturn(List.of(duplicate));
+
+        mockMvc.perform(get("/api/notes/{id}/duplicates", "123").param("threshold", "0.75"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("456"))
+                .andExpect(jsonPath("$[0].similarity").value(0.9));
+    }
+
     @Test
     void getById_shouldReturnNoteDetails() throws Exception {
         NoteDetailsResponse response = buildDetails("Complete the test task", "Be careful and smart!");
 
-        when(noteService.getById("123")).thenReturn(response);
+        when(noteService.getById("123", null)).thenReturn(response);
 
         mockMvc.perform(get("/api/notes/{id}", "123"))
                 .andExpect(status().isOk())
@@ -106,9 +183,61 @@ class NoteControllerTest {
                 .andExpect(jsonPath("$.createdDate").exists());
     }
 
+    @Test
+    void listRevisions_shouldReturnPage() throws Exception {
+        NoteRevisionResponse revision = NoteRevisionResponse.builder()
+                .revision(2)
+                .savedDate(Instant.parse("2025-02-27T00:00:00Z"))
+                .build();
+
+        when(noteService.listRevisions("123", PageRequest.of(0, 5)))
+                .thenReturn(new PageImpl<>(List.of(revision), PageRequest.of(0, 5), 1));
+
+        mockMvc.perform(get("/api/notes/{id}/revisions", "123").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].revision").value(2))
+                .andExpect(jsonPath("$.content[0].snapshot").value(false))
+                .andExpect(jsonPath("$.totalElements").value(1));
+    }
+
+    @Test
+    void getRevision_shouldReturnNotFound_whenRevisionMissing() throws Exception {
+        when(noteService.getRevision("123", 7)).thenThrow(new NotFoundException("Revision 7 of note with id 123 not found"));
+
+        mockMvc.perform(get("/api/notes/{id}/revisions/{revision}", "123", 7))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Revision 7 of note with id 123 not found"));
+    }
+
+    @Test
+    void getById_shouldBindFieldsByPropertyName() throws Exception {
+        NoteDetailsResponse response = NoteDetailsResponse.builder()
+                .id("123")
+                .title("Only title")
+                .build();
+
+        when(noteService.getById("123", Set.of(NoteField.ID, NoteField.TITLE))).thenReturn(response);
+
+        mockMvc.perform(get("/api/notes/{id}", "123").param("fields", "id,title"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("123"))
+                .andExpect(jsonPath("$.title").value("Only title"))
+                .andExpect(jsonPath("$.text").doesNotExist())
+                .andExpect(jsonPath("$.createdDate").doesNotExist());
+    }
+
+    @Test
+    void getById_shouldReturnBadRequest_whenFieldUnknown() throws Exception {
+        mockMvc.perform(get("/api/notes/{id}", "123").param("fields", "id,owner"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400));
+
+        verifyNoInteractions(noteService);
+    }
+
     @Test
     void getById_shouldReturnNotFound_whenNoteIdMissing() throws Exception {
-        when(noteService.getById("missing")).thenThrow(new NotFoundException("Note with id missing not found"));
+        when(noteService.getById("missing", null)).thenThrow(new NotFoundException("Note with id missing not found"));
 
         mockMvc.perform(get("/api/notes/{id}", "missing"))
                 .andExpect(status().isNotFound())
@@ -118,6 +247,34 @@ class NoteControllerTest {
                 .andExpect(jsonPath("$.path").value("/api/notes/missing"));
     }
 
+    @Test
+    void getByIds_shouldReturnNotesAndMissingIds() throws Exception {
+        NoteBatchResponse response = NoteBatchResponse.builder()
+                .notes(List.of(buildDetails("First", "Text")))
+                .missing(List.of("456"))
+                .build();
+
+        when(noteService.getByIds(List.of("123", "456"), null)).thenReturn(response);
+
+        mockMvc.perform(post("/api/notes/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(NoteBatchRequest.builder().ids(List.of("123", "456")).build())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.notes[0].id").value("123"))
+                .andExpect(jsonPath("$.missing[0]").value("456"));
+    }
+
+    @Test
+    void getByIds_shouldReturnBadRequest_whenIdsEmpty() throws Exception {
+        mockMvc.perform(post("/api/notes/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(NoteBatchRequest.builder().ids(List.of()).build())))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("ids: ids must not be empty")));
+
+        verifyNoInteractions(noteService);
+    }
+
     @Test
     void list_shouldReturnPageOfSummaries() throws Exception {
         NoteSummaryResponse noteSummaryFirst = buildSummary("My first note", CREATED_AT);
@@ -125,7 +282,7 @@ class NoteControllerTest {
 
         Page<NoteSummaryResponse> page = new PageImpl<>(List.of(noteSummaryFirst, noteSummarySecond), PageRequest.of(0, 20), 2);
 
-        when(noteService.list(any(), any(Pageable.class))).thenReturn(page);
+        when(noteService.list(any(), any(), any(Pageable.class))).thenReturn(page);
 
         mockMvc.perform(get("/api/notes")
                         .param("page", "0")
@@ -147,7 +304,11 @@ class NoteControllerTest {
 
         Page<NoteSummaryResponse> page = new PageImpl<>(List.of(noteSummaryResponse), PageRequest.of(0, 10), 1);
 
-        when(noteService.list(eq(Set.of(NoteTag.BUSINESS, NoteTag.IMPORTANT)), any(Pageable.class)))
+        NoteFilter filter = NoteFilter.builder()
+                .tags(Set.of(NoteTag.BUSINESS, NoteTag.IMPORTANT))
+                .build();
+
+        when(noteService.list(eq(filter), any(), any(Pageable.class)))
                 .thenReturn(page);
 
         mockMvc.perform(get("/api/notes")
@@ -160,6 +321,125 @@ class NoteControllerTest {
                 .andExpect(jsonPath("$.totalElements").value(1));
     }
 
+    @Test
+    void list_shouldPassCreatedDateRange() throws Exception {
+        NoteFilter filter = NoteFilter.builder()
+                .from(Instant.parse("2025-01-01T00:00:00Z"))
+                .to(Instant.parse("2025-02-01T00:00:00Z"))
+                .build();
+
+        when(noteService.list(eq(filter), any(), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(), PageRequest.of(0, 20), 0));
+
+        mockMvc.perform(get("/api/notes")
+                        .param("from", "2025-01-01T00:00:00Z")
+                        .param("to", "2025-02-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(0));
+    }
+
+    @Test
+    void list_shouldReturnBadRequest_whenSizeAboveMax() throws Exception {
+        mockMvc.perform(get("/api/notes")
+                        .param("size", "101"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("size must be between 1 and 100"));
+
+        mockMvc.perform(get("/api/notes")
+                        .param("page", "-1"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(noteService);
+    }
+
+    @Test
+    void histogram_shouldReturnBuckets() throws Exception {
+        NoteHistogramResponse response = NoteHistogramResponse.builder()
+                .interval(HistogramInterval.MONTH)
+                .buckets(List.of(new NoteHistogramResponse.Bucket(Instant.parse("2025-01-01T00:00:00Z"), 5)))
+                .build();
+
+        when(noteService.histogram(any(NoteFilter.class), eq(HistogramInterval.MONTH))).thenReturn(response);
+
+        mockMvc.perform(get("/api/notes/histogram")
+                        .param("interval", "MONTH"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.interval").value("MONTH"))
+                .andExpect(jsonPath("$.buckets[0].start").value("2025-01-01T00:00:00Z"))
+                .andExpect(jsonPath("$.buckets[0].count").value(5));
+    }
+
+    @Test
+    void histogram_shouldReturnBadRequest_whenIntervalUnknown() throws Exception {
+        mockMvc.perform(get("/api/notes/histogram")
+                        .param("interval", "YEAR"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(noteService);
+    }
+
+    @Test
+    void list_shouldReturnLeanPageEnvelope() throws Exception {
+        Page<NoteSummaryResponse> page = new PageImpl<>(List.of(buildSummary("My first note", CREATED_AT)), PageRequest.of(1, 1), 3);
+
+        when(noteService.list(any(), any(), any(Pageable.class))).thenReturn(page);
+
+        mockMvc.perform(get("/api/notes")
+                        .param("page", "1")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.number").value(1))
+                .andExpect(jsonPath("$.size").value(1))
+                .andExpect(jsonPath("$.totalElements").value(3))
+                .andExpect(jsonPath("$.totalPages").value(3))
+                .andExpect(jsonPath("$.pageable").doesNotExist())
+                .andExpect(jsonPath("$.sort").doesNotExist());
+    }
+
+    @Test
+    void getById_shouldReturnSmile_whenAccepted() throws Exception {
+        when(noteService.getById("123", null)).thenReturn(buildDetails("Binary note", "Some text"));
+
+        byte[] body = mockMvc.perform(get("/api/notes/{id}", "123").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        JsonNode node = new ObjectMapper(new SmileFactory()).readTree(body);
+        assertEquals("123", node.get("id").asText());
+        assertEquals("Binary note", node.get("title").asText());
+        assertEquals("2025-02-27T00:00:00Z", node.get("createdDate").asText());
+    }
+
+    @Test
+    void list_shouldReturnCbor_whenAccepted() throws Exception {
+        Page<NoteSummaryResponse> page = new PageImpl<>(List.of(buildSummary("My first note", CREATED_AT)), PageRequest.of(0, 20), 1);
+
+        when(noteService.list(any(), any(), any(Pageable.class))).thenReturn(page);
+
+        byte[] body = mockMvc.perform(get("/api/notes").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        JsonNode node = new ObjectMapper(new CBORFactory()).readTree(body);
+        assertEquals("My first note", node.get("content").get(0).get("title").asText());
+        assertEquals(1, node.get("totalElements").asInt());
+    }
+
+    @Test
+    void getById_shouldReturnJson_whenAnyTypeAccepted() throws Exception {
+        when(noteService.getById("123", null)).thenReturn(buildDetails("Json note", "Some text"));
+
+        mockMvc.perform(get("/api/notes/{id}", "123").accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
     @Test
     void delete_shouldCallServiceAndReturnOk() throws Exception {
         doNothing().when(noteService).delete("123");
@@ -177,7 +457,7 @@ class NoteControllerTest {
         stats.put("task", 1L);
         NoteWordStatsResponse noteWordStatsResponse = new NoteWordStatsResponse(stats);
 
-        when(noteService.getStats("123")).thenReturn(noteWordStatsResponse);
+        when(noteService.getStats(eq("123"), any(NoteWordStatsRequest.class))).thenReturn(noteWordStatsResponse);
 
         mockMvc.perform(get("/api/notes/{id}/stats", "123"))
                 .andExpect(status().isOk())
@@ -185,9 +465,53 @@ class NoteControllerTest {
                 .andExpect(jsonPath("$.wordStats.task").value(1));
     }
 
+    @Test
+    void getStats_shouldPassLimitAndThresholds() throws Exception {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("test", 2L);
+        NoteWordStatsResponse noteWordStatsResponse = new NoteWordStatsResponse(stats);
+
+        NoteWordStatsRequest expected = NoteWordStatsRequest.builder()
+                .limit(1)
+                .minCount(2)
+                .minLength(3)
+                .build();
+
+        when(noteService.getStats("123", expected)).thenReturn(noteWordStatsResponse);
+
+        mockMvc.perform(get("/api/notes/{id}/stats", "123")
+                        .param("limit", "1")
+                        .param("minCount", "2")
+                        .param("minLength", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.wordStats.test").value(2));
+    }
+
+    @Test
+    void getStats_shouldReturnBadRequest_whenLimitInvalid() throws Exception {
+        when(noteService.getStats(eq("123"), any(NoteWordStatsRequest.class)))
+                .thenThrow(new BadRequestException("limit must be greater than 0"));
+
+        mockMvc.perform(get("/api/notes/{id}/stats", "123").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400))
+                .andExpect(jsonPath("$.message").value("limit must be greater than 0"))
+                .andExpect(jsonPath("$.path").value("/api/notes/123/stats"));
+    }
+
+    @Test
+    void getStats_shouldReturnBadRequest_whenAnalyzerUnknown() throws Exception {
+        mockMvc.perform(get("/api/notes/{id}/stats", "123").param("analyzer", "KLINGON"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400))
+                .andExpect(jsonPath("$.message").value("analyzer: invalid value 'KLINGON'"));
+
+        verifyNoInteractions(noteService);
+    }
+
     @Test
     void getById_shouldReturnInternalServerError() throws Exception {
-        when(noteService.getById("123")).thenThrow(new RuntimeException("Unexpected error occurred"));
+        when(noteService.getById("123", null)).thenThrow(new RuntimeException("Unexpected error occurred"));
 
         mockMvc.perform(get("/api/notes/{id}", "123"))
                 .andExpect(status().isInternalServerError())
@@ -222,6 +546,34 @@ class NoteControllerTest {
                 .build();
     }
 
+    @Test
+    void saveNote_shouldReturnAccepted_whenQueued() throws Exception {
+        NoteRequest request = buildRequest("Test title", "Some text");
+        when(noteService.createAsync(any(NoteRequest.class), eq(false)))
+                .thenReturn(Optional.of(buildDetails("Test title", "Some text")));
+
+        mockMvc.perform(post("/api/notes").param("async", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value("123"));
+
+        verify(noteService, never()).createOrUpdate(any(NoteRequest.class), anyBoolean());
+    }
+
+    @Test
+    void saveNote_shouldWriteSynchronously_whenNotQueued() throws Exception {
+        NoteRequest request = buildRequest("Test title", "Some text");
+        when(noteService.createAsync(any(NoteRequest.class), eq(false))).thenReturn(Optional.empty());
+        when(noteService.createOrUpdate(any(NoteRequest.class), eq(false))).thenReturn(buildDetails("Test title", "Some text"));
+
+        mockMvc.perform(post("/api/notes").param("async", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("123"));
+    }
+
     private ResultActions performSave(NoteRequest request) throws Exception {
         return mockMvc.perform(post("/api/notes")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -0,0 +1,179 @@
+package org.abarysh.notes.notesapp;
+
+import org.abarysh.notes.notesapp.config.RevisionProperties;
+import org.abarysh.notes.notesapp.domain.entity.Note;
+import org.abarysh.notes.notesapp.domain.entity.NoteRevision;
+import org.abarysh.notes.notesapp.domain.enums.NoteTag;
+import org.abarysh.notes.notesapp.repo.NoteRevisionRepository;
+import org.abarysh.notes.notesapp.service.revision.NoteHistory;
+import org.abarysh.notes.notesapp.service.revision.TextDiff;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NoteHistoryTest {
+
+    private static final Instant CREATED_AT = Instant.parse("2025-02-27T00:00:00Z");
+    private static final String TEXT = "Shopping list\n" + "- milk\n".repeat(100);
+
+    @Mock
+    private NoteRevisionRepository revisionRepository;
+
+    private NoteHistory history;
+
+    @BeforeEach
+    void setUp() {
+        RevisionProperties properties = new RevisionProperties();
+        properties.setSnapshotEvery(3);
+        history = new NoteHistory(revisionRepository, properties);
+    }
+
+    @Test
+    void recordUpdate_shouldStoreMissingPreviousRevisionAndDiff() {
+        Note note = buildNote(null, "Title", TEXT);
+        NoteRevision previous = NoteHistory.snapshot(note);
+        note.setText(TEXT + "- bread\n");
+        note.setRevision(2);
+
+        history.recordUpdate(previous, note);
+
+        List<NoteRevision> revisions = captureInserted();
+        assertEquals(2, revisions.size());
+        assertTrue(revisions.get(0).isSnapshot());
+        assertEquals(1, revisions.get(0).getRevision());
+        assertEquals(CREATED_AT, revisions.get(0).getSavedDate());
+        assertEquals(TEXT, revisions.get(0).getText());
+
+        NoteRevision diff = revisions.get(1);
+        assertFalse(diff.isSnapshot());
+        assertEquals(2, diff.getRevision());
+        assertNull(diff.getText());
+        assertNull(diff.getTitle());
+        assertNull(diff.getTags());
+        assertEquals(List.of(new NoteRevision.Edit(TEXT.length(), 0, "- bread\n")), diff.getEdits());
+    }
+
+    @Test
+    void recordUpdate_shouldStoreSnapshot_everySnapshotEveryRevisions() {
+        Note note = buildNote(3, "Title", TEXT);
+        NoteRevision previous = NoteHistory.snapshot(note);
+        note.setText(TEXT + "- bread\n");
+        note.setRevision(4);
+        when(revisionRepository.exists("123", 3)).thenReturn(true);
+
+        history.recordUpdate(previous, note);
+
+        NoteRevision revision = captureInserted().getFirst();
+        assertEquals(4, revision.getRevision());
+        assertTrue(revision.isSnapshot());
+        assertEquals(TEXT + "- bread\n", revision.getText());
+        assertEquals("Title", revision.getTitle());
+    }
+
+    @Test
+    void recordUpdate_shouldStoreSnapshot_whenDiffIsNotSmaller() {
+        Note note = buildNote(1, "Title", "short");
+        NoteRevision previous = NoteHistory.snapshot(note);
+        note.setText("other");
+        note.setRevision(2);
+        when(revisionRepository.exists("123", 1)).thenReturn(true);
+
+        history.recordUpdate(previous, note);
+
+        assertTrue(captureInserted().getFirst().isSnapshot());
+    }
+
+    @Test
+    void recordUpdate_shouldNotWrite_whenDisabled() {
+        RevisionProperties properties = new RevisionProperties();
+        properties.setEnabled(false);
+        Note note = buildNote(2, "Title", TEXT);
+
+        new NoteHistory(revisionRepository, properties).recordUpdate(NoteHistory.snapshot(note), note);
+
+        verifyNoInteractions(revisionRepository);
+    }
+
+    @Test
+    void find_shouldRebuildRevisionFromSnapshotAndDiffs() {
+        String second = TEXT + "- bread\n";
+        String third = second.replace("Shopping list", "Groceries");
+        NoteRevision snapshot = NoteRevision.builder()
+                .revision(1).snapshot(true).title("Title").text(TEXT).tags(Set.of(NoteTag.PERSONAL)).build();
+        NoteRevision secondDiff = NoteRevision.builder()
+                .revision(2).edits(TextDiff.diff(TEXT, second)).title("Renamed").build();
+        NoteRevision thirdDiff = NoteRevision.builder()
+                .revision(3).edits(TextDiff.diff(second, third)).tags(Set.of()).build();
+        when(revisionRepository.findLatestSnapshot("123", 3)).thenReturn(Optional.of(snapshot));
+        when(revisionRepository.findRange("123", 2, 3)).thenReturn(List.of(secondDiff, thirdDiff));
+
+        Note rebuilt = history.find(buildNote(4, "Current", "current"), 3).orElseThrow();
+
+        assertEquals(third, rebuilt.getText());
+        assertEquals("Renamed", rebuilt.getTitle());
+        assertEquals(Set.of(), rebuilt.getTags());
+        assertEquals(3, rebuilt.getRevision());
+        assertEquals(CREATED_AT, rebuilt.getCreatedDate());
+    }
+
+    @Test
+    void find_shouldReturnNoteItself_forCurrentRevision() {
+        Note note = buildNote(null, "Title", TEXT);
+
+        assertSame(note, history.find(note, 1).orElseThrow());
+        assertTrue(history.find(note, 2).isEmpty());
+        verifyNoInteractions(revisionRepository);
+    }
+
+    @Test
+    void find_shouldReturnEmpty_whenRevisionMissing() {
+        NoteRevision snapshot = NoteRevision.builder().revision(1).snapshot(true).title("Title").text(TEXT).build();
+        when(revisionRepository.findLatestSnapshot("123", 3)).thenReturn(Optional.of(snapshot));
+        when(revisionRepository.findRange(anyString(), anyInt(), anyInt()))
+                .thenReturn(List.of(NoteRevision.builder().revision(3).edits(List.of()).build()));
+
+        assertTrue(history.find(buildNote(5, "Title", TEXT), 3).isEmpty());
+    }
+
+    @Test
+    void deleteAll_shouldOnlyLog_whenDeleteFails() {
+        doThrow(new DataAccessResourceFailureException("primary stepped down")).when(revisionRepository).deleteAll("123");
+
+        assertDoesNotThrow(() -> history.deleteAll("123"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<NoteRevision> captureInserted() {
+        ArgumentCaptor<List<NoteRevision>> captor = ArgumentCaptor.forClass(List.class);
+        verify(revisionRepository).insertAll(captor.capture());
+        return captor.getValue();
+    }
+
+    private Note buildNote(Integer revision, String title, String text) {
+        return Note.builder()
+                .id("123")
+                .tenantId("default")
+                .title(title)
+                .text(text)
+                .tags(Set.of(NoteTag.PERSONAL))
+                .createdDate(CREATED_AT)
+                .revision(revision)
+                .build();
+    }
+
+}
@@ -0,0 +1,143 @@
+package org.abarysh.notes.notesapp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.abarysh.notes.notesapp.config.IdFilterProperties;
+import org.abarysh.notes.notesapp.repo.NoteRepository;
+import org.abarysh.notes.notesapp.service.idfilter.CountingBloomFilter;
+import org.abarysh.notes.notesapp.service.idfilter.NoteIdFilter;
+import org.abarysh.notes.notesapp.service.writebehind.NoteWriteBehind;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NoteIdFilterTest {
+
+    private static final ObjectId EXISTING = idAt(Instant.now().minus(1, ChronoUnit.DAYS));
+    private static final ObjectId DELETED = idAt(Instant.now().minus(2, ChronoUnit.DAYS));
+
+    @Mock
+    private NoteRepository noteRepository;
+
+    @Mock
+    private NoteWriteBehind writeBehind;
+
+    private IdFilterProperties properties;
+
+    private NoteIdFilter idFilter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new IdFilterProperties();
+        properties.setEnabled(true);
+        properties.setExpectedIds(1_000);
+        lenient().when(writeBehind.maxWriteDelay()).thenReturn(Duration.ZERO);
+        idFilter = new NoteIdFilter(noteRepository, writeBehind, properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void countingBloomFilter_shouldKeepFalsePositiveRateAndForgetRemovedKeys() {
+        CountingBloomFilter filter = new CountingBloomFilter(10_000, 0.01);
+        List<String> keys = IntStream.range(0, 10_000).mapToObj(i -> "note-" + i).toList();
+        keys.forEach(filter::add);
+
+        assertTrue(keys.stream().allMatch(filter::mightContain));
+        long falsePositives = IntStream.range(0, 10_000).filter(i -> filter.mightContain("other-" + i)).count();
+        assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+
+        keys.subList(0, 5_000).forEach(filter::remove);
+        assertTrue(keys.subList(5_000, 10_000).stream().allMatch(filter::mightContain));
+        long stillPositive = keys.subList(0, 5_000).stream().filter(filter::mightContain).count();
+        assertTrue(stillPositive < 100, "removed but still positive: " + stillPositive);
+    }
+
+    @Test
+    void definitelyAbsent_shouldBeFalse_untilFilterBuilt() {
+        assertFalse(idFilter.definitelyAbsent(DELETED.toHexString()));
+
+        properties.setEnabled(false);
+        idFilter.rebuild();
+
+        assertFalse(idFilter.definitelyAbsent(DELETED.toHexString()));
+        verifyNoInteractions(noteRepository);
+    }
+
+    @Test
+    void definitelyAbsent_shouldTrustFilterOnlyForIdsOlderThanScan() {
+        scan(EXISTING.toHexString(), DELETED.toHexString());
+        idFilter.rebuild();
+
+        assertFalse(idFilter.definitelyAbsent(EXISTING.toHexString()));
+        assertFalse(idFilter.definitelyAbsent(DELETED.toHexString()));
+        assertTrue(idFilter.definitelyAbsent(idAt(Instant.now().minus(3, ChronoUnit.DAYS)).toHexString()));
+        assertTrue(idFilter.definitelyAbsent("not-an-object-id"));
+        // may have been created on another instance after the scan
+        assertFalse(idFilter.definitelyAbsent(new ObjectId().toHexString()));
+
+        idFilter.removed(DELETED.toHexString());
+        assertTrue(idFilter.definitelyAbsent(DELETED.toHexString()));
+        assertFalse(idFilter.definitelyAbsent(EXISTING.toHexString()));
+    }
+
+    @Test
+    void definitelyAbsent_shouldBeFalse_forNoteWrittenBehindDuringScan() {
+        // queued long enough ago to be older than the scan horizon, its batch is written while the scan runs
+        ObjectId queued = idAt(Instant.now().minus(5, ChronoUnit.MINUTES));
+        when(writeBehind.pendingIds()).thenReturn(Set.of(queued.toHexString()));
+        scan(EXISTING.toHexString());
+
+        idFilter.rebuild();
+
+        assertFalse(idFilter.definitelyAbsent(queued.toHexString()));
+        assertTrue(idFilter.definitelyAbsent(DELETED.toHexString()));
+        InOrder order = inOrder(writeBehind, noteRepository);
+        order.verify(writeBehind).pendingIds();
+        order.verify(noteRepository).forEachNoteId(any());
+    }
+
+    @Test
+    void definitelyAbsent_shouldBeFalse_forIdsWithinMaxWriteBehindDelay() {
+        // queued on another instance, its insert may still be retried after the scan
+        ObjectId queuedElsewhere = idAt(Instant.now().minus(10, ChronoUnit.MINUTES));
+        when(writeBehind.maxWriteDelay()).thenReturn(Duration.ofMinutes(30));
+        scan(EXISTING.toHexString());
+
+        idFilter.rebuild();
+
+        assertFalse(idFilter.definitelyAbsent(queuedElsewhere.toHexString()));
+        assertTrue(idFilter.definitelyAbsent(DELETED.toHexString()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void scan(String... ids) {
+        doAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(0);
+            for (String id : ids) {
+                consumer.accept(id);
+            }
+            return null;
+        }).when(noteRepository).forEachNoteId(any(Consumer.class));
+    }
+
+    private static ObjectId idAt(Instant instant) {
+        return new ObjectId(Date.from(instant));
+    }
+
+}
@@ -0,0 +1,239 @@
+package org.abarysh.notes.notesapp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.abarysh.notes.notesapp.LoadWorkload.Operation;
+import org.abarysh.notes.notesapp.domain.dto.NoteRequest;
+import org.abarysh.notes.notesapp.domain.entity.Note;
+import org.abarysh.notes.notesapp.domain.enums.NoteTag;
+import org.abarysh.notes.notesapp.service.NoteService;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * End-to-end load test of the REST API, excluded from {@code mvn test} and run with {@code mvn -Pload-test test}.
+ * <p>
+ * {@value #DEFAULT_NOTES} notes from {@link LoadDataGenerator} are created once, then every {@link LoadWorkload}
+ * runs {@code load.threads} closed-loop clients over HTTP against a MongoDB container, with a warmup that is not measured.
+ * Notes written by a workload are removed after it, so each one starts from the same data.
+ * Reads and stats pick ids skewed towards a hot set. Throughput and latency percentiles and histograms are printed per operation.
+ * <p>
+ * Everything random derives from {@code load.seed}, so two runs with the same settings send the same requests in the same order per client.
+ * Settings are system properties, e.g. {@code mvn -Pload-test test -Dload.threads=32 -Dload.duration=PT2M}:
+ * {@code load.seed}, {@code load.notes}, {@code load.threads}, {@code load.warmup} and {@code load.duration}.
+ * The rate limiter is disabled, it would answer most of the load with 429.
+ */
+@Tag("load")
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "notes.rate-limit.enabled=false")
+class NoteLoadTest {
+
+    private static final int DEFAULT_NOTES = 10_000;
+
+    private static final long SEED = Long.getLong("load.seed", 42);
+    private static final int NOTES = Integer.getInteger("load.notes", DEFAULT_NOTES);
+    private static final int THREADS = Integer.getInteger("load.threads", 16);
+    private static final Duration WARMUP = Duration.parse(System.getProperty("load.warmup", "PT10S"));
+    private static final Duration DURATION = Duration.parse(System.getProperty("load.duration", "PT30S"));
+
+    private static final int PAGE_SIZE = 20;
+    private static final Duration[] HISTOGRAM_BUCKETS = IntStream.of(1, 2, 5, 10, 20, 50, 100, 200, 500, 1000)
+            .mapToObj(Duration::ofMillis)
+            .toArray(Duration[]::new);
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void mongoProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", mongo::getReplicaSetUrl);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private String[] ids;
+    private Instant seededAt;
+
+    @BeforeAll
+    void seed() {
+        LoadDataGenerator generator = new LoadDataGenerator(SEED);
+        List<NoteRequest> requests = IntStream.range(0, NOTES).mapToObj(i -> generator.note()).toList();
+
+        long start = System.nanoTime();
+        ids = new String[NOTES];
+        IntStream.range(0, NOTES).parallel()
+                .forEach(i -> ids[i] = noteService.createOrUpdate(requests.get(i)).getId());
+        seededAt = Instant.now();
+        System.out.printf("Created %d notes in %.1f s%n", NOTES, (System.nanoTime() - start) / 1e9);
+    }
+
+    @AfterEach
+    void removeWrittenNotes() {
+        mongoTemplate.remove(new Query(Criteria.where("createdDate").gt(seededAt)), Note.class);
+    }
+
+    @ParameterizedTest
+    @EnumSource(LoadWorkload.class)
+    void workload(LoadWorkload workload) throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Map<Operation, Timer> timers = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            timers.put(operation, Timer.builder("load." + operation.name().toLowerCase())
+                    .publishPercentiles(0.5, 0.9, 0.99, 0.999)
+                    .serviceLevelObjectives(HISTOGRAM_BUCKETS)
+                    // one window for the whole run, so percentiles cover all of it
+                    .distributionStatisticExpiry(WARMUP.plus(DURATION).multipliedBy(2))
+                    .distributionStatisticBufferLength(1)
+                    .register(registry));
+        }
+        LongAdder unexpected = new LongAdder();
+        AtomicReference<String> firstUnexpected = new AtomicReference<>();
+
+        long warmupEnd = System.nanoTime() + WARMUP.toNanos();
+        long end = warmupEnd + DURATION.toNanos();
+        ExecutorService clients = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> running = new ArrayList<>();
+        for (int client = 0; client < THREADS; client++) {
+            Random random = new Random(SEED * 31 + workload.ordinal() * 1_000L + client);
+            running.add(clients.submit(() -> {
+                LoadDataGenerator generator = new LoadDataGenerator(random.nextLong());
+                while (System.nanoTime() < end) {
+                    Operation operation = workload.next(random);
+                    HttpRequest request = request(operation, random, generator);
+                    long start = System.nanoTime();
+                    HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                    long latency = System.nanoTime() - start;
+                    if (!expected(operation, response.statusCode())) {
+                        unexpected.increment();
+                        firstUnexpected.compareAndSet(null, operation + " " + response.statusCode() + " " + response.body());
+                    }
+                    if (start >= warmupEnd) {
+                        timers.get(operation).record(latency, TimeUnit.NANOSECONDS);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> client : running) {
+            client.get();
+        }
+        clients.shutdown();
+
+        report(workload, timers);
+        assertEquals(0, unexpected.sum(), () -> "Unexpected responses, first: " + firstUnexpected.get());
+    }
+
+    private HttpRequest request(Operation operation, Random random, LoadDataGenerator generator) throws Exception {
+        String base = "http://localhost:" + port + "/api/notes";
+        return switch (operation) {
+            case READ -> HttpRequest.newBuilder(URI.create(base + "/" + (random.nextInt(20) == 0 ? new ObjectId().toHexString() : hotId(random)))).build();
+            case STATS -> HttpRequest.newBuilder(URI.create(base + "/" + hotId(random) + "/stats")).build();
+            case LIST -> {
+                int pages = Math.max(1, Math.min(100, NOTES / PAGE_SIZE));
+                Set<NoteTag> tags = generator.tagFilter();
+                String query = "?page=" + random.nextInt(pages) + "&size=" + PAGE_SIZE
+                        + (tags == null ? "" : "&tags=" + tags.iterator().next());
+                yield HttpRequest.newBuilder(URI.create(base + query)).build();
+            }
+            case WRITE -> HttpRequest.newBuilder(URI.create(base))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(generator.note())))
+                    .build();
+        };
+    }
+
+    /**
+     * Cubing a uniform draw gives about half of the reads to the first eighth of the notes.
+     */
+    private String hotId(Random random) {
+        double draw = random.nextDouble();
+        return ids[(int) (ids.length * draw * draw * draw)];
+    }
+
+    private boolean expected(Operation operation, int status) {
+        return status == 200 || (operation == Operation.READ && status == 404);
+    }
+
+    private void report(LoadWorkload workload, Map<Operation, Timer> timers) {
+        double seconds = DURATION.toNanos() / 1e9;
+        long total = timers.values().stream().mapToLong(Timer::count).sum();
+        System.out.printf("%n%s: %d clients, %.0f requests/s over %s%n", workload, THREADS, total / seconds, DURATION);
+
+        for (Map.Entry<Operation, Timer> entry : timers.entrySet()) {
+            Timer timer = entry.getValue();
+            if (timer.count() == 0) {
+                continue;
+            }
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            StringBuilder line = new StringBuilder("  %-6s %8.0f/s".formatted(entry.getKey(), timer.count() / seconds));
+            for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+                line.append("  p%s %.2f ms".formatted(BigDecimal.valueOf(percentile.percentile() * 100).stripTrailingZeros().toPlainString(),
+                        percentile.value(TimeUnit.MILLISECONDS)));
+            }
+            line.append("  max %.2f ms%n    ".formatted(snapshot.max(TimeUnit.MILLISECONDS)));
+
+            double previous = 0;
+            for (CountAtBucket bucket : snapshot.histogramCounts()) {
+                line.append("<=%.0fms %d  ".formatted(bucket.bucket(TimeUnit.MILLISECONDS), (long) (bucket.count() - previous)));
+                previous = bucket.count();
+            }
+            line.append(">%.0fms %d".formatted(HISTOGRAM_BUCKETS[HISTOGRAM_BUCKETS.length - 1].toMillis(), (long) (timer.count() - previous)));
+            System.out.println(line);
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+package org.abarysh.notes.notesapp;
+
+import org.abarysh.notes.notesapp.service.preview.NotePreview;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotePreviewTest {
+
+    @Test
+    void of_shouldCollapseWhitespace() {
+        assertEquals("Shopping list: milk bread", NotePreview.of("  Shopping list:\n\n\tmilk\r\nbread  "));
+    }
+
+    @Test
+    void of_shouldKeepShortTextWhole() {
+        String text = "a".repeat(NotePreview.MAX_LENGTH);
+
+        assertEquals(text, NotePreview.of(text + "\n\n"));
+    }
+
+    @Test
+    void of_shouldCutLongTextAtWordBoundary() {
+        String preview = NotePreview.of("word ".repeat(1_000));
+
+        assertEquals(NotePreview.MAX_LENGTH, preview.length());
+        assertEquals("word ".repeat(40).strip() + "…", preview);
+    }
+
+    @Test
+    void of_shouldCutLongWordWithoutSplittingSurrogatePair() {
+        String preview = NotePreview.of("a".repeat(NotePreview.MAX_LENGTH - 2) + "😀" + "b".repeat(10));
+
+        assertTrue(preview.length() <= NotePreview.MAX_LENGTH);
+        assertEquals("a".repeat(NotePreview.MAX_LENGTH - 2) + "…", preview);
+    }
+
+    @Test
+    void of_shouldReturnNull_whenTextNull() {
+        assertNull(NotePreview.of(null));
+    }
+
+}
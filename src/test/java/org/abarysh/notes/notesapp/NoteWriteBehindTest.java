@@ -0,0 +1,208 @@
+package org.abarysh.notes.notesapp;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoSocketReadException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.abarysh.notes.notesapp.config.WriteBehindProperties;
+import org.abarysh.notes.notesapp.domain.entity.Note;
+import org.abarysh.notes.notesapp.repo.NoteRepository;
+import org.abarysh.notes.notesapp.service.writebehind.NoteWriteBehind;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NoteWriteBehindTest {
+
+    @Mock
+    private NoteRepository noteRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private WriteBehindProperties properties;
+
+    private NoteWriteBehind writeBehind;
+
+    private final CountDownLatch writerBlocked = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        properties = new WriteBehindProperties();
+        properties.setEnabled(true);
+        properties.setCapacity(30);
+        properties.setBatchSize(10);
+        properties.setRetryBackoff(Duration.ofMillis(10));
+        properties.setShutdownTimeout(Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (writeBehind != null && writeBehind.isRunning()) {
+            writeBehind.stop();
+        }
+    }
+
+    @Test
+    void offer_shouldBeRejected_whenNotStarted() {
+        writeBehind = new NoteWriteBehind(noteRepository, properties, meterRegistry);
+
+        assertFalse(writeBehind.offer(note(0)));
+    }
+
+    @Test
+    void offer_shouldBeRejected_whenBufferFull() throws Exception {
+        properties.setCapacity(1);
+        blockFirstWrite();
+
+        assertTrue(writeBehind.offer(note(0)));
+        writerBlocked.await();
+        assertTrue(writeBehind.offer(note(1)));
+        assertFalse(writeBehind.offer(note(2)));
+        assertEquals(1, meterRegistry.get("notes.write-behind.queue.depth").gauge().value());
+        assertEquals(Set.of("note-0", "note-1"), writeBehind.pendingIds());
+    }
+
+    @Test
+    void pendingIds_shouldHoldNote_untilItsBatchIsWritten() throws Exception {
+        blockFirstWrite();
+
+        writeBehind.offer(note(0));
+        writerBlocked.await();
+        assertEquals(Set.of("note-0"), writeBehind.pendingIds());
+
+        release.countDown();
+        writeBehind.stop();
+        assertEquals(Set.of(), writeBehind.pendingIds());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void stop_shouldWriteEverythingQueuedInBatches() throws Exception {
+        blockFirstWrite();
+        List<Note> notes = IntStream.range(0, 25).mapToObj(NoteWriteBehindTest::note).toList();
+
+        writeBehind.offer(notes.get(0));
+        writerBlocked.await();
+        notes.subList(1, notes.size()).forEach(note -> assertTrue(writeBehind.offer(note)));
+        release.countDown();
+        writeBehind.stop();
+
+        ArgumentCaptor<List<Note>> batches = ArgumentCaptor.forClass(List.class);
+        verify(noteRepository, atLeast(3)).insertAll(batches.capture(), eq(WriteConcern.W1));
+        assertEquals(notes, batches.getAllValues().stream().flatMap(List::stream).toList());
+        assertTrue(batches.getAllValues().stream().allMatch(batch -> batch.size() <= 10));
+        assertFalse(writeBehind.offer(note(25)));
+        assertEquals(batches.getAllValues().size(), meterRegistry.get("notes.write-behind.flush").timer().count());
+        assertEquals(25, meterRegistry.get("notes.write-behind.lag").timer().count());
+    }
+
+    @Test
+    void write_shouldRetryFailedBatch() {
+        doThrow(new MongoSocketReadException("Connection reset", new ServerAddress()))
+                .doNothing()
+                .when(noteRepository).insertAll(anyList(), any());
+        writeBehind = new NoteWriteBehind(noteRepository, properties, meterRegistry);
+        writeBehind.start();
+
+        Note note = note(0);
+        writeBehind.offer(note);
+        writeBehind.stop();
+
+        verify(noteRepository, times(2)).insertAll(List.of(note), WriteConcern.W1);
+        assertEquals(1, meterRegistry.get("notes.write-behind.failures").counter().count());
+    }
+
+    @Test
+    void write_shouldDropBatch_afterMaxAttempts() {
+        properties.setMaxAttempts(3);
+        doThrow(new MongoSocketReadException("Connection reset", new ServerAddress()))
+                .when(noteRepository).insertAll(anyList(), any());
+        writeBehind = new NoteWriteBehind(noteRepository, properties, meterRegistry);
+        writeBehind.start();
+
+        writeBehind.offer(note(0));
+        writeBehind.stop();
+
+        verify(noteRepository, times(3)).insertAll(anyList(), any());
+        assertEquals(3, meterRegistry.get("notes.write-behind.failures").counter().count());
+    }
+
+    @Test
+    void write_shouldNotRetry_whenErrorIsNotTransient() {
+        doThrow(new IllegalStateException("cannot convert note"))
+                .when(noteRepository).insertAll(anyList(), any());
+        writeBehind = new NoteWriteBehind(noteRepository, properties, meterRegistry);
+        writeBehind.start();
+
+        writeBehind.offer(note(0));
+        writeBehind.offer(note(1));
+        writeBehind.stop();
+
+        verify(noteRepository, atMost(2)).insertAll(anyList(), any());
+        assertEquals(0, meterRegistry.get("notes.write-behind.lag").timer().count());
+    }
+
+    @Test
+    void write_shouldKeepTheRestOfTheBatch_whenNotesAreRefused() throws Exception {
+        MongoBulkWriteException refused = mock(MongoBulkWriteException.class);
+        when(refused.getWriteErrors()).thenReturn(List.of(
+                new BulkWriteError(121, "Document failed validation", new BsonDocument(), 1)));
+        doAnswer(invocation -> {
+            writerBlocked.countDown();
+            release.await();
+            return null;
+        }).doThrow(refused).when(noteRepository).insertAll(anyList(), any());
+        writeBehind = new NoteWriteBehind(noteRepository, properties, meterRegistry);
+        writeBehind.start();
+
+        writeBehind.offer(note(0));
+        writerBlocked.await();
+        writeBehind.offer(note(1));
+        writeBehind.offer(note(2));
+        release.countDown();
+        writeBehind.stop();
+
+        verify(noteRepository).insertAll(List.of(note(1), note(2)), WriteConcern.W1);
+        verify(noteRepository, times(2)).insertAll(anyList(), any());
+        assertEquals(1, meterRegistry.get("notes.write-behind.failures").counter().count());
+        assertEquals(2, meterRegistry.get("notes.write-behind.lag").timer().count());
+    }
+
+    private void blockFirstWrite() {
+        doAnswer(invocation -> {
+            writerBlocked.countDown();
+            release.await();
+            return null;
+        }).when(noteRepository).insertAll(anyList(), any());
+        writeBehind = new NoteWriteBehind(noteRepository, properties, meterRegistry);
+        writeBehind.start();
+    }
+
+    private static Note note(int i) {
+        return Note.builder()
+                .id("note-" + i)
+                .tenantId("default")
+                .title("Note " + i)
+                .build();
+    }
+
+}
@@ -2,18 +2,30 @@ package org.abarysh.notes.notesapp;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.abarysh.notes.notesapp.domain.dto.NoteBatchRequest;
 import org.abarysh.notes.notesapp.domain.dto.NoteDetailsResponse;
 import org.abarysh.notes.notesapp.domain.dto.NoteRequest;
 import org.abarysh.notes.notesapp.domain.dto.NoteWordStatsResponse;
+import org.abarysh.notes.notesapp.domain.entity.Note;
+import org.abarysh.notes.notesapp.domain.entity.NoteRevision;
 import org.abarysh.notes.notesapp.domain.enums.NoteTag;
 import org.abarysh.notes.notesapp.exсeptions.ApiError;
 import org.abarysh.notes.notesapp.repo.NoteRepository;
+import org.abarysh.notes.notesapp.service.preview.NotePreview;
+import org.abarysh.notes.notesapp.service.preview.NotePreviewBackfill;
+import org.abarysh.notes.notesapp.tenant.NoteTenantBackfill;
+import org.abarysh.notes.notesapp.tenant.TenantContext;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.http.*;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -21,8 +33,23 @@ import org.testcontainers.containers.MongoDBContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -36,6 +63,9 @@ public class NotesAppIntegrationTest {
     @DynamicPropertySource
     static void mongoProps(DynamicPropertyRegistry registry) {
         registry.add("spring.data.mongodb.uri", mongo::getReplicaSetUrl);
+        registry.add("management.endpoint.slowqueries.access", () -> "unrestricted");
+        // run by the test itself, not racing it from startup
+        registry.add("notes.preview.backfill", () -> "false");
     }
 
     @LocalServerPort
@@ -47,11 +77,23 @@ public class NotesAppIntegrationTest {
     @Autowired
     private NoteRepository noteRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private NotePreviewBackfill previewBackfill;
+
+    @Autowired
+    private NoteTenantBackfill tenantBackfill;
+
     private final static ObjectMapper objectMapper = new ObjectMapper();
 
     @AfterEach
     void tearDown() {
-        noteRepository.deleteAll();
+        mongoTemplate.remove(new Query(), Note.class);
+        mongoTemplate.remove(new Query(), NoteRevision.class);
+        mongoTemplate.dropCollection(NoteRepository.ARCHIVE_COLLECTION);
+        mongoTemplate.dropCollection(NoteRepository.MIGRATIONS_COLLECTION);
     }
 
     @Test
@@ -101,6 +143,83 @@ public class NotesAppIntegrationTest {
         assertTrue(first.hasNonNull("createdDate"));
     }
 
+    @Test
+    void listNotes_shouldReturnPreviewWithoutText() throws Exception {
+        createNote("Long note", "First line\n\nof a long note " + "word ".repeat(1_000), Set.of(NoteTag.BUSINESS));
+
+        ResponseEntity<String> response = restTemplate.getForEntity(baseUrl(), String.class);
+
+        JsonNode first = objectMapper.readTree(response.getBody()).get("content").get(0);
+        assertTrue(first.get("preview").asText().startsWith("First line of a long note word"));
+        assertTrue(first.get("preview").asText().length() <= NotePreview.MAX_LENGTH);
+        assertFalse(first.has("text"));
+    }
+
+    @Test
+    void tenantBackfill_shouldMakeNotesWithoutTenantReadableAgain() {
+        ObjectId id = new ObjectId();
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(Note.class)).insertOne(new Document("_id", id)
+                .append("title", "Before tenants")
+                .append("text", "Saved before notes had a tenant")
+                .append("createdDate", new Date()));
+        assertEquals(HttpStatus.NOT_FOUND, restTemplate.getForEntity(baseUrl() + "/" + id.toHexString(), String.class).getStatusCode());
+
+        tenantBackfill.backfill();
+
+        ResponseEntity<NoteDetailsResponse> found = restTemplate.getForEntity(baseUrl() + "/" + id.toHexString(), NoteDetailsResponse.class);
+        assertEquals(HttpStatus.OK, found.getStatusCode());
+        assertEquals("Saved before notes had a tenant", found.getBody().getText());
+        assertTrue(noteRepository.isMigrated(NoteTenantBackfill.MIGRATION));
+    }
+
+    @Test
+    void previewBackfill_shouldFillNotesSavedWithoutPreview() throws Exception {
+        mongoTemplate.insert(Note.builder()
+                .tenantId(TenantContext.DEFAULT_TENANT)
+                .createdDate(Instant.now())
+                .title("Old note")
+                .text("Saved before previews")
+                .tags(Set.of())
+                .build());
+
+        previewBackfill.backfill();
+
+        JsonNode first = objectMapper.readTree(restTemplate.getForEntity(baseUrl(), String.class).getBody()).get("content").get(0);
+        assertEquals("Saved before previews", first.get("preview").asText());
+        assertFalse(noteRepository.isMigrated(NotePreviewBackfill.MIGRATION));
+
+        previewBackfill.backfill();
+        assertTrue(noteRepository.isMigrated(NotePreviewBackfill.MIGRATION));
+    }
+
+    @Test
+    void listNotes_shouldReturnOnlyRequestedFields() throws Exception {
+        NoteDetailsResponse created = createNote("Projected note", "Text that is not listed", Set.of(NoteTag.BUSINESS));
+
+        ResponseEntity<String> response = restTemplate.getForEntity(baseUrl() + "?fields=id,title", String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        JsonNode first = objectMapper.readTree(response.getBody()).get("content").get(0);
+        assertEquals(created.getId(), first.get("id").asText());
+        assertEquals("Projected note", first.get("title").asText());
+        assertFalse(first.has("createdDate"));
+        assertFalse(first.has("tags"));
+    }
+
+    @Test
+    void getById_shouldReturnOnlyRequestedFields() throws Exception {
+        NoteDetailsResponse created = createNote("Sync note", "Large text the sync job does not need", Set.of(NoteTag.BUSINESS));
+
+        String url = baseUrl() + "/" + created.getId() + "?fields=id,title,createdDate,tags";
+        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        JsonNode body = objectMapper.readTree(response.getBody());
+        assertEquals(created.getId(), body.get("id").asText());
+        assertEquals("BUSINESS", body.get("tags").get(0).asText());
+        assertFalse(body.has("text"));
+    }
+
     @Test
     void listNotes_shouldFilterByTags() throws Exception {
         createNote("Business note", "biz text", Set.of(NoteTag.BUSINESS));
@@ -122,6 +241,172 @@ public class NotesAppIntegrationTest {
         assertEquals("Business note", content.get(0).get("title").asText());
     }
 
+    @Test
+    void slowQueries_shouldReportListShapeWithoutValues() throws Exception {
+        createNote("Business note", "biz text", Set.of(NoteTag.BUSINESS));
+        restTemplate.delete("http://localhost:" + port + "/actuator/slowqueries");
+
+        restTemplate.getForEntity(baseUrl() + "?tags=BUSINESS&page=0&size=10", String.class);
+        restTemplate.getForEntity(baseUrl() + "?tags=PERSONAL&page=0&size=10", String.class);
+
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                "http://localhost:" + port + "/actuator/slowqueries?limit=50", String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        JsonNode listShape = null;
+        for (JsonNode shape : objectMapper.readTree(response.getBody())) {
+            if (shape.get("shape").asText().startsWith("notes find") && shape.get("shape").asText().contains("tags")) {
+                listShape = shape;
+            }
+        }
+        assertNotNull(listShape, response.getBody());
+        assertEquals(2, listShape.get("count").asInt());
+        assertFalse(listShape.get("shape").asText().contains("BUSINESS"));
+    }
+
+    @Test
+    void largeNote_shouldBeGzippedOverHttp2() throws Exception {
+        String text = WordStatsCalculatorTest.randomText(10_000, 1);
+        NoteDetailsResponse created = createNote("Large note", text, Set.of(NoteTag.BUSINESS));
+        URI uri = URI.create(baseUrl() + "/" + created.getId());
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+
+        HttpResponse<byte[]> plain = http.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> gzipped = http.send(HttpRequest.newBuilder(uri).header("Accept-Encoding", "gzip").build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(HttpClient.Version.HTTP_2, gzipped.version());
+        assertEquals(Optional.of("gzip"), gzipped.headers().firstValue("Content-Encoding"));
+        assertTrue(gzipped.body().length < plain.body().length / 2,
+                () -> gzipped.body().length + " compressed bytes of " + plain.body().length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.body()))) {
+            assertArrayEquals(plain.body(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void smallResponse_shouldNotBeCompressed() throws Exception {
+        NoteDetailsResponse created = createNote("Small note", "short text", Set.of(NoteTag.BUSINESS));
+
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(baseUrl() + "/" + created.getId())).header("Accept-Encoding", "gzip").build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Encoding").isEmpty());
+    }
+
+    @Test
+    void histogram_shouldCountNotesPerDayWithinRange() throws Exception {
+        noteRepository.saveAll(List.of(
+                Note.builder().tenantId(TenantContext.DEFAULT_TENANT).title("a").createdDate(Instant.parse("2025-03-01T08:00:00Z")).tags(Set.of(NoteTag.BUSINESS)).build(),
+                Note.builder().tenantId(TenantContext.DEFAULT_TENANT).title("b").createdDate(Instant.parse("2025-03-01T20:00:00Z")).tags(Set.of(NoteTag.BUSINESS)).build(),
+                Note.builder().tenantId(TenantContext.DEFAULT_TENANT).title("c").createdDate(Instant.parse("2025-03-03T10:00:00Z")).tags(Set.of(NoteTag.PERSONAL)).build(),
+                Note.builder().tenantId(TenantContext.DEFAULT_TENANT).title("d").createdDate(Instant.parse("2025-04-01T10:00:00Z")).tags(Set.of(NoteTag.BUSINESS)).build()
+        ));
+
+        String url = baseUrl() + "/histogram?interval=DAY&from=2025-03-01T00:00:00Z&to=2025-04-01T00:00:00Z";
+        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        JsonNode buckets = objectMapper.readTree(response.getBody()).get("buckets");
+        assertEquals(2, buckets.size());
+        assertEquals("2025-03-01T00:00:00Z", buckets.get(0).get("start").asText());
+        assertEquals(2, buckets.get(0).get("count").asLong());
+        assertEquals("2025-03-03T00:00:00Z", buckets.get(1).get("start").asText());
+        assertEquals(1, buckets.get(1).get("count").asLong());
+
+        ResponseEntity<String> listed = restTemplate.getForEntity(
+                baseUrl() + "?tags=BUSINESS&from=2025-03-01T00:00:00Z&to=2025-04-01T00:00:00Z", String.class);
+        assertEquals(2, objectMapper.readTree(listed.getBody()).get("totalElements").asInt());
+    }
+
+    @Test
+    void archivedNote_shouldStillBeReadableAndLeaveTheList() throws Exception {
+        NoteDetailsResponse recent = createNote("Recent note", "recent text", Set.of());
+        Note old = noteRepository.save(Note.builder()
+                .tenantId(TenantContext.DEFAULT_TENANT)
+                .title("Old note")
+                .text("old text")
+                .createdDate(Instant.parse("2020-01-01T00:00:00Z"))
+                .build());
+
+        assertEquals(1, noteRepository.archiveCreatedBefore(Instant.parse("2021-01-01T00:00:00Z"), 10));
+
+        ResponseEntity<NoteDetailsResponse> archived = restTemplate.getForEntity(baseUrl() + "/" + old.getId(), NoteDetailsResponse.class);
+        assertEquals(HttpStatus.OK, archived.getStatusCode());
+        assertEquals("old text", archived.getBody().getText());
+
+        JsonNode list = objectMapper.readTree(restTemplate.getForEntity(baseUrl(), String.class).getBody());
+        assertEquals(1, list.get("totalElements").asInt());
+        assertEquals(recent.getId(), list.get("content").get(0).get("id").asText());
+
+        restTemplate.delete(baseUrl() + "/" + old.getId());
+        assertTrue(noteRepository.findArchivedById(old.getId(), null).isEmpty());
+    }
+
+    @Test
+    void archivedNote_shouldBeRestoredByOnlyOneOfConcurrentUpdates() throws Exception {
+        Note old = noteRepository.save(Note.builder()
+                .tenantId(TenantContext.DEFAULT_TENANT)
+                .title("Old note")
+                .text("old text")
+                .createdDate(Instant.parse("2020-01-01T00:00:00Z"))
+                .build());
+        assertEquals(1, noteRepository.archiveCreatedBefore(Instant.parse("2021-01-01T00:00:00Z"), 10));
+
+        int writers = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<HttpStatusCode>> statuses = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(writers)) {
+            for (int i = 0; i < writers; i++) {
+                NoteRequest update = NoteRequest.builder()
+                        .id(old.getId())
+                        .title("Old note")
+                        .text("restored by writer " + i)
+                        .build();
+                statuses.add(executor.submit(() -> {
+                    start.await();
+                    return restTemplate.postForEntity(baseUrl(), jsonEntity(update), String.class).getStatusCode();
+                }));
+            }
+            start.countDown();
+        }
+
+        int restored = 0;
+        for (Future<HttpStatusCode> status : statuses) {
+            HttpStatusCode code = status.get();
+            assertTrue(HttpStatus.OK.equals(code) || HttpStatus.CONFLICT.equals(code), code.toString());
+            restored += HttpStatus.OK.equals(code) ? 1 : 0;
+        }
+        assertTrue(restored >= 1);
+        assertTrue(noteRepository.findArchivedById(old.getId(), null).isEmpty());
+        // every accepted update got its own revision, none was lost to another writer
+        Note hot = noteRepository.findById(old.getId()).orElseThrow();
+        assertEquals(1 + restored, hot.getRevision());
+        JsonNode revisions = objectMapper.readTree(restTemplate.getForEntity(baseUrl() + "/" + old.getId() + "/revisions", String.class).getBody());
+        assertEquals(1 + restored, revisions.get("totalElements").asInt());
+    }
+
+    @Test
+    void getByIds_shouldReturnNotesInRequestOrderWithMissingIds() throws Exception {
+        NoteDetailsResponse first = createNote("First note", "First text", Set.of(NoteTag.BUSINESS));
+        NoteDetailsResponse second = createNote("Second note", "Second text", Set.of(NoteTag.PERSONAL));
+        String missingId = "665f2e2fe4b0e12a12345678";
+
+        NoteBatchRequest request = NoteBatchRequest.builder()
+                .ids(List.of(second.getId(), missingId, first.getId()))
+                .build();
+        ResponseEntity<String> response = restTemplate.postForEntity(baseUrl() + "/batch", new HttpEntity<>(request), String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        JsonNode body = objectMapper.readTree(response.getBody());
+        assertEquals(second.getId(), body.get("notes").get(0).get("id").asText());
+        assertEquals(first.getId(), body.get("notes").get(1).get("id").asText());
+        assertEquals("First text", body.get("notes").get(1).get("text").asText());
+        assertEquals(missingId, body.get("missing").get(0).asText());
+    }
+
     @Test
     void deleteNote_shouldRemoveNote() {
         NoteDetailsResponse created = createNote("To delete", "Delete me", Set.of(NoteTag.PERSONAL));
@@ -159,6 +444,88 @@ public class NotesAppIntegrationTest {
         assertEquals(1, stats.get("a"));
     }
 
+    @Test
+    void duplicates_shouldFindNearDuplicateAndRejectOnWrite() throws Exception {
+        String text = "Buy milk, eggs, bread and coffee on the way home after the meeting with the team";
+        NoteDetailsResponse original = createNote("Shopping", text, Set.of(NoteTag.PERSONAL));
+        NoteDetailsResponse copy = createNote("Shopping again", text + " tomorrow", Set.of(NoteTag.PERSONAL));
+        createNote("Other", "Quarterly report draft is due on Friday for the finance department", Set.of(NoteTag.BUSINESS));
+
+        String duplicatesUrl = baseUrl() + "/" + original.getId() + "/duplicates";
+        ResponseEntity<String> response = restTemplate.getForEntity(duplicatesUrl, String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        JsonNode duplicates = objectMapper.readTree(response.getBody());
+        assertEquals(1, duplicates.size());
+        assertEquals(copy.getId(), duplicates.get(0).get("id").asText());
+
+        NoteRequest request = NoteRequest.builder()
+                .title("Shopping copy")
+                .text(text)
+                .build();
+        ResponseEntity<ApiError> rejected = restTemplate.postForEntity(baseUrl() + "?rejectDuplicates=true", jsonEntity(request), ApiError.class);
+
+        assertEquals(HttpStatus.CONFLICT, rejected.getStatusCode());
+        assertEquals(409, rejected.getBody().getStatus());
+    }
+
+    @Test
+    void revisions_shouldRebuildEveryVersionFromDiffsAndSnapshots() throws Exception {
+        String text = "Meeting notes\n" + "- agenda item\n".repeat(500);
+        NoteDetailsResponse note = createNote("Meeting", text, Set.of(NoteTag.BUSINESS));
+        List<String> versions = new ArrayList<>(List.of(text));
+        for (int i = 1; i <= 25; i++) {
+            text = text.replace("- agenda item\n", "- decision " + i + "\n");
+            versions.add(text);
+            NoteRequest update = NoteRequest.builder()
+                    .id(note.getId())
+                    .title(i < 10 ? "Meeting" : "Meeting, later")
+                    .text(text)
+                    .build();
+            assertEquals(HttpStatus.OK, restTemplate.postForEntity(baseUrl(), jsonEntity(update), NoteDetailsResponse.class).getStatusCode());
+        }
+
+        String revisionsUrl = baseUrl() + "/" + note.getId() + "/revisions";
+        JsonNode page = objectMapper.readTree(restTemplate.getForEntity(revisionsUrl + "?size=5", String.class).getBody());
+        assertEquals(26, page.get("totalElements").asInt());
+        assertEquals(26, page.get("content").get(0).get("revision").asInt());
+
+        for (int revision : List.of(1, 2, 20, 21, 22, 25)) {
+            ResponseEntity<NoteDetailsResponse> response = restTemplate.getForEntity(revisionsUrl + "/" + revision, NoteDetailsResponse.class);
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            assertEquals(versions.get(revision - 1), response.getBody().getText());
+            assertEquals(revision <= 10 ? "Meeting" : "Meeting, later", response.getBody().getTitle());
+        }
+        assertEquals(HttpStatus.NOT_FOUND, restTemplate.getForEntity(revisionsUrl + "/27", ApiError.class).getStatusCode());
+
+        NoteRevision diff = mongoTemplate.findOne(Query.query(Criteria.where("noteId").is(note.getId()).and("revision").is(5)), NoteRevision.class);
+        assertFalse(diff.isSnapshot());
+        assertNull(diff.getText());
+        assertTrue(diff.getEdits().stream().mapToInt(edit -> edit.getInserted().length()).sum() < 20);
+    }
+
+    @Test
+    void revisions_shouldStartFromNoteSavedBeforeRevisions() {
+        Note old = mongoTemplate.insert(Note.builder()
+                .tenantId(TenantContext.DEFAULT_TENANT)
+                .createdDate(Instant.now())
+                .title("Old note")
+                .text("Saved before revisions")
+                .tags(Set.of())
+                .build());
+        NoteRequest update = NoteRequest.builder()
+                .id(old.getId())
+                .title("Old note")
+                .text("Saved before revisions, updated")
+                .build();
+
+        assertEquals(HttpStatus.OK, restTemplate.postForEntity(baseUrl(), jsonEntity(update), NoteDetailsResponse.class).getStatusCode());
+
+        String revisionsUrl = baseUrl() + "/" + old.getId() + "/revisions";
+        assertEquals("Saved before revisions", restTemplate.getForEntity(revisionsUrl + "/1", NoteDetailsResponse.class).getBody().getText());
+        assertEquals("Saved before revisions, updated", restTemplate.getForEntity(revisionsUrl + "/2", NoteDetailsResponse.class).getBody().getText());
+    }
+
     @Test
     void createNote_shouldReturnBadRequest_whenTitleAndTextBlank() {
         NoteRequest request = NoteRequest.builder()
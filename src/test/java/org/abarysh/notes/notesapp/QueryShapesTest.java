@@ -0,0 +1,75 @@
+package org.abarysh.notes.notesapp;
+
+import org.abarysh.notes.notesapp.profiling.QueryShapes;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryShapesTest {
+
+    @Test
+    void shape_shouldDropValuesAndBucketSkip() {
+        BsonDocument first = BsonDocument.parse("""
+                {find: "notes", filter: {$and: [{tenantId: "a"}, {tags: {$in: ["BUSINESS"]}}]},
+                 sort: {createdDate: -1}, projection: {title: 1, createdDate: 1}, skip: 40, limit: 20,
+                 lsid: {id: 1}, $db: "notedb"}""");
+        BsonDocument second = BsonDocument.parse("""
+                {find: "notes", filter: {$and: [{tenantId: "b"}, {tags: {$in: ["PERSONAL", "IMPORTANT"]}}]},
+                 sort: {createdDate: -1}, projection: {title: 1, createdDate: 1}, skip: 80, limit: 20, $db: "notedb"}""");
+
+        String shape = QueryShapes.shape("find", first);
+
+        assertEquals(shape, QueryShapes.shape("find", second));
+        assertEquals("notes find {\"$and\": [{\"tenantId\": \"?\"}, {\"tags\": {\"$in\": \"?\"}}]}"
+                + " sort {\"createdDate\": -1} projection [title, createdDate] skip <100 limit 20", shape);
+    }
+
+    @Test
+    void shape_shouldSeparateDeepPagesAndPageSizes() {
+        String page = QueryShapes.shape("find", BsonDocument.parse("{find: 'notes', filter: {}, skip: 20, limit: 20}"));
+        String deepPage = QueryShapes.shape("find", BsonDocument.parse("{find: 'notes', filter: {}, skip: 20000, limit: 20}"));
+        String biggerPage = QueryShapes.shape("find", BsonDocument.parse("{find: 'notes', filter: {}, skip: 20, limit: 100}"));
+
+        assertNotEquals(page, deepPage);
+        assertNotEquals(page, biggerPage);
+        assertTrue(deepPage.contains("skip <100000"));
+    }
+
+    @Test
+    void shape_shouldIgnoreWritesAndExplain() {
+        assertNull(QueryShapes.shape("insert", BsonDocument.parse("{insert: 'notes', documents: []}")));
+        assertNull(QueryShapes.shape("explain", BsonDocument.parse("{explain: {find: 'notes'}}")));
+    }
+
+    @Test
+    void explainCommand_shouldStripSessionFields() {
+        BsonDocument explain = QueryShapes.explainCommand(BsonDocument.parse(
+                "{find: 'notes', filter: {title: 'x'}, lsid: {id: 1}, $db: 'notedb', $clusterTime: {}}"));
+
+        assertEquals(BsonDocument.parse("{explain: {find: 'notes', filter: {title: 'x'}}, verbosity: 'executionStats'}"), explain);
+    }
+
+    @Test
+    void planSummary_shouldNameIndexAndInMemorySort() {
+        BsonDocument explain = BsonDocument.parse("""
+                {queryPlanner: {winningPlan: {stage: "SORT", inputStage: {stage: "FETCH",
+                   inputStage: {stage: "IXSCAN", keyPattern: {tags: 1}, indexName: "tags_1"}}}},
+                 executionStats: {nReturned: 20, totalDocsExamined: 5000, totalKeysExamined: 5000}}""");
+
+        assertEquals("IXSCAN {tags: 1} + SORT", QueryShapes.planSummary(explain));
+        assertEquals(5000, QueryShapes.executionStat(explain, "totalDocsExamined"));
+    }
+
+    @Test
+    void planSummary_shouldFindCollectionScanInAggregateExplain() {
+        BsonDocument explain = BsonDocument.parse("""
+                {stages: [{$cursor: {queryPlanner: {winningPlan: {queryPlan: {stage: "COLLSCAN"}}},
+                   executionStats: {totalDocsExamined: 120000}}}, {$group: {}}]}""");
+
+        assertEquals("COLLSCAN", QueryShapes.planSummary(explain));
+        assertEquals(120000, QueryShapes.executionStat(explain, "totalDocsExamined"));
+        assertEquals(-1, QueryShapes.executionStat(explain, "totalKeysExamined"));
+    }
+
+}
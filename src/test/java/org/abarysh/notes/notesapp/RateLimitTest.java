@@ -0,0 +1,191 @@
+package org.abarysh.notes.notesapp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.abarysh.notes.notesapp.config.RateLimitProperties;
+import org.abarysh.notes.notesapp.ratelimit.AdaptiveConcurrencyLimit;
+import org.abarysh.notes.notesapp.ratelimit.RateLimitFilter;
+import org.abarysh.notes.notesapp.ratelimit.TokenBucket;
+import org.abarysh.notes.notesapp.tenant.TenantInterceptor;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void tokenBucket_shouldAllowBurstThenRefillAtRate() {
+        TokenBucket bucket = new TokenBucket(2, 3);
+
+        assertEquals(0, bucket.tryAcquire(1, 0));
+        assertEquals(0, bucket.tryAcquire(1, 0));
+        assertEquals(0, bucket.tryAcquire(1, 0));
+        assertEquals(SECOND / 2, bucket.tryAcquire(1, 0));
+
+        assertEquals(0, bucket.tryAcquire(1, SECOND / 2));
+        assertTrue(bucket.tryAcquire(1, SECOND / 2) > 0);
+        assertFalse(bucket.isIdle(SECOND));
+        assertTrue(bucket.isIdle(2 * SECOND));
+    }
+
+    @Test
+    void tokenBucket_shouldChargeCost() {
+        TokenBucket bucket = new TokenBucket(1, 10);
+
+        assertEquals(0, bucket.tryAcquire(8, 0));
+        assertEquals(SECOND, bucket.tryAcquire(3, 0));
+        assertEquals(0, bucket.tryAcquire(2, 0));
+    }
+
+    @Test
+    void concurrencyLimit_shouldRefuseAboveLimitAndShrinkOnSlowRequests() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 2, Duration.ofMillis(100).toNanos(), SECOND);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+
+        limit.release(Duration.ofSeconds(1).toNanos(), 0);
+        assertEquals(1, limit.getLimit());
+        assertFalse(limit.tryAcquire());
+
+        limit.release(Duration.ofMillis(1).toNanos(), 0);
+        assertEquals(0, limit.getInFlight());
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void concurrencyLimit_shouldShrinkOncePerDecreaseInterval() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 200, Duration.ofMillis(100).toNanos(), SECOND);
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(SECOND, i * SECOND / 20);
+        }
+        assertEquals(180, limit.getLimit());
+
+        assertTrue(limit.tryAcquire());
+        limit.release(SECOND, SECOND);
+        assertEquals(162, limit.getLimit());
+    }
+
+    @Test
+    void filter_shouldKeepConcurrencyLimit_whenOnlyStatsAreSlow() throws Exception {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setTargetLatency(Duration.ofMillis(1));
+        properties.setDecreaseInterval(Duration.ZERO);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateLimitFilter filter = new RateLimitFilter(properties, meterRegistry, new ObjectMapper().findAndRegisterModules());
+        FilterChain slow = (request, response) -> {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        for (int i = 0; i < 10; i++) {
+            MockHttpServletRequest stats = new MockHttpServletRequest("GET", "/api/notes/1/stats");
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(stats, response, slow);
+            assertEquals(200, response.getStatus());
+        }
+        assertEquals(properties.getMaxConcurrent(), meterRegistry.get("notes.ratelimit.concurrency.limit").gauge().value());
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/notes"), new MockHttpServletResponse(), slow);
+        assertTrue(meterRegistry.get("notes.ratelimit.concurrency.limit").gauge().value() < properties.getMaxConcurrent());
+    }
+
+    @Test
+    void filter_shouldReturnTooManyRequests_whenStatsBudgetSpent() throws Exception {
+        RateLimitProperties properties = statsBudget(2);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateLimitFilter filter = new RateLimitFilter(properties, meterRegistry, new ObjectMapper().findAndRegisterModules());
+
+        assertEquals(200, statsRequest(filter, "10.0.0.1", "acme").getStatus());
+        assertEquals(200, statsRequest(filter, "10.0.0.1", "acme").getStatus());
+
+        MockHttpServletResponse limited = statsRequest(filter, "10.0.0.1", "acme");
+        assertEquals(429, limited.getStatus());
+        assertNotNull(limited.getHeader("Retry-After"));
+        assertTrue(limited.getContentAsString().contains("\"status\":429"));
+
+        assertEquals(200, statsRequest(filter, "10.0.0.2", "acme").getStatus());
+        assertEquals(1.0, meterRegistry.get("notes.ratelimit.requests")
+                .tag("endpoint", "stats")
+                .tag("outcome", "limited")
+                .counter()
+                .count());
+    }
+
+    @Test
+    void filter_shouldLimitClient_whenTenantHeaderRotates() throws Exception {
+        RateLimitFilter filter = filter(statsBudget(2));
+
+        assertEquals(200, statsRequest(filter, "10.0.0.1", "tenant-1").getStatus());
+        assertEquals(200, statsRequest(filter, "10.0.0.1", "tenant-2").getStatus());
+        assertEquals(429, statsRequest(filter, "10.0.0.1", "tenant-3").getStatus());
+        assertEquals(429, statsRequest(filter, "10.0.0.1", "not a tenant " + "x".repeat(100)).getStatus());
+    }
+
+    @Test
+    void filter_shouldKeyByLastForwardedAddressAndTenant_whenConfigured() throws Exception {
+        RateLimitProperties properties = statsBudget(1);
+        properties.setClientKey(RateLimitProperties.ClientKey.ADDRESS_AND_TENANT);
+        properties.setClientAddressHeader("X-Forwarded-For");
+        RateLimitFilter filter = filter(properties);
+
+        assertEquals(200, statsRequest(filter, "1.1.1.1, 203.0.113.7", "acme").getStatus());
+        assertEquals(429, statsRequest(filter, "2.2.2.2, 203.0.113.7", "acme").getStatus());
+        assertEquals(200, statsRequest(filter, "203.0.113.7", "globex").getStatus());
+        assertEquals(200, statsRequest(filter, "203.0.113.8", "acme").getStatus());
+    }
+
+    @Test
+    void filter_shouldShareOverflowBucket_whenMaxBucketsReached() throws Exception {
+        RateLimitProperties properties = statsBudget(2);
+        properties.setMaxBuckets(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateLimitFilter filter = new RateLimitFilter(properties, meterRegistry, new ObjectMapper().findAndRegisterModules());
+
+        assertEquals(200, statsRequest(filter, "10.0.0.1", "acme").getStatus());
+        assertEquals(200, statsRequest(filter, "10.0.0.2", "acme").getStatus());
+        assertEquals(200, statsRequest(filter, "10.0.0.3", "acme").getStatus());
+        assertEquals(429, statsRequest(filter, "10.0.0.4", "acme").getStatus());
+        assertEquals(200, statsRequest(filter, "10.0.0.1", "acme").getStatus());
+        assertEquals(2.0, meterRegistry.get("notes.ratelimit.buckets").gauge().value());
+    }
+
+    private RateLimitProperties statsBudget(long burst) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setStats(new RateLimitProperties.Budget(0.001, burst));
+        return properties;
+    }
+
+    private RateLimitFilter filter(RateLimitProperties properties) {
+        return new RateLimitFilter(properties, new SimpleMeterRegistry(), new ObjectMapper().findAndRegisterModules());
+    }
+
+    /**
+     * Sends the address as the connection's, and also as {@code X-Forwarded-For} for filters configured to read it.
+     */
+    private MockHttpServletResponse statsRequest(RateLimitFilter filter, String address, String tenantId) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/notes/1/stats");
+        request.setRemoteAddr(address);
+        request.addHeader("X-Forwarded-For", address);
+        request.addHeader(TenantInterceptor.TENANT_HEADER, tenantId);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+}
@@ -0,0 +1,74 @@
+package org.abarysh.notes.notesapp;
+
+import org.abarysh.notes.notesapp.exсeptions.NotFoundException;
+import org.abarysh.notes.notesapp.logging.SampledLogger;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+import org.slf4j.spi.LoggingEventBuilder;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+class SampledLoggerTest {
+
+    @Test
+    void log_shouldPassOnlyPermitsPerIntervalAndReportSuppressedCount() {
+        Logger log = mock(Logger.class);
+        LoggingEventBuilder event = mock(LoggingEventBuilder.class);
+        when(log.isEnabledForLevel(Level.WARN)).thenReturn(true);
+        when(log.atLevel(Level.WARN)).thenReturn(event);
+
+        SampledLogger sampled = new SampledLogger(log, Level.WARN, 2, Duration.ofHours(1));
+        for (int i = 0; i < 5; i++) {
+            sampled.log("Note with id '{}' not found", i);
+        }
+
+        verify(event).log("Note with id '{}' not found", (Object) 0);
+        verify(event).log("Note with id '{}' not found", (Object) 1);
+        verifyNoMoreInteractions(event);
+    }
+
+    @Test
+    void log_shouldAppendSuppressedCountAfterAllArguments() {
+        Logger log = mock(Logger.class);
+        LoggingEventBuilder event = mock(LoggingEventBuilder.class);
+        when(log.isEnabledForLevel(Level.WARN)).thenReturn(true);
+        when(log.atLevel(Level.WARN)).thenReturn(event);
+
+        SampledLogger sampled = new SampledLogger(log, Level.WARN, 1, Duration.ofMillis(50));
+        sampled.log("Slow query {} ms: {}", 120L, "shape");
+        sampled.log("Slow query {} ms: {}", 130L, "shape");
+        await(Duration.ofMillis(60));
+        sampled.log("Slow query {} ms: {}", 140L, "shape");
+
+        verify(event).log("Slow query {} ms: {}", new Object[]{120L, "shape"});
+        verify(event).log("Slow query {} ms: {} ({} similar messages suppressed)", new Object[]{140L, "shape", 1L});
+        verifyNoMoreInteractions(event);
+    }
+
+    @Test
+    void log_shouldDoNothing_whenLevelDisabled() {
+        Logger log = mock(Logger.class);
+
+        new SampledLogger(log, Level.DEBUG, 10, Duration.ofSeconds(1)).log("ignored {}", 1);
+
+        verify(log, never()).atLevel(any());
+    }
+
+    @Test
+    void clientErrors_shouldNotCaptureStackTrace() {
+        assertEquals(0, new NotFoundException("Note with id 1 not found").getStackTrace().length);
+    }
+
+    private static void await(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
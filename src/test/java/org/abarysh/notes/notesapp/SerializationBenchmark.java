@@ -0,0 +1,112 @@
+package org.abarysh.notes.notesapp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.abarysh.notes.notesapp.domain.dto.NoteDetailsResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteSummaryResponse;
+import org.abarysh.notes.notesapp.domain.dto.PageResponse;
+import org.abarysh.notes.notesapp.domain.enums.NoteTag;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Manual benchmark comparing JSON, Smile and CBOR payload size and serialization time, not part of the test run.
+ * <p>
+ * Each format is also gzipped as {@code server.compression} does for responses over its minimum size,
+ * with the time to compress and the time to send the bytes over a {@value #LINK_MBIT_PER_SECOND} Mbit/s link,
+ * so the CPU spent on compression can be weighed against the transfer time it saves.
+ * <p>
+ * {@code mvn test-compile exec:java -Dexec.mainClass=org.abarysh.notes.notesapp.SerializationBenchmark -Dexec.classpathScope=test}
+ */
+public class SerializationBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final int MEASURED_ROUNDS = 10_000;
+    private static final int LINK_MBIT_PER_SECOND = 10;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, ObjectMapper> mappers = Map.of(
+                "json", Jackson2ObjectMapperBuilder.json().build(),
+                "smile", Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build(),
+                "cbor", Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build()
+        );
+
+        Object page = summaryPage(100);
+        Object details = details(64 * 1024);
+
+        for (String format : List.of("json", "smile", "cbor")) {
+            ObjectMapper mapper = mappers.get(format);
+            report(format, "page of 100 summaries", mapper, page);
+            report(format, "64 KB note details", mapper, details);
+        }
+    }
+
+    private static void report(String format, String payload, ObjectMapper mapper, Object value) throws Exception {
+        byte[] bytes = mapper.writeValueAsBytes(value);
+        double micros = measure(() -> mapper.writeValueAsBytes(value));
+        byte[] gzipped = gzip(bytes);
+        double gzipMicros = measure(() -> gzip(bytes));
+        System.out.printf("%-6s %-22s %9d bytes %9.2f us %8.2f ms sent | gzip %9d bytes %9.2f us %8.2f ms sent%n",
+                format, payload, bytes.length, micros, sendMillis(bytes.length), gzipped.length, gzipMicros, sendMillis(gzipped.length));
+    }
+
+    private static double measure(Task task) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            task.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            task.run();
+        }
+        return (System.nanoTime() - start) / 1_000.0 / MEASURED_ROUNDS;
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static double sendMillis(int bytes) {
+        return bytes * 8 / (LINK_MBIT_PER_SECOND * 1_000.0);
+    }
+
+    private static PageResponse<NoteSummaryResponse> summaryPage(int size) {
+        List<NoteSummaryResponse> content = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            content.add(NoteSummaryResponse.builder()
+                    .title("Note number " + i)
+                    .createdDate(Instant.parse("2025-02-27T00:00:00Z").plusSeconds(i))
+                    .build());
+        }
+        return PageResponse.from(new PageImpl<>(content, PageRequest.of(0, size), 10_000));
+    }
+
+    private static NoteDetailsResponse details(int textLength) {
+        return NoteDetailsResponse.builder()
+                .id("665f2e2fe4b0e12a12345678")
+                .title("Large note")
+                .createdDate(Instant.parse("2025-02-27T00:00:00Z"))
+                .text(WordStatsCalculatorTest.randomText(textLength / 6, 1))
+                .tags(Set.of(NoteTag.BUSINESS, NoteTag.IMPORTANT))
+                .build();
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+
+}
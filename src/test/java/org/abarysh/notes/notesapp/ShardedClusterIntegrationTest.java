@@ -0,0 +1,136 @@
+package org.abarysh.notes.notesapp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.abarysh.notes.notesapp.domain.dto.NoteDetailsResponse;
+import org.abarysh.notes.notesapp.domain.dto.NoteRequest;
+import org.abarysh.notes.notesapp.domain.entity.Note;
+import org.abarysh.notes.notesapp.repo.NoteRepository;
+import org.abarysh.notes.notesapp.tenant.TenantInterceptor;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.*;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against a single-shard cluster behind mongos with {@code notes} sharded on {@code {tenantId: 1, _id: "hashed"}}.
+ * Updates of a sharded collection must carry the full shard key, which is what {@code @Sharded} on the entity provides.
+ */
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ShardedClusterIntegrationTest {
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0").withSharding();
+
+    @DynamicPropertySource
+    static void mongoProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", mongo::getReplicaSetUrl);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final static ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void shardNotes() {
+        String namespace = mongoTemplate.getDb().getName() + "." + mongoTemplate.getCollectionName(Note.class);
+        Document sharded = mongoTemplate.getMongoDatabaseFactory().getMongoDatabase("config")
+                .getCollection("collections")
+                .find(new Document("_id", namespace))
+                .first();
+        if (sharded == null) {
+            mongoTemplate.getMongoDatabaseFactory().getMongoDatabase("admin").runCommand(new Document("shardCollection", namespace)
+                    .append("key", new Document("tenantId", 1).append("_id", "hashed")));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoTemplate.remove(new Query(), Note.class);
+    }
+
+    @Test
+    void notes_shouldBeCreatedUpdatedAndDeletedOnShardedCollection() {
+        NoteDetailsResponse created = save("acme", null, "First", "first text");
+        NoteDetailsResponse updated = save("acme", created.getId(), "Renamed", "first text");
+
+        assertEquals(created.getId(), updated.getId());
+        ResponseEntity<NoteDetailsResponse> fetched = restTemplate.exchange(baseUrl() + "/" + created.getId(), HttpMethod.GET,
+                new HttpEntity<>(headers("acme")), NoteDetailsResponse.class);
+        assertEquals(HttpStatus.OK, fetched.getStatusCode());
+        assertEquals("Renamed", fetched.getBody().getTitle());
+
+        ResponseEntity<Void> deleted = restTemplate.exchange(baseUrl() + "/" + created.getId(), HttpMethod.DELETE,
+                new HttpEntity<>(headers("acme")), Void.class);
+        assertEquals(HttpStatus.OK, deleted.getStatusCode());
+        assertEquals(0, mongoTemplate.count(new Query(), Note.class));
+    }
+
+    @Test
+    void notes_shouldOnlyBeVisibleToTheirTenant() throws Exception {
+        NoteDetailsResponse acme = save("acme", null, "Acme note", "acme text");
+        save("globex", null, "Globex note", "globex text");
+
+        ResponseEntity<String> list = restTemplate.exchange(baseUrl(), HttpMethod.GET, new HttpEntity<>(headers("acme")), String.class);
+        JsonNode root = objectMapper.readTree(list.getBody());
+        assertEquals(1, root.get("totalElements").asInt());
+        assertEquals("Acme note", root.get("content").get(0).get("title").asText());
+
+        ResponseEntity<String> foreign = restTemplate.exchange(baseUrl() + "/" + acme.getId(), HttpMethod.GET,
+                new HttpEntity<>(headers("globex")), String.class);
+        assertEquals(HttpStatus.NOT_FOUND, foreign.getStatusCode());
+    }
+
+    private NoteDetailsResponse save(String tenantId, String id, String title, String text) {
+        NoteRequest request = NoteRequest.builder()
+                .id(id)
+                .title(title)
+                .text(text)
+                .tags(Set.of())
+                .build();
+
+        ResponseEntity<NoteDetailsResponse> response = restTemplate.postForEntity(baseUrl(), new HttpEntity<>(request, headers(tenantId)),
+                NoteDetailsResponse.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        return response.getBody();
+    }
+
+    private HttpHeaders headers(String tenantId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(TenantInterceptor.TENANT_HEADER, tenantId);
+        return headers;
+    }
+
+    private String baseUrl() {
+        return "http://localhost:" + port + "/api/notes";
+    }
+
+}
@@ -0,0 +1,204 @@
+package org.abarysh.notes.notesapp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.testcontainers.containers.MongoDBContainer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Manual benchmark of cold start, not part of the test run.
+ * <p>
+ * Starts the packaged application {@value #ROUNDS} times per mode against a MongoDB container and reports the median of
+ * the startup time logged by Spring Boot, of the time from launch to the first 200 of {@code GET /api/notes}
+ * and of the resident memory after a smoke test that creates a note and reads it back.
+ * Modes: the fat jar as the old {@code Dockerfile} ran it, the {@code prod} profile (lazy initialization, no springdoc),
+ * AOT on the extracted jar, AOT with a class data sharing archive, which is what the {@code Dockerfile} runs,
+ * and the native executable of {@code Dockerfile.native} if {@code target/notes-app} exists.
+ * <p>
+ * The jar has to be built with AOT first, the native executable is optional and has to be built before it
+ * as both profiles write the jar: {@code mvn -Pnative package -DskipTests && mvn -Pfast-start package -DskipTests}, then
+ * {@code mvn test-compile exec:java -Dexec.mainClass=org.abarysh.notes.notesapp.StartupBenchmark -Dexec.classpathScope=test}
+ */
+public class StartupBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60);
+    private static final Pattern STARTED = Pattern.compile("Started \\w+ in ([\\d.]+) seconds");
+
+    private static final String JAVA = ProcessHandle.current().info().command().orElse("java");
+    private static final HttpClient HTTP = HttpClient.newHttpClient();
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        Path jar = args.length > 0 ? Path.of(args[0]) : findJar();
+        Path work = Files.createDirectories(Path.of("target", "startup-benchmark"));
+        Path extracted = work.resolve(jar.getFileName());
+        Path archive = work.resolve("app.jsa");
+        Path nativeExecutable = Path.of("target", "notes-app");
+
+        try (MongoDBContainer mongo = new MongoDBContainer("mongo:7.0")) {
+            mongo.start();
+            String mongoUri = "--spring.data.mongodb.uri=" + mongo.getReplicaSetUrl();
+
+            run(List.of(JAVA, "-Djarmode=tools", "-jar", jar.toString(), "extract", "--force", "--destination", work.toString()));
+            // training run, the archive gets the classes loaded up to the refreshed context
+            run(List.of(JAVA, "-XX:ArchiveClassesAtExit=" + archive, "-Dspring.aot.enabled=true", "-Dspring.context.exit=onRefresh",
+                    "-jar", extracted.toString(), "--spring.profiles.active=prod", mongoUri));
+
+            report("jar", List.of(JAVA, "-jar", jar.toString(), mongoUri));
+            report("prod", List.of(JAVA, "-jar", jar.toString(), "--spring.profiles.active=prod", mongoUri));
+            report("aot", List.of(JAVA, "-Dspring.aot.enabled=true",
+                    "-jar", extracted.toString(), "--spring.profiles.active=prod", mongoUri));
+            report("aot+cds", List.of(JAVA, "-XX:SharedArchiveFile=" + archive, "-Dspring.aot.enabled=true",
+                    "-jar", extracted.toString(), "--spring.profiles.active=prod", mongoUri));
+            if (Files.isExecutable(nativeExecutable)) {
+                report("native", List.of(nativeExecutable.toString(), "--spring.profiles.active=prod", mongoUri));
+            }
+        }
+    }
+
+    private static void report(String mode, List<String> command) throws Exception {
+        List<Double> started = new ArrayList<>();
+        List<Double> firstRequest = new ArrayList<>();
+        List<Double> residentMb = new ArrayList<>();
+        for (int i = 0; i < ROUNDS; i++) {
+            Run run = start(command);
+            started.add(run.started());
+            firstRequest.add(run.firstRequest());
+            residentMb.add(run.residentMb());
+        }
+        System.out.printf("%-8s started in %6.2f s, first request after %6.2f s, %6.0f MB resident%n",
+                mode, median(started), median(firstRequest), median(residentMb));
+    }
+
+    private static Run start(List<String> command) throws Exception {
+        int port = freePort();
+        List<String> withPort = new ArrayList<>(command);
+        withPort.add("--server.port=" + port);
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/notes?size=1")).build();
+
+        long launched = System.nanoTime();
+        Process process = new ProcessBuilder(withPort).redirectErrorStream(true).start();
+        CompletableFuture<Double> started = new CompletableFuture<>();
+        Thread.ofVirtual().start(() -> drain(process, started));
+        try {
+            while (true) {
+                if (System.nanoTime() - launched > TIMEOUT_NANOS || !process.isAlive()) {
+                    throw new IllegalStateException("Application did not answer: " + String.join(" ", command));
+                }
+                try {
+                    if (HTTP.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        break;
+                    }
+                } catch (ConnectException notListeningYet) {
+                    // retried below
+                }
+                Thread.sleep(5);
+            }
+            double firstRequest = (System.nanoTime() - launched) / 1e9;
+            smokeTest(port);
+            return new Run(started.get(TIMEOUT_NANOS, TimeUnit.NANOSECONDS), firstRequest, residentMb(process));
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    /**
+     * Reads the output until the process exits so it never blocks on a full pipe.
+     */
+    private static void drain(Process process, CompletableFuture<Double> started) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = STARTED.matcher(line);
+                if (matcher.find()) {
+                    started.complete(Double.parseDouble(matcher.group(1)));
+                }
+            }
+        } catch (IOException ignored) {
+            // the process was stopped
+        }
+        started.complete(Double.NaN);
+    }
+
+    private static void smokeTest(int port) throws Exception {
+        URI notes = URI.create("http://localhost:" + port + "/api/notes");
+        HttpResponse<String> created = HTTP.send(HttpRequest.newBuilder(notes)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"title\":\"Smoke\",\"text\":\"smoke test note\",\"tags\":[\"PERSONAL\"]}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (created.statusCode() / 100 != 2) {
+            throw new IllegalStateException("Create failed: " + created.statusCode() + " " + created.body());
+        }
+        String id = JSON.readTree(created.body()).get("id").asText();
+        HttpResponse<String> read = HTTP.send(HttpRequest.newBuilder(notes.resolve("notes/" + id)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (read.statusCode() != 200 || !read.body().contains("smoke test note")) {
+            throw new IllegalStateException("Read back failed: " + read.statusCode() + " " + read.body());
+        }
+    }
+
+    /**
+     * {@code VmRSS} from {@code /proc}, so Linux only, NaN elsewhere.
+     */
+    private static double residentMb(Process process) throws IOException {
+        Path status = Path.of("/proc", Long.toString(process.pid()), "status");
+        if (!Files.exists(status)) {
+            return Double.NaN;
+        }
+        try (Stream<String> lines = Files.lines(status)) {
+            return lines.filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> Long.parseLong(line.replaceAll("\\D", "")) / 1024.0)
+                    .findFirst()
+                    .orElse(Double.NaN);
+        }
+    }
+
+    private static void run(List<String> command) throws Exception {
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Failed: " + String.join(" ", command));
+        }
+    }
+
+    private static Path findJar() throws IOException {
+        try (Stream<Path> files = Files.list(Path.of("target"))) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No jar in target, run mvn -Pfast-start package first"));
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static double median(List<Double> values) {
+        List<Double> sorted = values.stream().sorted().toList();
+        return sorted.get(sorted.size() / 2);
+    }
+
+    private record Run(double started, double firstRequest, double residentMb) {
+    }
+
+}
@@ -0,0 +1,108 @@
+package org.abarysh.notes.notesapp;
+
+import org.abarysh.notes.notesapp.config.TenantProperties;
+import org.abarysh.notes.notesapp.exсeptions.QuotaExceededException;
+import org.abarysh.notes.notesapp.repo.NoteRepository;
+import org.abarysh.notes.notesapp.tenant.TenantContext;
+import org.abarysh.notes.notesapp.tenant.TenantQuota;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TenantQuotaTest {
+
+    @Mock
+    private NoteRepository noteRepository;
+
+    private TenantProperties properties;
+
+    private TenantQuota tenantQuota;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TenantProperties();
+        properties.setMaxNotes(2);
+        properties.setCountCacheTtl(Duration.ofHours(1));
+        tenantQuota = new TenantQuota(noteRepository, properties);
+        TenantContext.set("acme");
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void checkCanCreate_shouldCountOnceAndTrackCreates() {
+        when(noteRepository.countTenantNotes()).thenReturn(1L);
+
+        assertDoesNotThrow(() -> tenantQuota.checkCanCreate());
+        tenantQuota.created();
+
+        assertThrows(QuotaExceededException.class, () -> tenantQuota.checkCanCreate());
+        verify(noteRepository, times(1)).countTenantNotes();
+
+        tenantQuota.deleted();
+        assertDoesNotThrow(() -> tenantQuota.checkCanCreate());
+    }
+
+    @Test
+    void checkCanCreate_shouldKeepCountsPerTenant() {
+        when(noteRepository.countTenantNotes()).thenReturn(2L, 0L);
+
+        assertThrows(QuotaExceededException.class, () -> tenantQuota.checkCanCreate());
+
+        TenantContext.set("globex");
+        assertDoesNotThrow(() -> tenantQuota.checkCanCreate());
+    }
+
+    @Test
+    void checkCanCreate_shouldCountAgain_whenNoRoomToCache() {
+        properties.setMaxCachedCounts(1);
+        when(noteRepository.countTenantNotes()).thenReturn(0L);
+
+        tenantQuota.checkCanCreate();
+        TenantContext.set("globex");
+        tenantQuota.checkCanCreate();
+        tenantQuota.checkCanCreate();
+        TenantContext.set("acme");
+        tenantQuota.checkCanCreate();
+
+        verify(noteRepository, times(3)).countTenantNotes();
+    }
+
+    @Test
+    void checkCanCreate_shouldReplaceExpiredCounts_whenFull() {
+        properties.setMaxCachedCounts(1);
+        properties.setCountCacheTtl(Duration.ZERO);
+        when(noteRepository.countTenantNotes()).thenReturn(0L, 2L);
+
+        tenantQuota.checkCanCreate();
+        TenantContext.set("globex");
+        assertThrows(QuotaExceededException.class, () -> tenantQuota.checkCanCreate());
+        properties.setCountCacheTtl(Duration.ofHours(1));
+
+        assertThrows(QuotaExceededException.class, () -> tenantQuota.checkCanCreate());
+        verify(noteRepository, times(2)).countTenantNotes();
+    }
+
+    @Test
+    void checkCanCreate_shouldNotCount_whenUnlimited() {
+        properties.setMaxNotes(0);
+
+        tenantQuota.checkCanCreate();
+
+        verifyNoInteractions(noteRepository);
+    }
+
+}
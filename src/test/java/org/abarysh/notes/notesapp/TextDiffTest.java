@@ -0,0 +1,88 @@
+package org.abarysh.notes.notesapp;
+
+import org.abarysh.notes.notesapp.domain.entity.NoteRevision.Edit;
+import org.abarysh.notes.notesapp.service.revision.TextDiff;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextDiffTest {
+
+    @Test
+    void diff_shouldStoreOnlyChangedLines() {
+        String from = lines(0, 1_000);
+        String to = from.replace("line 10\n", "line ten\n").replace("line 900\n", "");
+
+        List<Edit> edits = TextDiff.diff(from, to);
+
+        assertEquals(2, edits.size());
+        assertEquals("ten", edits.get(0).getInserted());
+        assertEquals("line 900\n".length(), edits.get(1).getDeleted());
+        assertTrue(TextDiff.size(edits) < 100);
+        assertEquals(to, TextDiff.apply(from, edits));
+    }
+
+    @Test
+    void diff_shouldReturnNoEdits_whenTextsEqual() {
+        assertEquals(List.of(), TextDiff.diff("same\ntext", "same\ntext"));
+    }
+
+    @Test
+    void diff_shouldReplaceWholeSpan_whenTooManyLinesChanged() {
+        String from = lines(0, 1_000);
+        String to = lines(5_000, 6_000);
+
+        List<Edit> edits = TextDiff.diff(from, to);
+
+        assertEquals(1, edits.size());
+        assertEquals(to, TextDiff.apply(from, edits));
+    }
+
+    @Test
+    void diff_shouldNotSplitSurrogatePairs() {
+        List<Edit> edits = TextDiff.diff("smile 😀", "smile 😁");
+
+        assertEquals(List.of(new Edit(6, 2, "😁")), edits);
+    }
+
+    @Test
+    void apply_shouldRestoreRandomEdits() {
+        Random random = new Random(42);
+        String[] tokens = {"a", "b", " ", "\n", "word\n", "😀"};
+        for (int i = 0; i < 1_000; i++) {
+            String from = randomText(random, tokens);
+            String to = random.nextBoolean() ? from + randomText(random, tokens) : randomText(random, tokens) + from;
+            to = to.substring(0, random.nextInt(to.length() + 1));
+            if (!to.isEmpty() && Character.isHighSurrogate(to.charAt(to.length() - 1))) {
+                to = to.substring(0, to.length() - 1);
+            }
+
+            assertEquals(to, TextDiff.apply(from, TextDiff.diff(from, to)));
+        }
+    }
+
+    @Test
+    void apply_shouldRejectEditBeyondText() {
+        assertThrows(IllegalArgumentException.class, () -> TextDiff.apply("short", List.of(new Edit(3, 10, "x"))));
+    }
+
+    private static String lines(int from, int to) {
+        return IntStream.range(from, to)
+                .mapToObj(i -> "line " + i + "\n")
+                .collect(Collectors.joining());
+    }
+
+    private static String randomText(Random random, String[] tokens) {
+        StringBuilder text = new StringBuilder();
+        for (int i = random.nextInt(20); i > 0; i--) {
+            text.append(tokens[random.nextInt(tokens.length)]);
+        }
+        return text.toString();
+    }
+
+}
@@ -0,0 +1,59 @@
+package org.abarysh.notes.notesapp;
+
+import org.abarysh.notes.notesapp.domain.enums.WordAnalyzerType;
+import org.abarysh.notes.notesapp.service.stats.Analyzer;
+import org.abarysh.notes.notesapp.service.stats.Analyzers;
+import org.abarysh.notes.notesapp.service.stats.WordStatsCalculator;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Manual benchmark for word counting, not part of the test run.
+ * <p>
+ * Prints the throughput of every analyzer, then the sequential time and the parallel time
+ * for every pool size up to the number of available cores:
+ * {@code mvn test-compile exec:java -Dexec.mainClass=org.abarysh.notes.notesapp.WordStatsBenchmark -Dexec.classpathScope=test}
+ */
+public class WordStatsBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    public static void main(String[] args) {
+        int words = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        String text = WordStatsCalculatorTest.randomText(words, 42);
+        System.out.printf("text length: %,d chars%n", text.length());
+
+        for (WordAnalyzerType type : WordAnalyzerType.values()) {
+            Analyzer analyzer = Analyzers.forType(type);
+            double millis = measure(() -> WordStatsCalculator.countParallel(text, analyzer, Integer.MAX_VALUE, ForkJoinPool.commonPool()));
+            System.out.printf("analyzer %-8s %8.2f ms %8.2f M chars/s%n", type, millis, text.length() / 1_000.0 / millis);
+        }
+
+        System.out.printf("sequential: %8.2f ms%n",
+                measure(() -> WordStatsCalculator.countParallel(text, Analyzers.STANDARD, Integer.MAX_VALUE, ForkJoinPool.commonPool())));
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism <= cores; parallelism *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                double millis = measure(() -> WordStatsCalculator.countParallel(text, Analyzers.STANDARD, WordStatsCalculator.DEFAULT_CHUNK_SIZE, pool));
+                System.out.printf("parallel x%-3d %8.2f ms%n", parallelism, millis);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static double measure(Runnable run) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            run.run();
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / MEASURED_ROUNDS;
+    }
+
+}
@@ -0,0 +1,143 @@
+package org.abarysh.notes.notesapp;
+
+import org.abarysh.notes.notesapp.domain.dto.NoteWordStatsRequest;
+import org.abarysh.notes.notesapp.service.stats.Analyzer;
+import org.abarysh.notes.notesapp.service.stats.Analyzers;
+import org.abarysh.notes.notesapp.service.stats.TokenFilters;
+import org.abarysh.notes.notesapp.service.stats.UnicodeWordTokenizer;
+import org.abarysh.notes.notesapp.service.stats.WordStatsCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WordStatsCalculatorTest {
+
+    private static final String[] WORDS = {"note", "Note!", "is", "just", "a", "(note)", "don't", "42", "tail,", "Straße", "ÉTÉ", "日本語", "naïve—café"};
+
+    @Test
+    void countParallel_shouldMatchSequentialCount() {
+        String text = randomText(20_000, 7);
+
+        Map<String, Long> sequential = WordStatsCalculator.count(text, Analyzers.STANDARD);
+        Map<String, Long> parallel = WordStatsCalculator.countParallel(text, Analyzers.STANDARD, 128, ForkJoinPool.commonPool());
+
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    void select_shouldSizeHeapByWords_whenLimitIsHuge() {
+        Map<String, Long> counts = Map.of("note", 3L, "a", 2L, "tail", 1L);
+
+        for (int limit : new int[]{Integer.MAX_VALUE, 1_000_000_000}) {
+            Map<String, Long> top = WordStatsCalculator.select(counts, NoteWordStatsRequest.builder().limit(limit).build());
+
+            assertEquals(List.of("note", "a", "tail"), List.copyOf(top.keySet()));
+        }
+    }
+
+    @Test
+    void countParallel_shouldNotSplitTokensWithoutWhitespace() {
+        String text = "x".repeat(1_000) + " y";
+
+        Map<String, Long> parallel = WordStatsCalculator.countParallel(text, Analyzers.STANDARD, 16, ForkJoinPool.commonPool());
+
+        assertEquals(Map.of("x".repeat(1_000), 1L, "y", 1L), parallel);
+    }
+
+    @Test
+    void count_shouldSwitchToParallelAboveThreshold() {
+        String text = randomText(WordStatsCalculator.PARALLEL_THRESHOLD / 4, 11);
+        assertTrue(text.length() >= WordStatsCalculator.PARALLEL_THRESHOLD);
+        List<Integer> chunks = new CopyOnWriteArrayList<>();
+        Set<Boolean> onPool = ConcurrentHashMap.newKeySet();
+        Analyzer recording = Analyzer.of((chars, from, to, sink) -> {
+            chunks.add(to - from);
+            onPool.add(Thread.currentThread() instanceof ForkJoinWorkerThread);
+            UnicodeWordTokenizer.INSTANCE.tokenize(chars, from, to, sink);
+        }, TokenFilters.lowerCase());
+
+        Map<String, Long> counts = WordStatsCalculator.count(text, recording);
+
+        assertTrue(chunks.size() > 1);
+        assertTrue(chunks.stream().allMatch(chunk -> chunk <= WordStatsCalculator.DEFAULT_CHUNK_SIZE));
+        assertEquals(Set.of(true), onPool);
+        assertEquals(WordStatsCalculator.countParallel(text, Analyzers.STANDARD, Integer.MAX_VALUE, ForkJoinPool.commonPool()), counts);
+    }
+
+    @Test
+    void count_shouldStaySequentialBelowThreshold() {
+        List<Integer> chunks = new CopyOnWriteArrayList<>();
+        Analyzer recording = Analyzer.of((chars, from, to, sink) -> {
+            chunks.add(to - from);
+            UnicodeWordTokenizer.INSTANCE.tokenize(chars, from, to, sink);
+        });
+
+        WordStatsCalculator.count(randomText(1_000, 3), recording);
+
+        assertEquals(1, chunks.size());
+    }
+
+    @Test
+    void count_shouldSegmentUnicodeWords() {
+        Map<String, Long> counts = WordStatsCalculator.count("Ça va? «Ça va!» — don't stop; 3.14, e-mail 東京", Analyzers.STANDARD);
+
+        assertEquals(Map.of(
+                "ça", 2L,
+                "va", 2L,
+                "don't", 1L,
+                "stop", 1L,
+                "3.14", 1L,
+                "e", 1L,
+                "mail", 1L,
+                "東", 1L,
+                "京", 1L
+        ), counts);
+    }
+
+    @Test
+    void count_shouldFoldCaseIndependentlyOfDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            assertEquals(Map.of("title", 1L), WordStatsCalculator.count("TITLE", Analyzers.STANDARD));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    void count_shouldDropStopwordsAndStemPlurals_whenEnglishAnalyzer() {
+        Map<String, Long> counts = WordStatsCalculator.count("The notes and the stories of a class", Analyzers.ENGLISH);
+
+        assertEquals(Map.of("note", 1L, "story", 1L, "class", 1L), counts);
+    }
+
+    @Test
+    void count_shouldOnlyDropStopwords_whenStopAnalyzer() {
+        Map<String, Long> counts = WordStatsCalculator.count("The notes and the stories", Analyzers.STOP);
+
+        assertEquals(Map.of("notes", 1L, "stories", 1L), counts);
+    }
+
+    static String randomText(int words, long seed) {
+        Random random = new Random(seed);
+        String[] separators = {" ", "  ", "\n", "\t", " \r\n"};
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)])
+                    .append(separators[random.nextInt(separators.length)]);
+        }
+        return text.toString();
+    }
+
+}